@@ -0,0 +1,158 @@
+package com.example.demo.infra.pdf;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Chunking throughput over the pages of the bundled NASA PDFs: the original
+ * split/trim/join chunker versus the offset-based chunker, with and without
+ * materializing each chunk's string. One operation chunks every page once.
+ *
+ * Run with {@code ./gradlew jmh} from the demo directory; pass a WordPiece
+ * vocabulary through the {@code vocab} parameter to include token counting.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextChunkerBenchmark {
+
+    @Param({ "docs/rag" })
+    private String docsDir;
+
+    // WordPiece vocab.txt to count real tokens with; empty = 4 characters/token per word estimate
+    @Param({ "" })
+    private String vocab;
+
+    private List<String> pages;
+    private TextChunker chunker;
+
+    @Setup
+    public void setUp() throws IOException {
+        File[] pdfs = new File(docsDir).listFiles((dir, name) -> name.toLowerCase().endsWith(".pdf"));
+        if (pdfs == null || pdfs.length == 0) {
+            throw new IllegalStateException("No PDFs found in " + new File(docsDir).getAbsolutePath());
+        }
+
+        PdfTextExtractor extractor = new PdfTextExtractor();
+        pages = new ArrayList<>();
+        for (File pdf : pdfs) {
+            for (PdfTextExtractor.PageText page : extractor.extractTextFromPdf(pdf)) {
+                pages.add(page.getText());
+            }
+        }
+        TokenCounter counter = new HeuristicTokenCounter();
+        if (!vocab.isEmpty()) {
+            try (InputStream in = new FileInputStream(vocab)) {
+                counter = WordPieceTokenCounter.load(in, true, 50000);
+            }
+        }
+        chunker = TextChunker.create(counter, 512, 50);
+    }
+
+    @Benchmark
+    public void legacyChunker(Blackhole blackhole) {
+        for (int i = 0; i < pages.size(); i++) {
+            blackhole.consume(LegacyChunker.chunkText(pages.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void spanChunker(Blackhole blackhole) {
+        for (int i = 0; i < pages.size(); i++) {
+            for (TextChunker.TextChunk chunk : chunker.chunkText(pages.get(i), "bench", i)) {
+                blackhole.consume(chunk.getEnd() - chunk.getStart());
+            }
+        }
+    }
+
+    @Benchmark
+    public void spanChunkerMaterialized(Blackhole blackhole) {
+        for (int i = 0; i < pages.size(); i++) {
+            for (TextChunker.TextChunk chunk : chunker.chunkText(pages.get(i), "bench", i)) {
+                blackhole.consume(chunk.getText());
+            }
+        }
+    }
+
+    // Copy of the pre-offset TextChunker.chunkText
+    private static final class LegacyChunker {
+        private static final int MAX_CHUNK_TOKENS = 512;
+        private static final int OVERLAP_TOKENS = 50;
+        private static final Pattern SENTENCE_ENDINGS = Pattern.compile("[.!?]+\\s+");
+        private static final Pattern PARAGRAPH_BREAKS = Pattern.compile("\\n\\s*\\n");
+
+        static List<String> chunkText(String text) {
+            List<String> chunks = new ArrayList<>();
+            List<String> sentences = new ArrayList<>();
+            for (String paragraph : PARAGRAPH_BREAKS.split(text)) {
+                if (paragraph.trim().isEmpty()) {
+                    continue;
+                }
+                for (String sentence : SENTENCE_ENDINGS.split(paragraph)) {
+                    if (!sentence.trim().isEmpty()) {
+                        sentences.add(sentence.trim());
+                    }
+                }
+            }
+
+            List<String> currentChunk = new ArrayList<>();
+            int currentTokens = 0;
+            for (String sentence : sentences) {
+                int sentenceTokens = estimateTokenCount(sentence);
+                if (currentTokens + sentenceTokens > MAX_CHUNK_TOKENS && !currentChunk.isEmpty()) {
+                    chunks.add(String.join(" ", currentChunk));
+                    currentChunk = createOverlapChunk(currentChunk);
+                    currentTokens = estimateTokenCount(String.join(" ", currentChunk));
+                }
+                currentChunk.add(sentence);
+                currentTokens += sentenceTokens;
+            }
+            if (!currentChunk.isEmpty()) {
+                chunks.add(String.join(" ", currentChunk));
+            }
+            return chunks;
+        }
+
+        private static List<String> createOverlapChunk(List<String> previousChunk) {
+            List<String> overlap = new ArrayList<>();
+            int overlapTokens = 0;
+            for (int i = previousChunk.size() - 1; i >= 0 && overlapTokens < OVERLAP_TOKENS; i--) {
+                String sentence = previousChunk.get(i);
+                int sentenceTokens = estimateTokenCount(sentence);
+                if (overlapTokens + sentenceTokens <= OVERLAP_TOKENS) {
+                    overlap.add(0, sentence);
+                    overlapTokens += sentenceTokens;
+                } else {
+                    break;
+                }
+            }
+            return overlap;
+        }
+
+        private static int estimateTokenCount(String text) {
+            return Math.max(1, text.length() / 4);
+        }
+    }
+}
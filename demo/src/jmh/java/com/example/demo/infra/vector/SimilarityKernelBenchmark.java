@@ -0,0 +1,137 @@
+package com.example.demo.infra.vector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Similarity throughput for 768-dim (nomic-embed-text) vectors: the original
+ * double-accumulating cosine loop versus the scalar and Vector API dot-product
+ * kernels over pre-normalized rows, on heap arrays and on a direct
+ * little-endian buffer laid out like a mapped snapshot.
+ *
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimilarityKernelBenchmark {
+
+    private static final int ROWS = 1024;
+
+    @Param({ "768" })
+    private int dimension;
+
+    private float[] query;
+    private float[][] vectors;
+    private float[] normalizedQuery;
+    private float[] matrix;
+    private FloatBuffer mapped;
+
+    private SimilarityKernel scalar;
+    private SimilarityKernel simd;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        query = randomVector(random);
+        vectors = new float[ROWS][];
+        matrix = new float[ROWS * dimension];
+        for (int row = 0; row < ROWS; row++) {
+            vectors[row] = randomVector(random);
+            System.arraycopy(VectorMatrix.normalize(vectors[row]), 0, matrix, row * dimension, dimension);
+        }
+        normalizedQuery = VectorMatrix.normalize(query);
+        mapped = ByteBuffer.allocateDirect(matrix.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                .asFloatBuffer().put(matrix).flip();
+
+        scalar = new ScalarSimilarityKernel();
+        simd = SimilarityKernels.select(true);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void legacyCosine(Blackhole blackhole) {
+        for (float[] vector : vectors) {
+            blackhole.consume(legacyCosineSimilarity(query, vector));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void scalarDot(Blackhole blackhole) {
+        for (int row = 0; row < ROWS; row++) {
+            blackhole.consume(scalar.dot(normalizedQuery, 0, matrix, row * dimension, dimension));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void simdDot(Blackhole blackhole) {
+        for (int row = 0; row < ROWS; row++) {
+            blackhole.consume(simd.dot(normalizedQuery, 0, matrix, row * dimension, dimension));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void scalarMappedDot(Blackhole blackhole) {
+        for (int row = 0; row < ROWS; row++) {
+            blackhole.consume(scalar.dot(normalizedQuery, 0, mapped, row * dimension, dimension));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void simdMappedDot(Blackhole blackhole) {
+        for (int row = 0; row < ROWS; row++) {
+            blackhole.consume(simd.dot(normalizedQuery, 0, mapped, row * dimension, dimension));
+        }
+    }
+
+    private float[] randomVector(Random random) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    // Copy of the pre-kernel VectorSearchService.cosineSimilarity
+    private static double legacyCosineSimilarity(float[] a, float[] b) {
+        double dotProduct = 0.0;
+        double normA = 0.0;
+        double normB = 0.0;
+
+        for (int i = 0; i < a.length; i++) {
+            dotProduct += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+
+        if (normA == 0.0 || normB == 0.0) {
+            return 0.0;
+        }
+
+        return dotProduct / (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+}
@@ -1,16 +1,27 @@
 package com.example.demo.domain.rag.controller;
 
+import com.example.demo.domain.rag.dto.IndexStatus;
+import com.example.demo.domain.rag.dto.IngestionQueueStatus;
+import com.example.demo.domain.rag.dto.IngestionStatus;
 import com.example.demo.domain.rag.dto.RagAnswer;
 import com.example.demo.domain.rag.dto.RagQueryRequest;
+import com.example.demo.domain.rag.service.DocumentIngestionService;
+import com.example.demo.domain.rag.service.DocumentWatchService;
 import com.example.demo.domain.rag.service.RagQueryService;
+import com.example.demo.domain.rag.service.VectorSearchService;
 import com.example.demo.global.dto.ApiResponse;
 import com.example.demo.global.exception.BusinessException;
 import com.example.demo.global.exception.ErrorCode;
+import com.example.demo.infra.vector.QuantizationReport;
 
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @RestController
 @RequestMapping("/api/v1/rag")
@@ -19,6 +30,9 @@ import org.springframework.web.bind.annotation.*;
 public class RagController {
 
     private final RagQueryService ragQueryService;
+    private final VectorSearchService vectorSearchService;
+    private final DocumentWatchService documentWatchService;
+    private final DocumentIngestionService documentIngestionService;
 
     @PostMapping("/ask")
     public ResponseEntity<ApiResponse<RagAnswer>> askQuestion(@RequestBody RagQueryRequest request) {
@@ -30,6 +44,66 @@ public class RagController {
         return ResponseEntity.ok(ApiResponse.success(answer));
     }
 
+    // /ask의 non-blocking 버전: 임베딩/LLM 응답을 기다리는 동안 요청 스레드를 점유하지 않음
+    @PostMapping("/ask/async")
+    public Mono<ResponseEntity<ApiResponse<RagAnswer>>> askQuestionAsync(@RequestBody RagQueryRequest request) {
+        if (request.getQuestion() == null || request.getQuestion().trim().isEmpty()) {
+            throw new BusinessException(ErrorCode.INVALID_REQUEST, "질문 내용은 필수입니다.");
+        }
+
+        return ragQueryService.queryAsync(request).map(answer -> ResponseEntity.ok(ApiResponse.success(answer)));
+    }
+
+    // 스트리밍 답변 (SSE): sources → token... → done
+    // 오류(빈 질문 포함)는 JSON 응답 대신 error 이벤트로 전달
+    @PostMapping(value = "/ask/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> askQuestionStream(@RequestBody RagQueryRequest request) {
+        return ragQueryService.queryStream(request);
+    }
+
+    // 벡터 인덱스 적재 상태 (비동기 warm-up 진행률, 검색 준비 여부)
+    @GetMapping("/index/status")
+    public ResponseEntity<ApiResponse<IndexStatus>> indexStatus() {
+        return ResponseEntity.ok(ApiResponse.success(vectorSearchService.getStatus()));
+    }
+
+    // 문서별 수집 작업 상태 (진행 페이지/청크, 오류, 소요 시간)와 파이프라인 대기량
+    @GetMapping("/ingestion")
+    public ResponseEntity<ApiResponse<IngestionStatus>> ingestionStatus() {
+        return ResponseEntity.ok(ApiResponse.success(documentIngestionService.getStatus()));
+    }
+
+    // 문서 디렉터리 재수집 요청 (백그라운드, 변경된 문서만 처리)
+    @PostMapping("/ingestion/rescan")
+    public ResponseEntity<ApiResponse<IngestionQueueStatus>> rescan() {
+        if (!documentWatchService.requestRescan(0)) {
+            throw new BusinessException(ErrorCode.RAG_SERVICE_ERROR, "문서 수집이 비활성화되어 있습니다.");
+        }
+        return ResponseEntity.ok(ApiResponse.success(documentWatchService.getStatus()));
+    }
+
+    // 수집 큐 상태 (감시 모드, 대기 문서/항목 수, 마지막 재수집 결과)
+    @GetMapping("/ingestion/queue")
+    public ResponseEntity<ApiResponse<IngestionQueueStatus>> ingestionQueue() {
+        return ResponseEntity.ok(ApiResponse.success(documentWatchService.getStatus()));
+    }
+
+    // 양자화(int8/binary) 추가 메모리와 recall@k 평가
+    @GetMapping("/index/quantization")
+    public ResponseEntity<ApiResponse<QuantizationReport>> evaluateQuantization(
+            @RequestParam(defaultValue = "5") int k,
+            @RequestParam(defaultValue = "100") int samples) {
+        if (k < 1 || k > 100 || samples < 1 || samples > 1000) {
+            throw new BusinessException(ErrorCode.INVALID_REQUEST, "k는 1~100, samples는 1~1000 사이여야 합니다.");
+        }
+
+        QuantizationReport report = vectorSearchService.evaluateQuantization(k, samples);
+        if (report == null) {
+            throw new BusinessException(ErrorCode.RESOURCE_NOT_FOUND, "인덱스에 저장된 임베딩이 없습니다.");
+        }
+        return ResponseEntity.ok(ApiResponse.success(report));
+    }
+
     @GetMapping("/health")
     public ResponseEntity<ApiResponse<String>> health() {
         return ResponseEntity.ok(ApiResponse.success("RAG service is running"));
@@ -0,0 +1,15 @@
+package com.example.demo.domain.rag.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IndexStatus {
+    private boolean ready; // Warm-up finished, search covers every stored embedding
+    private long loadedChunks; // Rows read so far during warm-up
+    private long totalChunks; // Rows expected when warm-up started
+    private int indexedEmbeddings; // Vectors currently searchable
+}
@@ -0,0 +1,51 @@
+package com.example.demo.domain.rag.dto;
+
+import com.example.demo.domain.rag.entity.IngestionJob;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+@Getter
+@AllArgsConstructor
+public class IngestionJobStatus {
+
+    private String relativePath;
+    private String state; // RUNNING, INTERRUPTED, FAILED or COMPLETED
+    private int attempts;
+    private int pagesCompleted;
+    private int lastPageCompleted;
+    private int chunksEmbedded;
+    private int chunksStored;
+    private int failedChunks;
+    private int errorCount;
+    private String lastError;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private Long durationMs; // Current attempt; elapsed so far while running
+    private LocalDateTime updatedAt;
+
+    public static IngestionJobStatus from(IngestionJob job) {
+        Long durationMs = null;
+        if (job.getStartedAt() != null) {
+            LocalDateTime end = job.getFinishedAt() != null ? job.getFinishedAt() : LocalDateTime.now();
+            durationMs = Duration.between(job.getStartedAt(), end).toMillis();
+        }
+        return new IngestionJobStatus(
+                job.getRelativePath(),
+                job.getState().name(),
+                job.getAttempts(),
+                job.getPagesCompleted(),
+                job.getLastPageCompleted(),
+                job.getChunksEmbedded(),
+                job.getChunksStored(),
+                job.getFailedChunks(),
+                job.getErrorCount(),
+                job.getLastError(),
+                job.getStartedAt(),
+                job.getFinishedAt(),
+                durationMs,
+                job.getUpdatedAt());
+    }
+}
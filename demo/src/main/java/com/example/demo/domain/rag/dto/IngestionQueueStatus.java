@@ -0,0 +1,22 @@
+package com.example.demo.domain.rag.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestionQueueStatus {
+    private String watchMode; // disabled, manual, watch or polling
+    private boolean ingesting; // A scan is running now
+    private boolean rescanPending; // A debounced rescan is scheduled
+    private int pendingDocuments; // Documents in the running scan not yet stored
+    private int queuedItems; // Pages/chunks waiting between pipeline stages
+    private LocalDateTime lastRescanAt;
+    private int lastFiles; // Files ingested by the last background rescan
+    private int lastChunks;
+    private int lastFailedChunks;
+}
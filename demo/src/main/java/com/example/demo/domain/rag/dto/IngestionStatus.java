@@ -0,0 +1,19 @@
+package com.example.demo.domain.rag.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestionStatus {
+    private boolean ingesting; // A scan is running now
+    private int pendingDocuments; // Documents in the running scan not yet stored
+    private int queuedItems; // Pages/chunks waiting between pipeline stages
+    private Map<String, Long> jobsByState;
+    private List<IngestionJobStatus> jobs;
+}
@@ -0,0 +1,18 @@
+package com.example.demo.domain.rag.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 스트리밍 답변의 첫 이벤트 (검색된 출처와 청크)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RagSources {
+    private List<RagAnswer.Source> sources;
+    private List<RagAnswer.Chunk> chunks;
+}
@@ -0,0 +1,18 @@
+package com.example.demo.domain.rag.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 스트리밍 답변의 마지막 이벤트
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RagStreamSummary {
+    private int tokens; // Fragments streamed
+    private int answerLength; // Characters streamed
+    private Long firstTokenMillis; // Request to first token; null when nothing was generated
+    private long totalMillis; // Request to last token
+}
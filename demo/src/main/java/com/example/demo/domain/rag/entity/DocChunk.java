@@ -1,5 +1,6 @@
 package com.example.demo.domain.rag.entity;
 
+import com.example.demo.infra.vector.EmbeddingCodec;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -9,14 +10,19 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "doc_chunks")
+@Table(name = "doc_chunks", indexes = @Index(name = "idx_doc_chunks_source_path", columnList = "source_path"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class DocChunk {
 
+    public static final String ID_SEQUENCE = "doc_chunks_seq";
+    public static final int ID_ALLOCATION_SIZE = 64;
+
+    // Pooled sequence: ids are handed out in blocks without a round-trip per row, so inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(name = "source_path", nullable = false, length = 500)
@@ -31,8 +37,19 @@ public class DocChunk {
     @Column(name = "text", columnDefinition = "CLOB")
     private String text;
 
+    @Column(name = "text_hash", length = 64)
+    private String textHash; // SHA-256 of text, used to reuse embeddings on re-ingestion
+
     @Column(name = "embedding", columnDefinition = "CLOB")
-    private String embeddingJson; // JSON array of floats
+    private String embeddingJson; // Legacy JSON array of floats, migrated to embeddingBlob
+
+    @Lob
+    @Column(name = "embedding_bin", columnDefinition = "BLOB")
+    private byte[] embeddingBlob; // Little-endian float32, see EmbeddingCodec
+
+    // Written by an ingestion still in progress: not indexed until the document's final transaction clears it
+    @Column(name = "staged", nullable = false, columnDefinition = "BOOLEAN DEFAULT FALSE")
+    private boolean staged;
 
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
@@ -40,6 +57,18 @@ public class DocChunk {
 
     // Helper method to get embedding as float array
     public float[] getEmbeddingAsArray() {
+        return decodeEmbedding(embeddingBlob, embeddingJson);
+    }
+
+    // Decode from the binary column, falling back to the legacy JSON text
+    public static float[] decodeEmbedding(byte[] embeddingBlob, String embeddingJson) {
+        if (embeddingBlob != null && embeddingBlob.length > 0) {
+            try {
+                return EmbeddingCodec.decode(embeddingBlob);
+            } catch (IllegalArgumentException e) {
+                return new float[0];
+            }
+        }
         if (embeddingJson == null || embeddingJson.trim().isEmpty()) {
             return new float[0];
         }
@@ -59,17 +88,11 @@ public class DocChunk {
 
     // Helper method to set embedding from float array
     public void setEmbeddingFromArray(float[] embedding) {
+        this.embeddingJson = null;
         if (embedding == null || embedding.length == 0) {
-            this.embeddingJson = "[]";
+            this.embeddingBlob = null;
             return;
         }
-        StringBuilder sb = new StringBuilder("[");
-        for (int i = 0; i < embedding.length; i++) {
-            if (i > 0)
-                sb.append(",");
-            sb.append(embedding[i]);
-        }
-        sb.append("]");
-        this.embeddingJson = sb.toString();
+        this.embeddingBlob = EmbeddingCodec.encode(embedding);
     }
 }
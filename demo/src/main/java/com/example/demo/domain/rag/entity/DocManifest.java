@@ -0,0 +1,52 @@
+package com.example.demo.domain.rag.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * 수집된 문서 1건의 상태. 내용/청킹 설정/임베딩 모델이 같으면 재수집하지 않는다.
+ */
+@Entity
+@Table(name = "doc_manifests")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocManifest {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "relative_path", nullable = false, unique = true, length = 500)
+    private String relativePath; // Relative to rag.docs.dir, so moving the directory keeps the manifest
+
+    @Column(name = "source_path", nullable = false, length = 500)
+    private String sourcePath; // Absolute path stored on the chunks
+
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash; // SHA-256 of the file bytes
+
+    @Column(name = "file_size", nullable = false)
+    private Long fileSize;
+
+    @Column(name = "last_modified", nullable = false)
+    private Long lastModified; // Epoch millis
+
+    @Column(name = "chunker_settings", nullable = false, length = 100)
+    private String chunkerSettings;
+
+    @Column(name = "embedding_model", nullable = false, length = 200)
+    private String embeddingModel;
+
+    @Column(name = "chunk_count", nullable = false)
+    private Integer chunkCount;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,38 @@
+package com.example.demo.domain.rag.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 수집 중인 문서에서 임베딩을 마친 청크 1건. 문서가 저장되면 삭제되고,
+ * 중단된 작업을 다시 수집할 때 텍스트 해시로 임베딩을 재사용한다.
+ */
+@Entity
+@Table(name = "ingestion_checkpoints", indexes = @Index(name = "idx_ingestion_checkpoints_job_id", columnList = "job_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestionCheckpoint {
+
+    // Pooled sequence so a page's rows go out as one JDBC batch
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ingestion_checkpoints_seq")
+    @SequenceGenerator(name = "ingestion_checkpoints_seq", sequenceName = "ingestion_checkpoints_seq",
+            allocationSize = 64)
+    private Long id;
+
+    @Column(name = "job_id", nullable = false)
+    private Long jobId;
+
+    @Column(name = "page_no", nullable = false)
+    private Integer pageNo;
+
+    @Column(name = "text_hash", nullable = false, length = 64)
+    private String textHash;
+
+    @Lob
+    @Column(name = "embedding_bin", nullable = false, columnDefinition = "BLOB")
+    private byte[] embeddingBlob; // Little-endian float32, see EmbeddingCodec
+}
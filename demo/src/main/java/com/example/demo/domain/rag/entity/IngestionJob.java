@@ -0,0 +1,79 @@
+package com.example.demo.domain.rag.entity;
+
+import com.example.demo.global.enums.IngestionJobState;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * 문서 1건의 수집 작업. 페이지 단위 체크포인트(IngestionCheckpoint) 진행률과 오류를 기록하며,
+ * 같은 내용/설정으로 다시 수집할 때 체크포인트의 임베딩을 재사용한다.
+ */
+@Entity
+@Table(name = "ingestion_jobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestionJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "relative_path", nullable = false, unique = true, length = 500)
+    private String relativePath; // Same key as DocManifest
+
+    @Column(name = "source_path", nullable = false, length = 500)
+    private String sourcePath;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "state", nullable = false, length = 20)
+    private IngestionJobState state;
+
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash; // Checkpoints are only reused for the same file content
+
+    @Column(name = "chunker_settings", nullable = false, length = 100)
+    private String chunkerSettings;
+
+    @Column(name = "embedding_model", nullable = false, length = 200)
+    private String embeddingModel;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+
+    @Column(name = "pages_completed", nullable = false)
+    private Integer pagesCompleted; // Pages whose chunks are all embedded and checkpointed
+
+    @Column(name = "last_page_completed", nullable = false)
+    private Integer lastPageCompleted; // Highest such page; pages finish out of order
+
+    @Column(name = "chunks_embedded", nullable = false)
+    private Integer chunksEmbedded;
+
+    @Column(name = "chunks_stored", nullable = false)
+    private Integer chunksStored;
+
+    @Column(name = "failed_chunks", nullable = false)
+    private Integer failedChunks;
+
+    @Column(name = "error_count", nullable = false)
+    private Integer errorCount; // Failed attempts over the job's lifetime
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt; // Start of the current attempt
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
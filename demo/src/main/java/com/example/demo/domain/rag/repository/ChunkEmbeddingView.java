@@ -0,0 +1,13 @@
+package com.example.demo.domain.rag.repository;
+
+/**
+ * 인덱스 적재용 projection: 텍스트(CLOB) 없이 id와 임베딩 컬럼만 조회
+ */
+public interface ChunkEmbeddingView {
+
+    Long getId();
+
+    byte[] getEmbeddingBlob();
+
+    String getEmbeddingJson();
+}
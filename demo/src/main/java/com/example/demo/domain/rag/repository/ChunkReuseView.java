@@ -0,0 +1,9 @@
+package com.example.demo.domain.rag.repository;
+
+/**
+ * 재수집 시 임베딩 재사용을 위한 projection: 텍스트 해시와 임베딩 컬럼
+ */
+public interface ChunkReuseView extends ChunkEmbeddingView {
+
+    String getTextHash();
+}
@@ -1,10 +1,13 @@
 package com.example.demo.domain.rag.repository;
 
 import com.example.demo.domain.rag.entity.DocChunk;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -13,8 +16,57 @@ public interface DocChunkRepository extends JpaRepository<DocChunk, Long> {
 
     List<DocChunk> findBySourcePath(String sourcePath);
 
-    @Query("SELECT COUNT(d) FROM DocChunk d")
-    long countAllChunks();
+    @Query("SELECT d.id FROM DocChunk d WHERE d.sourcePath = :sourcePath")
+    List<Long> findIdsBySourcePath(@Param("sourcePath") String sourcePath);
+
+    /**
+     * 문서의 기존 청크 중 텍스트 해시가 있는 임베딩 조회 (재수집 시 재사용)
+     */
+    @Query("SELECT d.id AS id, d.textHash AS textHash, d.embeddingBlob AS embeddingBlob, "
+            + "d.embeddingJson AS embeddingJson FROM DocChunk d "
+            + "WHERE d.sourcePath = :sourcePath AND d.textHash IS NOT NULL")
+    List<ChunkReuseView> findReusableEmbeddings(@Param("sourcePath") String sourcePath);
+
+    /**
+     * 문서 디렉터리 이동 시 청크의 절대 경로 갱신
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE DocChunk d SET d.sourcePath = :newPath WHERE d.sourcePath = :oldPath")
+    int updateSourcePath(@Param("oldPath") String oldPath, @Param("newPath") String newPath);
+
+    @Query("SELECT COUNT(d) FROM DocChunk d WHERE d.staged = false")
+    long countPublishedChunks();
+
+    @Query("SELECT MAX(d.id) FROM DocChunk d")
+    Long findMaxChunkId();
+
+    @Query("SELECT MAX(d.id) FROM DocChunk d WHERE d.staged = false")
+    Long findMaxPublishedChunkId();
+
+    /**
+     * 수집 중 조각 단위로 저장된 문서 청크를 공개 (문서의 마지막 트랜잭션 안에서 호출)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE DocChunk d SET d.staged = false WHERE d.sourcePath = :sourcePath AND d.staged = true")
+    int publishStaged(@Param("sourcePath") String sourcePath);
+
+    /**
+     * 실패한 수집이 조각 단위로 저장한 청크 삭제
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM DocChunk d WHERE d.sourcePath = :sourcePath AND d.staged = true")
+    int deleteStaged(@Param("sourcePath") String sourcePath);
+
+    /**
+     * 이전 프로세스가 수집 도중 종료되며 남긴 청크 삭제
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM DocChunk d WHERE d.staged = true")
+    int deleteAllStaged();
 
     @Query("SELECT DISTINCT d.sourcePath FROM DocChunk d")
     List<String> findDistinctSourcePaths();
@@ -23,6 +75,18 @@ public interface DocChunkRepository extends JpaRepository<DocChunk, Long> {
     DocChunk findBySourcePathAndChunkIndex(@Param("sourcePath") String sourcePath,
             @Param("chunkIndex") Integer chunkIndex);
 
-    @Query("SELECT d FROM DocChunk d WHERE d.embeddingJson IS NOT NULL AND d.embeddingJson != ''")
-    List<DocChunk> findAllWithEmbeddings();
+    /**
+     * 인덱스 적재용 임베딩 조회 (id와 임베딩 컬럼만, id 순 keyset 페이지)
+     */
+    @Query("SELECT d.id AS id, d.embeddingBlob AS embeddingBlob, d.embeddingJson AS embeddingJson "
+            + "FROM DocChunk d WHERE d.id > :afterId AND d.staged = false AND (d.embeddingBlob IS NOT NULL "
+            + "OR (d.embeddingJson IS NOT NULL AND d.embeddingJson != '')) ORDER BY d.id")
+    List<ChunkEmbeddingView> findEmbeddingsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * 바이너리 컬럼으로 아직 옮겨지지 않은 JSON 임베딩 조회 (id 순 keyset 페이지)
+     */
+    @Query("SELECT d FROM DocChunk d WHERE d.embeddingBlob IS NULL AND d.embeddingJson IS NOT NULL "
+            + "AND d.id > :afterId ORDER BY d.id")
+    List<DocChunk> findLegacyJsonEmbeddings(@Param("afterId") Long afterId, Pageable pageable);
 }
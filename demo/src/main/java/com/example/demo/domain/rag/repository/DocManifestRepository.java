@@ -0,0 +1,13 @@
+package com.example.demo.domain.rag.repository;
+
+import com.example.demo.domain.rag.entity.DocManifest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface DocManifestRepository extends JpaRepository<DocManifest, Long> {
+
+    Optional<DocManifest> findByRelativePath(String relativePath);
+}
@@ -0,0 +1,20 @@
+package com.example.demo.domain.rag.repository;
+
+import com.example.demo.domain.rag.entity.IngestionCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface IngestionCheckpointRepository extends JpaRepository<IngestionCheckpoint, Long> {
+
+    List<IngestionCheckpoint> findByJobId(Long jobId);
+
+    @Modifying
+    @Query("DELETE FROM IngestionCheckpoint c WHERE c.jobId = :jobId")
+    int deleteByJobId(@Param("jobId") Long jobId);
+}
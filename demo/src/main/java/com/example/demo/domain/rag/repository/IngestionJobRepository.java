@@ -0,0 +1,39 @@
+package com.example.demo.domain.rag.repository;
+
+import com.example.demo.domain.rag.entity.IngestionJob;
+import com.example.demo.global.enums.IngestionJobState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface IngestionJobRepository extends JpaRepository<IngestionJob, Long> {
+
+    Optional<IngestionJob> findByRelativePath(String relativePath);
+
+    List<IngestionJob> findAllByOrderByRelativePathAsc();
+
+    long countByState(IngestionJobState state);
+
+    /**
+     * 이전 프로세스에서 진행 중이던 작업을 중단 상태로 변경
+     */
+    @Modifying
+    @Query("UPDATE IngestionJob j SET j.state = :to WHERE j.state = :from")
+    int updateState(@Param("from") IngestionJobState from, @Param("to") IngestionJobState to);
+
+    /**
+     * 페이지 체크포인트 진행률 누적 (여러 임베딩 워커가 동시에 갱신하므로 증분 UPDATE)
+     */
+    @Modifying
+    @Query("UPDATE IngestionJob j SET j.pagesCompleted = j.pagesCompleted + 1, "
+            + "j.chunksEmbedded = j.chunksEmbedded + :chunks, "
+            + "j.lastPageCompleted = CASE WHEN j.lastPageCompleted < :pageNo THEN :pageNo "
+            + "ELSE j.lastPageCompleted END, j.updatedAt = LOCAL DATETIME WHERE j.id = :id")
+    int addCompletedPage(@Param("id") Long id, @Param("pageNo") int pageNo, @Param("chunks") int chunks);
+}
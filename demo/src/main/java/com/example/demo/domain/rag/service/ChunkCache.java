@@ -0,0 +1,144 @@
+package com.example.demo.domain.rag.service;
+
+import com.example.demo.domain.rag.entity.DocChunk;
+import com.example.demo.domain.rag.repository.DocChunkRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 청크 텍스트/메타데이터 LRU 캐시 (chunk id 기준)
+ *
+ * DocChunk 행은 수집 이후 변경되지 않으므로, 검색 결과 조회 시 DB 왕복 대신
+ * 캐시를 먼저 확인하고 누락된 id만 한 번의 findAllById로 가져온다.
+ * 임베딩 컬럼은 캐시하지 않는다.
+ */
+@Component
+@RequiredArgsConstructor
+public class ChunkCache {
+
+    private final DocChunkRepository docChunkRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${rag.chunk.cache.maxSize:10000}")
+    private int maxSize;
+
+    private Map<Long, CachedChunk> entries;
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    public void init() {
+        int capacity = Math.max(maxSize, 0);
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedChunk> eldest) {
+                return size() > capacity;
+            }
+        };
+
+        hits = Counter.builder("rag.chunk.cache.requests").tag("result", "hit")
+                .description("Chunk lookups answered from the cache").register(meterRegistry);
+        misses = Counter.builder("rag.chunk.cache.requests").tag("result", "miss")
+                .description("Chunk lookups loaded from the database").register(meterRegistry);
+        Gauge.builder("rag.chunk.cache.size", this, ChunkCache::size)
+                .description("Chunks currently cached").register(meterRegistry);
+    }
+
+    /**
+     * id 목록에 해당하는 청크 조회 (존재하지 않는 id는 결과에서 제외)
+     */
+    public Map<Long, CachedChunk> getAll(Collection<Long> ids) {
+        Map<Long, CachedChunk> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+
+        synchronized (entries) {
+            for (Long id : ids) {
+                CachedChunk cached = entries.get(id);
+                if (cached != null) {
+                    found.put(id, cached);
+                } else if (!missing.contains(id)) {
+                    missing.add(id);
+                }
+            }
+        }
+        hits.increment(found.size());
+        misses.increment(missing.size());
+
+        if (missing.isEmpty()) {
+            return found;
+        }
+
+        List<CachedChunk> loaded = new ArrayList<>(missing.size());
+        for (DocChunk chunk : docChunkRepository.findAllById(missing)) {
+            loaded.add(new CachedChunk(chunk.getId(), chunk.getSourcePath(), chunk.getPageNo(), chunk.getText()));
+        }
+
+        synchronized (entries) {
+            for (CachedChunk chunk : loaded) {
+                entries.put(chunk.getId(), chunk);
+                found.put(chunk.getId(), chunk);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * 삭제된 청크를 캐시에서 제거
+     */
+    public void evictAll(Collection<Long> ids) {
+        synchronized (entries) {
+            for (Long id : ids) {
+                entries.remove(id);
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public static class CachedChunk {
+        private final Long id;
+        private final String sourcePath;
+        private final Integer pageNo;
+        private final String text;
+
+        public CachedChunk(Long id, String sourcePath, Integer pageNo, String text) {
+            this.id = id;
+            this.sourcePath = sourcePath;
+            this.pageNo = pageNo;
+            this.text = text;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getSourcePath() {
+            return sourcePath;
+        }
+
+        public Integer getPageNo() {
+            return pageNo;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.demo.domain.rag.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * 문서/청크 변경 감지용 SHA-256 해시
+ */
+final class ContentHashes {
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int TEXT_BUFFER_BYTES = 4 * 1024;
+
+    private ContentHashes() {
+    }
+
+    static String sha256(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[BUFFER_BYTES];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Hash of the UTF-8 encoding, streamed through a small buffer so a chunk
+     * span never has to be copied into its own string
+     */
+    static String sha256(CharSequence text) {
+        MessageDigest digest = newDigest();
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer in = CharBuffer.wrap(text);
+        ByteBuffer out = ByteBuffer.allocate(TEXT_BUFFER_BYTES);
+        while (encoder.encode(in, out, true).isOverflow()) {
+            drain(out, digest);
+        }
+        while (encoder.flush(out).isOverflow()) {
+            drain(out, digest);
+        }
+        drain(out, digest);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void drain(ByteBuffer buffer, MessageDigest digest) {
+        buffer.flip();
+        digest.update(buffer);
+        buffer.clear();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.demo.domain.rag.service;
+
+import com.example.demo.domain.rag.entity.DocChunk;
+import com.example.demo.domain.rag.repository.DocChunkRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * doc_chunks id 시퀀스를 기존 행보다 앞으로 맞춤
+ *
+ * DocChunk id는 IDENTITY 컬럼에서 doc_chunks_seq 시퀀스(allocationSize 64)로 바뀌었다. 이전 버전으로
+ * 채워진 영속 DB에서는 새로 만든 시퀀스가 1부터 시작해 기존 id와 충돌하므로, 시작할 때 시퀀스의 다음 값이
+ * max(id) 이하이면 그 위로 옮긴다. 시퀀스를 지원하는 DB는 ALTER SEQUENCE ... RESTART WITH를, 시퀀스를
+ * 테이블로 흉내 내는 DB(MySQL 등)는 next_val 갱신을 사용한다. 시퀀스 값은 앞으로만 옮긴다.
+ */
+@Component
+@RequiredArgsConstructor
+public class DocChunkSequenceInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocChunkSequenceInitializer.class);
+
+    private final DocChunkRepository docChunkRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    public void seed() {
+        Long maxId = docChunkRepository.findMaxChunkId();
+        if (maxId == null) {
+            return;
+        }
+
+        // The pooled optimizer hands out the block below the value it reads, so leave a whole block of headroom
+        long restartWith = maxId + DocChunk.ID_ALLOCATION_SIZE + 1;
+        Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        try {
+            if (dialect.getSequenceSupport().supportsSequences()) {
+                Long next = jdbcTemplate.queryForObject(
+                        dialect.getSequenceSupport().getSequenceNextValString(DocChunk.ID_SEQUENCE), Long.class);
+                if (next != null && next > maxId) {
+                    return;
+                }
+                jdbcTemplate.execute("ALTER SEQUENCE " + DocChunk.ID_SEQUENCE + " RESTART WITH " + restartWith);
+            } else {
+                int updated = jdbcTemplate.update(
+                        "UPDATE " + DocChunk.ID_SEQUENCE + " SET next_val = ? WHERE next_val <= ?", restartWith, maxId);
+                if (updated == 0) {
+                    return;
+                }
+            }
+            logger.info("Moved {} past existing chunk ids (max id {}, restarts at {})",
+                    DocChunk.ID_SEQUENCE, maxId, restartWith);
+        } catch (RuntimeException e) {
+            logger.warn("Could not check {} against max chunk id {}; if chunk inserts fail with duplicate keys, "
+                    + "restart the sequence above it manually: {}", DocChunk.ID_SEQUENCE, maxId, e.getMessage());
+        }
+    }
+}
@@ -1,196 +1,366 @@
 package com.example.demo.domain.rag.service;
 
+import com.example.demo.domain.rag.dto.IngestionJobStatus;
+import com.example.demo.domain.rag.dto.IngestionStatus;
 import com.example.demo.domain.rag.entity.DocChunk;
+import com.example.demo.domain.rag.entity.DocManifest;
+import com.example.demo.domain.rag.entity.IngestionJob;
+import com.example.demo.domain.rag.repository.ChunkReuseView;
 import com.example.demo.domain.rag.repository.DocChunkRepository;
+import com.example.demo.domain.rag.repository.DocManifestRepository;
 import com.example.demo.infra.embedding.EmbeddingService;
-import com.example.demo.infra.pdf.PdfTextExtractor;
 import com.example.demo.infra.pdf.TextChunker;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
-
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * rag.docs.dir 문서를 manifest와 비교해 새로 추가/변경된 문서만 수집하고 삭제된 문서를 정리
+ *
+ * 기동 시 수집은 ApplicationReadyEvent 이후 DocumentWatchService의 백그라운드 스레드에서 실행되므로
+ * 애플리케이션은 수집이 끝나기 전에 요청을 받는다. 문서는 저장이 끝나는 대로 인덱스에 공개된다.
+ */
 @Service
 @RequiredArgsConstructor
-public class DocumentIngestionService implements CommandLineRunner {
+public class DocumentIngestionService {
 
     private static final Logger logger = LoggerFactory.getLogger(DocumentIngestionService.class);
 
-    @Value("${rag.enabled:true}")
-    private boolean ragEnabled;
+    private static final int DELETE_BATCH_SIZE = 500;
 
     @Value("${rag.docs.dir:docs}")
     private String docsDirectory;
 
-    private final PdfTextExtractor pdfTextExtractor;
-    private final TextChunker textChunker;
-    private final EmbeddingService embeddingService;
+    private final IngestionPipeline ingestionPipeline;
     private final VectorSearchService vectorSearchService;
     private final DocChunkRepository docChunkRepository;
+    private final DocManifestRepository docManifestRepository;
+    private final ChunkCache chunkCache;
+    private final EmbeddingService embeddingService;
+    private final TextChunker textChunker;
+    private final IngestionJobService ingestionJobService;
+
+    // Boot ingestion and watcher rescans never overlap
+    private final ReentrantLock ingestLock = new ReentrantLock();
+
+    // Set once the first scan after startup has finished, successfully or not
+    private volatile boolean initialScanComplete;
+    private volatile LocalDateTime lastScanAt;
+
+    /**
+     * Bring the stored chunks and the index in line with the documents directory
+     *
+     * @return Pipeline result, or null when the directory does not exist
+     */
+    public IngestionPipeline.Result ingest() throws InterruptedException {
+        ingestLock.lockInterruptibly();
+        try {
+            return ingestDirectory();
+        } finally {
+            lastScanAt = LocalDateTime.now();
+            initialScanComplete = true;
+            ingestLock.unlock();
+        }
+    }
 
-    @Override
-    public void run(String... args) throws Exception {
-        if (!ragEnabled) {
-            logger.info("RAG is disabled, skipping document ingestion");
-            return;
+    public boolean isIngesting() {
+        return ingestLock.isLocked();
+    }
+
+    /**
+     * 기동 후 첫 수집이 끝났는지 (끝나기 전에는 인덱스가 일부 문서만 담고 있을 수 있다)
+     */
+    public boolean isInitialScanComplete() {
+        return initialScanComplete;
+    }
+
+    public LocalDateTime getLastScanAt() {
+        return lastScanAt;
+    }
+
+    public String getDocsDirectory() {
+        return docsDirectory;
+    }
+
+    /**
+     * 문서별 수집 작업 진행률과 현재 실행 중인 파이프라인 상태
+     */
+    public IngestionStatus getStatus() {
+        List<IngestionJobStatus> jobs = ingestionJobService.getJobs();
+        Map<String, Long> jobsByState = new TreeMap<>();
+        for (IngestionJobStatus job : jobs) {
+            jobsByState.merge(job.getState(), 1L, Long::sum);
         }
+        return new IngestionStatus(isIngesting(), ingestionPipeline.getPendingDocuments(),
+                ingestionPipeline.getQueuedItems(), jobsByState, jobs);
+    }
 
+    private IngestionPipeline.Result ingestDirectory() throws InterruptedException {
         logger.info("Starting document ingestion from directory: {}", docsDirectory);
 
         File docsDir = new File(docsDirectory);
         if (!docsDir.exists() || !docsDir.isDirectory()) {
             logger.warn("Documents directory does not exist: {}", docsDirectory);
-            return;
+            return null;
         }
 
-        // Process PDF files
-        File[] pdfFiles = docsDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".pdf"));
-        AtomicInteger totalChunks = new AtomicInteger(0);
-        AtomicInteger processedFiles = new AtomicInteger(0);
-
-        if (pdfFiles != null && pdfFiles.length > 0) {
-            for (File pdfFile : pdfFiles) {
-                try {
-                    logger.info("Processing PDF: {}", pdfFile.getName());
-                    processPdfFile(pdfFile, totalChunks);
-                    processedFiles.incrementAndGet();
-                } catch (Exception e) {
-                    logger.error("Failed to process PDF: {}", pdfFile.getName(), e);
-                }
-            }
+        // Jobs still running belong to a previous process; this scan resumes them
+        ingestionJobService.markInterrupted();
+        // Their staged chunk slices were never published; the checkpoints keep the embeddings
+        int abandoned = docChunkRepository.deleteAllStaged();
+        if (abandoned > 0) {
+            logger.info("Deleted {} staged chunks left by an interrupted ingestion", abandoned);
         }
 
-        // Process Markdown files
-        File[] mdFiles = docsDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".md"));
-        if (mdFiles != null && mdFiles.length > 0) {
-            for (File mdFile : mdFiles) {
-                try {
-                    logger.info("Processing Markdown: {}", mdFile.getName());
-                    processMarkdownFile(mdFile, totalChunks);
-                    processedFiles.incrementAndGet();
-                } catch (Exception e) {
-                    logger.error("Failed to process Markdown: {}", mdFile.getName(), e);
-                }
-            }
+        // Discover PDF and Markdown files
+        File[] docFiles = docsDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".pdf")
+                || name.toLowerCase().endsWith(".md"));
+        if (docFiles == null || docFiles.length == 0) {
+            logger.warn("No PDF or Markdown files found in directory: {}", docsDirectory);
+            docFiles = new File[0];
         }
 
-        if (processedFiles.get() == 0) {
-            logger.warn("No PDF or Markdown files found in directory: {}", docsDirectory);
-            return;
+        Map<String, DocManifest> manifests = new HashMap<>();
+        for (DocManifest manifest : docManifestRepository.findAll()) {
+            manifests.put(manifest.getRelativePath(), manifest);
         }
 
-        logger.info("Document ingestion completed. Processed {} files, created {} chunks",
-                processedFiles.get(), totalChunks.get());
-    }
+        // Compare every file with its manifest; only new or changed files are ingested
+        String chunkerSettings = textChunker.settingsKey();
+        String embeddingModel = embeddingService.getModelName();
+        Map<IngestionPipeline.Document, Plan> plans = new ConcurrentHashMap<>();
+        List<IngestionPipeline.Document> pending = new ArrayList<>();
+        int unchanged = 0;
+
+        for (File docFile : docFiles) {
+            try {
+                String relativePath = docsDir.toPath().relativize(docFile.toPath()).toString().replace('\\', '/');
+                Plan plan = plan(docFile, relativePath, manifests.remove(relativePath), chunkerSettings,
+                        embeddingModel);
+                if (plan == null) {
+                    unchanged++;
+                    continue;
+                }
 
-    private void processPdfFile(File pdfFile, AtomicInteger totalChunks) {
-        String sourcePath = pdfFile.getAbsolutePath();
+                IngestionPipeline.Document document = new IngestionPipeline.Document(docFile,
+                        plan.reusableEmbeddings);
+                plans.put(document, plan);
+                pending.add(document);
+            } catch (Exception e) {
+                logger.error("Failed to check document: {}", docFile.getName(), e);
+            }
+        }
 
-        // Check if this file is already processed
-        List<DocChunk> existingChunks = docChunkRepository.findBySourcePath(sourcePath);
-        if (!existingChunks.isEmpty()) {
-            logger.debug("PDF already processed: {} ({} chunks)", pdfFile.getName(), existingChunks.size());
-            return;
+        // Documents that disappeared from the directory
+        int removedChunks = 0;
+        for (DocManifest manifest : manifests.values()) {
+            List<Long> chunkIds = docChunkRepository.findIdsBySourcePath(manifest.getSourcePath());
+            removeChunks(chunkIds);
+            docManifestRepository.delete(manifest);
+            ingestionJobService.remove(manifest.getRelativePath());
+            removedChunks += chunkIds.size();
+            logger.info("Removed deleted document: {} ({} chunks)", manifest.getRelativePath(), chunkIds.size());
         }
 
-        // Extract text from PDF
-        List<PdfTextExtractor.PageText> pages = pdfTextExtractor.extractTextFromPdf(pdfFile);
+        IngestionPipeline.Result result = ingestionPipeline.ingest(pending, new IngestionPipeline.DocumentListener() {
+            @Override
+            public void stored(IngestionPipeline.Document document) {
+                store(document, plans.get(document), chunkerSettings, embeddingModel);
+            }
 
-        int fileChunkCount = 0;
-        for (PdfTextExtractor.PageText page : pages) {
-            // Chunk the text
-            List<TextChunker.TextChunk> chunks = textChunker.chunkText(
-                    page.getText(), sourcePath, page.getPageNumber());
+            @Override
+            public void pageEmbedded(IngestionPipeline.Document document, IngestionPipeline.PageEmbeddings page) {
+                ingestionJobService.checkpoint(plans.get(document).job.getId(), page);
+            }
 
-            // Process each chunk
-            for (TextChunker.TextChunk chunk : chunks) {
-                try {
-                    // Generate embedding
-                    float[] embedding = embeddingService.generateEmbedding(chunk.getText());
+            @Override
+            public void completed(IngestionPipeline.Document document) {
+                publish(document, plans.get(document));
+            }
+        });
 
-                    // Create DocChunk entity
-                    DocChunk docChunk = new DocChunk();
-                    docChunk.setSourcePath(chunk.getSourcePath());
-                    docChunk.setPageNo(chunk.getPageNumber());
-                    docChunk.setChunkIndex(chunk.getChunkIndex());
-                    docChunk.setText(chunk.getText());
-                    docChunk.setEmbeddingFromArray(embedding);
+        logger.info("Document ingestion completed. Processed {} files, created {} chunks ({} failed, "
+                + "{} embeddings reused); {} unchanged, {} deleted",
+                result.getFiles(), result.getChunks(), result.getFailedChunks(), result.getReusedEmbeddings(),
+                unchanged, manifests.size());
 
-                    // Save to database
-                    DocChunk savedChunk = docChunkRepository.save(docChunk);
+        if (result.getChunks() > 0 || removedChunks > 0) {
+            vectorSearchService.saveSnapshot();
+        }
+        return result;
+    }
 
-                    // Add to in-memory index
-                    vectorSearchService.addEmbedding(savedChunk.getId(), embedding);
+    /**
+     * Decide whether the file needs ingesting
+     *
+     * @return Ingestion plan, or null when the stored chunks are still current
+     */
+    private Plan plan(File docFile, String relativePath, DocManifest manifest, String chunkerSettings,
+            String embeddingModel) throws IOException {
+        String sourcePath = docFile.getAbsolutePath();
+        long size = docFile.length();
+        long lastModified = docFile.lastModified();
+
+        boolean sameSettings = manifest != null
+                && chunkerSettings.equals(manifest.getChunkerSettings())
+                && embeddingModel.equals(manifest.getEmbeddingModel());
+
+        if (sameSettings && manifest.getFileSize() == size && manifest.getLastModified() == lastModified) {
+            if (relocate(manifest, sourcePath)) {
+                docManifestRepository.save(manifest);
+            }
+            logger.debug("Document unchanged: {}", relativePath);
+            return null;
+        }
 
-                    fileChunkCount++;
-                    totalChunks.incrementAndGet();
+        String contentHash = ContentHashes.sha256(docFile.toPath());
+        if (sameSettings && contentHash.equals(manifest.getContentHash())) {
+            // Touched but identical: remember the new size/mtime so the hash is skipped next time
+            manifest.setFileSize(size);
+            manifest.setLastModified(lastModified);
+            relocate(manifest, sourcePath);
+            docManifestRepository.save(manifest);
+            logger.debug("Document unchanged (same content hash): {}", relativePath);
+            return null;
+        }
 
-                } catch (Exception e) {
-                    logger.error("Failed to process chunk from {} page {}",
-                            pdfFile.getName(), page.getPageNumber(), e);
+        // Everything stored under the old or the current path is replaced once the new chunks are in
+        Set<String> oldPaths = new LinkedHashSet<>();
+        oldPaths.add(sourcePath);
+        if (manifest != null) {
+            oldPaths.add(manifest.getSourcePath());
+        }
+        List<Long> oldChunkIds = new ArrayList<>();
+        Map<String, float[]> reusableEmbeddings = new HashMap<>();
+        for (String oldPath : oldPaths) {
+            oldChunkIds.addAll(docChunkRepository.findIdsBySourcePath(oldPath));
+            if (manifest != null && embeddingModel.equals(manifest.getEmbeddingModel())) {
+                for (ChunkReuseView row : docChunkRepository.findReusableEmbeddings(oldPath)) {
+                    float[] embedding = DocChunk.decodeEmbedding(row.getEmbeddingBlob(), row.getEmbeddingJson());
+                    if (embedding.length > 0) {
+                        reusableEmbeddings.put(row.getTextHash(), embedding);
+                    }
                 }
             }
         }
 
-        logger.info("Processed PDF: {} ({} chunks)", pdfFile.getName(), fileChunkCount);
-    }
-
-    private void processMarkdownFile(File mdFile, AtomicInteger totalChunks) {
-        String sourcePath = mdFile.getAbsolutePath();
-
-        // Check if this file is already processed
-        List<DocChunk> existingChunks = docChunkRepository.findBySourcePath(sourcePath);
-        if (!existingChunks.isEmpty()) {
-            logger.debug("Markdown already processed: {} ({} chunks)", mdFile.getName(), existingChunks.size());
-            return;
+        if (manifest == null) {
+            manifest = new DocManifest();
+            manifest.setRelativePath(relativePath);
         }
 
-        try {
-            // Read markdown file content
-            String content = new String(java.nio.file.Files.readAllBytes(mdFile.toPath()), "UTF-8");
-
-            // Chunk the text (treat as single page)
-            List<TextChunker.TextChunk> chunks = textChunker.chunkText(content, sourcePath, 1);
-
-            int fileChunkCount = 0;
-            for (TextChunker.TextChunk chunk : chunks) {
-                try {
-                    // Generate embedding
-                    float[] embedding = embeddingService.generateEmbedding(chunk.getText());
-
-                    // Create DocChunk entity
-                    DocChunk docChunk = new DocChunk();
-                    docChunk.setSourcePath(chunk.getSourcePath());
-                    docChunk.setPageNo(chunk.getPageNumber());
-                    docChunk.setChunkIndex(chunk.getChunkIndex());
-                    docChunk.setText(chunk.getText());
-                    docChunk.setEmbeddingFromArray(embedding);
+        // An interrupted or failed attempt on the same content left embeddings per finished page
+        IngestionJob job = ingestionJobService.start(relativePath, sourcePath, contentHash, chunkerSettings,
+                embeddingModel);
+        if (job.getAttempts() > 1) {
+            Map<String, float[]> checkpointed = ingestionJobService.findCheckpointEmbeddings(job.getId());
+            reusableEmbeddings.putAll(checkpointed);
+            logger.info("Resuming {} (attempt {}): {} checkpointed embeddings", relativePath, job.getAttempts(),
+                    checkpointed.size());
+        }
+        logger.info("Document {}: {} ({} existing chunks, {} reusable embeddings)",
+                manifest.getId() == null ? "new" : "changed", relativePath, oldChunkIds.size(),
+                reusableEmbeddings.size());
+
+        Plan plan = new Plan();
+        plan.manifest = manifest;
+        plan.job = job;
+        plan.contentHash = contentHash;
+        plan.fileSize = size;
+        plan.lastModified = lastModified;
+        plan.oldChunkIds = oldChunkIds;
+        plan.reusableEmbeddings = reusableEmbeddings;
+        return plan;
+    }
 
-                    // Save to database
-                    DocChunk savedChunk = docChunkRepository.save(docChunk);
+    /**
+     * Keep chunk source paths in line when the docs directory moved
+     *
+     * @return true if the manifest changed
+     */
+    private boolean relocate(DocManifest manifest, String sourcePath) {
+        if (sourcePath.equals(manifest.getSourcePath())) {
+            return false;
+        }
+        int updated = docChunkRepository.updateSourcePath(manifest.getSourcePath(), sourcePath);
+        logger.info("Document moved: {} -> {} ({} chunks)", manifest.getSourcePath(), sourcePath, updated);
+        manifest.setSourcePath(sourcePath);
+        return true;
+    }
 
-                    // Add to in-memory index
-                    vectorSearchService.addEmbedding(savedChunk.getId(), embedding);
+    /**
+     * Runs in the document's transaction, after its new chunks are written:
+     * the old rows and the manifest change commit together with them
+     */
+    private void store(IngestionPipeline.Document document, Plan plan, String chunkerSettings,
+            String embeddingModel) {
+        deleteChunkRows(plan.oldChunkIds);
+
+        DocManifest manifest = plan.manifest;
+        manifest.setSourcePath(document.getSourcePath());
+        manifest.setContentHash(plan.contentHash);
+        manifest.setFileSize(plan.fileSize);
+        manifest.setLastModified(plan.lastModified);
+        manifest.setChunkerSettings(chunkerSettings);
+        manifest.setEmbeddingModel(embeddingModel);
+        manifest.setChunkCount(document.getStoredChunks());
+        docManifestRepository.save(manifest);
+        ingestionJobService.complete(plan.job.getId(), document.getStoredChunks());
+    }
 
-                    fileChunkCount++;
-                    totalChunks.incrementAndGet();
+    private void publish(IngestionPipeline.Document document, Plan plan) {
+        if (document.isFailed()) {
+            // Nothing was written; the previous chunks and manifest stay, so the retry rescan picks the file up
+            ingestionJobService.fail(plan.job.getId(), document);
+            logger.warn("Document {} not fully ingested; a retry rescan will be scheduled",
+                    document.getFile().getName());
+            return;
+        }
 
-                } catch (Exception e) {
-                    logger.error("Failed to process chunk from {}", mdFile.getName(), e);
-                }
-            }
+        // Swap the document's chunks in the index in one step
+        vectorSearchService.replaceEmbeddings(plan.oldChunkIds, document.getChunkIds(), document.getEmbeddings());
+        chunkCache.evictAll(plan.oldChunkIds);
+    }
 
-            logger.info("Processed Markdown: {} ({} chunks)", mdFile.getName(), fileChunkCount);
+    private void removeChunks(List<Long> chunkIds) {
+        vectorSearchService.removeEmbeddings(chunkIds);
+        deleteChunkRows(chunkIds);
+        chunkCache.evictAll(chunkIds);
+    }
 
-        } catch (Exception e) {
-            logger.error("Failed to read Markdown file: {}", mdFile.getName(), e);
+    private void deleteChunkRows(List<Long> chunkIds) {
+        if (chunkIds.isEmpty()) {
+            return;
+        }
+        for (int from = 0; from < chunkIds.size(); from += DELETE_BATCH_SIZE) {
+            docChunkRepository.deleteAllByIdInBatch(
+                    chunkIds.subList(from, Math.min(from + DELETE_BATCH_SIZE, chunkIds.size())));
         }
     }
+
+    private static class Plan {
+        private DocManifest manifest;
+        private IngestionJob job;
+        private String contentHash;
+        private long fileSize;
+        private long lastModified;
+        private List<Long> oldChunkIds;
+        private Map<String, float[]> reusableEmbeddings;
+    }
 }
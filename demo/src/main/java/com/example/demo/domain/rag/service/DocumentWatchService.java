@@ -0,0 +1,272 @@
+package com.example.demo.domain.rag.service;
+
+import com.example.demo.domain.rag.dto.IngestionQueueStatus;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * rag.docs.dir 초기 수집, 변경 감시 및 백그라운드 재수집
+ *
+ * 기동 시 수집은 ApplicationReadyEvent 이후 재수집 스레드에서 실행되어 애플리케이션 준비를
+ * 막지 않는다. WatchService 이벤트(생성/수정/삭제)를 debounce 후 한 번의 재수집으로 묶는다.
+ * WatchService를 쓸 수 없거나 polling 모드면 주기적으로 재수집한다. 재수집은
+ * manifest 비교로 변경된 문서만 처리하므로 변경이 없으면 파일 메타데이터만 확인한다.
+ * 재수집 후 실패한 문서가 남아 있으면 (예: 기동 중 Ollama가 아직 준비되지 않음) 감시 모드와 관계없이
+ * rag.ingest.retry.initialMs부터 두 배씩 (최대 maxMs) 늘려가며 재수집을 다시 예약한다.
+ */
+@Service
+@RequiredArgsConstructor
+public class DocumentWatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentWatchService.class);
+
+    private final DocumentIngestionService documentIngestionService;
+    private final IngestionPipeline ingestionPipeline;
+    private final IngestionJobService ingestionJobService;
+
+    @Value("${rag.enabled:true}")
+    private boolean ragEnabled;
+
+    @Value("${rag.watch.enabled:false}")
+    private boolean watchEnabled;
+
+    // Force periodic rescans instead of file system events
+    @Value("${rag.watch.polling:false}")
+    private boolean forcePolling;
+
+    // Quiet period after the last event before a rescan starts
+    @Value("${rag.watch.debounceMs:2000}")
+    private long debounceMs;
+
+    @Value("${rag.watch.pollIntervalMs:30000}")
+    private long pollIntervalMs;
+
+    // Backoff for rescans while failed documents remain
+    @Value("${rag.ingest.retry.initialMs:30000}")
+    private long retryInitialMs;
+
+    @Value("${rag.ingest.retry.maxMs:600000}")
+    private long retryMaxMs;
+
+    private ScheduledExecutorService scheduler;
+    private WatchService watchService;
+    private Thread watchThread;
+    private ScheduledFuture<?> pendingRescan;
+    private final AtomicBoolean rescanRequested = new AtomicBoolean(false);
+    private long retryDelayMs;
+
+    // disabled, manual (admin rescans only), watch or polling
+    private volatile String mode = "disabled";
+    private volatile LocalDateTime lastRescanAt;
+    private volatile IngestionPipeline.Result lastResult;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!ragEnabled) {
+            logger.info("RAG is disabled, skipping document ingestion");
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "docs-rescan");
+            thread.setDaemon(true);
+            return thread;
+        });
+        mode = "manual";
+
+        // Initial ingestion runs in the background; queries use whatever has been published so far
+        logger.info("Starting background document ingestion");
+        requestRescan(0);
+
+        if (!watchEnabled) {
+            return;
+        }
+
+        Path docsDir = Paths.get(documentIngestionService.getDocsDirectory()).toAbsolutePath();
+        if (!forcePolling) {
+            try {
+                watchService = FileSystems.getDefault().newWatchService();
+                docsDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                WatchService service = watchService;
+                watchThread = new Thread(() -> watch(service), "docs-watcher");
+                watchThread.setDaemon(true);
+                watchThread.start();
+                mode = "watch";
+                logger.info("Watching {} for document changes (debounce {} ms)", docsDir, debounceMs);
+                return;
+            } catch (IOException | UnsupportedOperationException e) {
+                logger.warn("File system watch unavailable for {} ({}), falling back to polling", docsDir,
+                        e.getMessage());
+                closeWatchService();
+            }
+        }
+
+        scheduler.scheduleWithFixedDelay(this::rescan, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        mode = "polling";
+        logger.info("Polling {} for document changes every {} ms", docsDir, pollIntervalMs);
+    }
+
+    /**
+     * 재수집 요청 (debounce 적용). 이미 대기 중인 요청이 있으면 합쳐진다.
+     *
+     * @return false when RAG is disabled or the service has stopped
+     */
+    public synchronized boolean requestRescan(long delayMs) {
+        if (scheduler == null || scheduler.isShutdown()) {
+            return false;
+        }
+        if (pendingRescan != null) {
+            pendingRescan.cancel(false);
+        }
+        rescanRequested.set(true);
+        pendingRescan = scheduler.schedule(this::rescan, delayMs, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    public IngestionQueueStatus getStatus() {
+        IngestionPipeline.Result result = lastResult;
+        return new IngestionQueueStatus(
+                mode,
+                documentIngestionService.isIngesting(),
+                rescanRequested.get(),
+                ingestionPipeline.getPendingDocuments(),
+                ingestionPipeline.getQueuedItems(),
+                lastRescanAt,
+                result != null ? result.getFiles() : 0,
+                result != null ? result.getChunks() : 0,
+                result != null ? result.getFailedChunks() : 0);
+    }
+
+    private void watch(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean relevant = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        relevant = true;
+                        continue;
+                    }
+                    String name = event.context().toString().toLowerCase();
+                    if (name.endsWith(".pdf") || name.endsWith(".md")) {
+                        logger.debug("Document {}: {}", event.kind().name(), event.context());
+                        relevant = true;
+                    }
+                }
+                if (relevant) {
+                    requestRescan(debounceMs);
+                }
+                if (!key.reset()) {
+                    logger.warn("Documents directory is no longer watchable; switching to polling");
+                    synchronized (this) {
+                        mode = "polling";
+                        scheduler.scheduleWithFixedDelay(this::rescan, pollIntervalMs, pollIntervalMs,
+                                TimeUnit.MILLISECONDS);
+                    }
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Shutting down
+        }
+    }
+
+    private void rescan() {
+        rescanRequested.set(false);
+        try {
+            IngestionPipeline.Result result = documentIngestionService.ingest();
+            lastRescanAt = LocalDateTime.now();
+            if (result != null) {
+                lastResult = result;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (RuntimeException e) {
+            logger.error("Document rescan failed", e);
+        }
+        scheduleRetry();
+    }
+
+    /**
+     * 실패한 문서가 남아 있으면 backoff 후 재수집 예약 (이미 예약된 재수집이 있으면 그대로 둔다)
+     */
+    private void scheduleRetry() {
+        long failed;
+        try {
+            failed = ingestionJobService.countFailed();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to count failed ingestion jobs: {}", e.getMessage());
+            return;
+        }
+
+        synchronized (this) {
+            if (failed == 0) {
+                retryDelayMs = 0;
+                return;
+            }
+            if (rescanRequested.get()) {
+                return;
+            }
+            retryDelayMs = retryDelayMs == 0
+                    ? Math.max(retryInitialMs, 1000)
+                    : Math.min(retryDelayMs * 2, Math.max(retryMaxMs, retryInitialMs));
+            logger.info("{} documents failed to ingest, retrying in {} s", failed, retryDelayMs / 1000);
+            requestRescan(retryDelayMs);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (watchThread != null) {
+            watchThread.interrupt();
+        }
+        closeWatchService();
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            try {
+                // Let an interrupted scan unwind before the data source closes
+                if (!scheduler.awaitTermination(10, TimeUnit.SECONDS)) {
+                    logger.warn("Document ingestion did not stop within 10 s");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void closeWatchService() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close watch service: {}", e.getMessage());
+            }
+            watchService = null;
+        }
+    }
+}
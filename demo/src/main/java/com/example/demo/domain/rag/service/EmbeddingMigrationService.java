@@ -0,0 +1,67 @@
+package com.example.demo.domain.rag.service;
+
+import com.example.demo.domain.rag.entity.DocChunk;
+import com.example.demo.domain.rag.repository.DocChunkRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One-time migration of legacy JSON embeddings (doc_chunks.embedding) to the
+ * binary column (doc_chunks.embedding_bin). Runs before document ingestion and
+ * is a no-op once every row has been converted.
+ */
+@Service
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class EmbeddingMigrationService implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingMigrationService.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    private final DocChunkRepository docChunkRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public void run(String... args) {
+        long lastId = 0L;
+        AtomicInteger migrated = new AtomicInteger(0);
+
+        while (true) {
+            Long afterId = lastId;
+            // One transaction per batch so a crash only repeats the current batch
+            List<DocChunk> batch = transactionTemplate.execute(status -> {
+                List<DocChunk> chunks = docChunkRepository.findLegacyJsonEmbeddings(
+                        afterId, PageRequest.of(0, BATCH_SIZE));
+                for (DocChunk chunk : chunks) {
+                    float[] embedding = chunk.getEmbeddingAsArray();
+                    if (embedding.length > 0) { // Leave unparsable JSON untouched
+                        chunk.setEmbeddingFromArray(embedding);
+                        migrated.incrementAndGet();
+                    }
+                }
+                return chunks;
+            });
+
+            if (batch == null || batch.isEmpty()) {
+                break;
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+
+        if (migrated.get() > 0) {
+            logger.info("Migrated {} JSON embeddings to binary storage", migrated.get());
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.demo.domain.rag.service;
+
+import com.example.demo.domain.rag.dto.IngestionJobStatus;
+import com.example.demo.domain.rag.entity.IngestionCheckpoint;
+import com.example.demo.domain.rag.entity.IngestionJob;
+import com.example.demo.domain.rag.repository.IngestionCheckpointRepository;
+import com.example.demo.domain.rag.repository.IngestionJobRepository;
+import com.example.demo.global.enums.IngestionJobState;
+import com.example.demo.infra.vector.EmbeddingCodec;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 문서별 수집 작업과 페이지 체크포인트 관리
+ *
+ * 페이지의 모든 청크가 임베딩되면 진행률만 바로 기록하고, 새로 계산한 임베딩은 메모리에 모았다가
+ * {@code rag.ingest.checkpoint.pages}쪽마다, 그리고 문서가 실패할 때 체크포인트로 저장한다.
+ * 그 전에 끝난 문서는 임베딩을 청크로만 한 번 쓰므로 짧은 문서는 체크포인트 쓰기가 없고, 프로세스가
+ * 죽으면 마지막 저장 이후의 페이지만 다시 임베딩한다. 수집이 중단되거나 실패한 문서를 같은 내용/설정으로
+ * 다시 수집하면 체크포인트 임베딩을 재사용하므로, 이미 끝난 페이지는 임베딩 모델을 다시 호출하지 않는다.
+ * 문서가 저장되는 트랜잭션에서 체크포인트를 지우고 작업을 완료 처리한다.
+ *
+ * 체크포인트는 DB에 저장되므로 재시작 후 이어받기는 영속 데이터소스에서만 동작한다. 기본 설정(H2
+ * in-memory, create-drop)에서는 재시작하면 작업과 체크포인트가 함께 사라지고, 같은 프로세스 안의
+ * 재시도(감시 모드의 재스캔)만 체크포인트를 재사용한다.
+ */
+@Service
+@RequiredArgsConstructor
+public class IngestionJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestionJobService.class);
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final IngestionJobRepository ingestionJobRepository;
+    private final IngestionCheckpointRepository ingestionCheckpointRepository;
+
+    // 임베딩 체크포인트를 저장하는 페이지 간격 (0이면 진행률만 기록하고 실패할 때만 저장)
+    @Value("${rag.ingest.checkpoint.pages:16}")
+    private int checkpointPages;
+
+    // 아직 저장하지 않은 페이지 임베딩 (작업 id별)
+    private final Map<Long, List<IngestionPipeline.PageEmbeddings>> pendingPages = new ConcurrentHashMap<>();
+
+    /**
+     * 이전 프로세스가 진행 중에 종료된 작업을 중단 상태로 표시 (수집 시작 시 호출)
+     */
+    @Transactional
+    public int markInterrupted() {
+        int interrupted = ingestionJobRepository.updateState(IngestionJobState.RUNNING, IngestionJobState.INTERRUPTED);
+        if (interrupted > 0) {
+            logger.info("{} ingestion jobs were interrupted by a restart and will resume from their checkpoints",
+                    interrupted);
+        }
+        return interrupted;
+    }
+
+    /**
+     * 문서 수집 작업 시작. 같은 내용/청킹 설정/모델로 끝나지 않은 작업이 있으면 체크포인트를 유지하고,
+     * 그렇지 않으면 체크포인트를 비우고 새로 시작한다.
+     */
+    @Transactional
+    public IngestionJob start(String relativePath, String sourcePath, String contentHash, String chunkerSettings,
+            String embeddingModel) {
+        IngestionJob job = ingestionJobRepository.findByRelativePath(relativePath).orElse(null);
+        boolean resumable = job != null
+                && job.getState() != IngestionJobState.COMPLETED
+                && contentHash.equals(job.getContentHash())
+                && chunkerSettings.equals(job.getChunkerSettings())
+                && embeddingModel.equals(job.getEmbeddingModel());
+
+        if (job == null) {
+            job = new IngestionJob();
+            job.setRelativePath(relativePath);
+        } else if (!resumable) {
+            ingestionCheckpointRepository.deleteByJobId(job.getId());
+        }
+        if (job.getId() != null) {
+            pendingPages.remove(job.getId());
+        }
+        if (!resumable) {
+            job.setAttempts(0);
+            job.setErrorCount(0);
+            job.setLastError(null);
+        }
+
+        job.setSourcePath(sourcePath);
+        job.setContentHash(contentHash);
+        job.setChunkerSettings(chunkerSettings);
+        job.setEmbeddingModel(embeddingModel);
+        job.setState(IngestionJobState.RUNNING);
+        job.setAttempts(job.getAttempts() + 1);
+        // Progress is counted again per attempt; checkpointed pages complete without calling the model
+        job.setPagesCompleted(0);
+        job.setLastPageCompleted(0);
+        job.setChunksEmbedded(0);
+        job.setChunksStored(0);
+        job.setFailedChunks(0);
+        job.setStartedAt(LocalDateTime.now());
+        job.setFinishedAt(null);
+        return ingestionJobRepository.save(job);
+    }
+
+    /**
+     * 작업에 저장된 체크포인트 임베딩 (텍스트 해시 기준)
+     */
+    @Transactional(readOnly = true)
+    public Map<String, float[]> findCheckpointEmbeddings(Long jobId) {
+        Map<String, float[]> embeddings = new HashMap<>();
+        for (IngestionCheckpoint checkpoint : ingestionCheckpointRepository.findByJobId(jobId)) {
+            try {
+                embeddings.put(checkpoint.getTextHash(), EmbeddingCodec.decode(checkpoint.getEmbeddingBlob()));
+            } catch (IllegalArgumentException e) {
+                logger.debug("Skipping unreadable checkpoint {}", checkpoint.getId());
+            }
+        }
+        return embeddings;
+    }
+
+    /**
+     * 임베딩을 마친 페이지 기록 (임베딩 워커 스레드에서 호출). 진행률은 매 페이지, 임베딩은
+     * checkpointPages쪽마다 저장한다.
+     */
+    @Transactional
+    public void checkpoint(Long jobId, IngestionPipeline.PageEmbeddings page) {
+        ingestionJobRepository.addCompletedPage(jobId, page.getPageNumber(), page.getChunkCount());
+        if (page.getTextHashes().isEmpty()) {
+            return;
+        }
+
+        List<IngestionPipeline.PageEmbeddings> due = new ArrayList<>();
+        pendingPages.compute(jobId, (id, pages) -> {
+            List<IngestionPipeline.PageEmbeddings> next = pages != null ? pages : new ArrayList<>();
+            next.add(page);
+            if (checkpointPages > 0 && next.size() >= checkpointPages) {
+                due.addAll(next);
+                return null;
+            }
+            return next;
+        });
+        saveCheckpoints(jobId, due);
+    }
+
+    private void saveCheckpoints(Long jobId, List<IngestionPipeline.PageEmbeddings> pages) {
+        List<IngestionCheckpoint> rows = new ArrayList<>();
+        for (IngestionPipeline.PageEmbeddings page : pages) {
+            for (int i = 0; i < page.getTextHashes().size(); i++) {
+                IngestionCheckpoint checkpoint = new IngestionCheckpoint();
+                checkpoint.setJobId(jobId);
+                checkpoint.setPageNo(page.getPageNumber());
+                checkpoint.setTextHash(page.getTextHashes().get(i));
+                checkpoint.setEmbeddingBlob(EmbeddingCodec.encode(page.getEmbeddings().get(i)));
+                rows.add(checkpoint);
+            }
+        }
+        if (!rows.isEmpty()) {
+            ingestionCheckpointRepository.saveAll(rows);
+        }
+    }
+
+    /**
+     * 작업 완료 처리. 문서 청크를 저장하는 트랜잭션 안에서 호출되어 함께 커밋된다.
+     */
+    @Transactional
+    public void complete(Long jobId, int storedChunks) {
+        pendingPages.remove(jobId);
+        ingestionCheckpointRepository.deleteByJobId(jobId);
+        ingestionJobRepository.findById(jobId).ifPresent(job -> {
+            job.setState(IngestionJobState.COMPLETED);
+            job.setChunksStored(storedChunks);
+            job.setFailedChunks(0);
+            job.setFinishedAt(LocalDateTime.now());
+        });
+    }
+
+    /**
+     * 작업 실패 처리. 아직 저장하지 않은 페이지까지 체크포인트로 남겨 다음 수집에서 재사용한다.
+     */
+    @Transactional
+    public void fail(Long jobId, IngestionPipeline.Document document) {
+        List<IngestionPipeline.PageEmbeddings> pending = pendingPages.remove(jobId);
+        if (pending != null) {
+            saveCheckpoints(jobId, pending);
+        }
+        ingestionJobRepository.findById(jobId).ifPresent(job -> {
+            job.setState(IngestionJobState.FAILED);
+            job.setFailedChunks(document.getFailedChunks());
+            job.setErrorCount(job.getErrorCount() + Math.max(document.getErrors(), 1));
+            String error = document.getLastError();
+            job.setLastError(error != null && error.length() > MAX_ERROR_LENGTH
+                    ? error.substring(0, MAX_ERROR_LENGTH)
+                    : error);
+            job.setFinishedAt(LocalDateTime.now());
+        });
+    }
+
+    /**
+     * 디렉터리에서 사라진 문서의 작업과 체크포인트 삭제
+     */
+    @Transactional
+    public void remove(String relativePath) {
+        ingestionJobRepository.findByRelativePath(relativePath).ifPresent(job -> {
+            pendingPages.remove(job.getId());
+            ingestionCheckpointRepository.deleteByJobId(job.getId());
+            ingestionJobRepository.delete(job);
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public long countFailed() {
+        return ingestionJobRepository.countByState(IngestionJobState.FAILED);
+    }
+
+    @Transactional(readOnly = true)
+    public List<IngestionJobStatus> getJobs() {
+        List<IngestionJobStatus> jobs = new ArrayList<>();
+        for (IngestionJob job : ingestionJobRepository.findAllByOrderByRelativePathAsc()) {
+            jobs.add(IngestionJobStatus.from(job));
+        }
+        return jobs;
+    }
+}
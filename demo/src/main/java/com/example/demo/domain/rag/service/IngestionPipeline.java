@@ -0,0 +1,885 @@
+package com.example.demo.domain.rag.service;
+
+import com.example.demo.domain.rag.entity.DocChunk;
+import com.example.demo.domain.rag.repository.DocChunkRepository;
+import com.example.demo.infra.embedding.EmbeddingService;
+import com.example.demo.infra.pdf.PdfTextExtractor;
+import com.example.demo.infra.pdf.TextChunker;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 단계별 문서 수집 파이프라인: 파일 → 페이지 추출 → 청킹 → 임베딩(배치) → 저장(문서 단위)
+ *
+ * 단계마다 전용 워커 스레드와 크기 제한 큐를 두어 CPU 작업(PDFBox 파싱, 청킹)과
+ * 네트워크 작업(임베딩)이 겹쳐 실행된다. 큐가 가득 차면 앞 단계의 put이 블록되어
+ * 자연스럽게 backpressure가 걸린다. 단계별 처리량은 Micrometer
+ * (rag.ingest.stage.items, rag.ingest.stage.busy)와 실행 종료 로그로 보고한다.
+ *
+ * 임베딩된 청크는 문서마다 rag.ingest.persistBatch개씩 모이는 대로 저장 단계에서 staged
+ * 상태로 먼저 기록되고(조각마다 한 트랜잭션), 문서의 모든 청크가 준비되면 남은 청크와 함께
+ * 한 트랜잭션에서 공개된다(staged 해제, 이전 청크 삭제, manifest 갱신). 그래서 문서 하나가
+ * 붙잡는 청크 텍스트는 조각 하나 분량으로 제한되고, 저장 큐가 가득 차면 임베딩 단계가 기다린다.
+ * 인덱스 적재와 스냅샷은 staged 청크를 보지 않으므로, 중간에 실패하거나 프로세스가 죽어도
+ * 반쯤 저장된 문서가 검색되지 않는다. 실패한 문서의 staged 청크는 바로 지우고, 프로세스가
+ * 죽으며 남긴 청크는 다음 스캔이 지운다. 청크 id는 pooled 시퀀스로 미리 할당되므로 INSERT가
+ * JDBC 배치(hibernate.jdbc.batch_size)로 묶인다.
+ */
+@Service
+@RequiredArgsConstructor
+public class IngestionPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestionPipeline.class);
+
+    // Queue marker telling one worker of a stage to stop
+    private static final Object END = new Object();
+
+    private final PdfTextExtractor pdfTextExtractor;
+    private final TextChunker textChunker;
+    private final EmbeddingService embeddingService;
+    private final DocChunkRepository docChunkRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final MeterRegistry meterRegistry;
+
+    // 0 = half of the available processors (PDFBox parsing is CPU-bound)
+    @Value("${rag.ingest.extractThreads:0}")
+    private int extractThreads;
+
+    @Value("${rag.ingest.chunkThreads:1}")
+    private int chunkThreads;
+
+    @Value("${rag.ingest.embedThreads:2}")
+    private int embedThreads;
+
+    // Chunks per generateEmbeddings call
+    @Value("${rag.ingest.embedBatch:32}")
+    private int embedBatch;
+
+    // Documents written concurrently, each in its own transaction
+    @Value("${rag.ingest.persistThreads:1}")
+    private int persistThreads;
+
+    // Chunks per saveAll/flush, and per staged slice written ahead of a document's last chunk
+    @Value("${rag.ingest.persistBatch:64}")
+    private int persistBatch;
+
+    // Capacity of each inter-stage queue
+    @Value("${rag.ingest.queueCapacity:256}")
+    private int queueCapacity;
+
+    // Stages of the run in progress, for queue depth reporting
+    private volatile List<Stage<?>> activeStages = List.of();
+    private final AtomicInteger pendingDocuments = new AtomicInteger();
+
+    /**
+     * 문서 목록을 파이프라인으로 수집하고 모든 단계가 끝날 때까지 대기
+     *
+     * 저장된 청크는 인덱스에 바로 추가하지 않고 문서에 모아 두며, listener가 문서 단위로 공개한다.
+     *
+     * @param listener 문서별 저장/완료 통지 (저장 단계 워커 스레드에서 호출)
+     */
+    public Result ingest(List<Document> documents, DocumentListener listener) throws InterruptedException {
+        Result result = new Result();
+        if (documents.isEmpty()) {
+            return result;
+        }
+
+        int extractWorkers = extractThreads > 0
+                ? extractThreads
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        Stage<PersistWork> persist = new Stage<>("persist", persistThreads, 1,
+                batch -> persist(batch.get(0), result));
+        Stage<ChunkWork> embed = new Stage<>("embed", embedThreads, embedBatch,
+                batch -> embedBatch(batch, result), (batch, e) -> failUnsettled(batch, e, result));
+        Stage<PageWork> chunk = new Stage<>("chunk", chunkThreads, 1,
+                batch -> chunkPage(batch.get(0), embed));
+        Stage<Document> extract = new Stage<>("extract", extractWorkers, 1,
+                batch -> extractDocument(batch.get(0), chunk));
+
+        long started = System.nanoTime();
+        List<Stage<?>> stages = List.of(extract, chunk, embed, persist);
+        stages.forEach(Stage::start);
+        activeStages = stages;
+        try {
+            // Discovery: the calling thread feeds documents, blocking while extraction is saturated
+            for (Document document : documents) {
+                document.attach(result, listener, pendingDocuments, persist, Math.max(persistBatch, 1));
+                pendingDocuments.incrementAndGet();
+                extract.put(document);
+            }
+            for (Stage<?> stage : stages) {
+                stage.finish();
+            }
+        } finally {
+            stages.forEach(Stage::shutdown);
+            activeStages = List.of();
+        }
+
+        double seconds = Math.max((System.nanoTime() - started) / 1e9, 1e-3);
+        for (Stage<?> stage : stages) {
+            logger.info("Ingestion stage {}: {} items in {} s ({} items/s, busy {} s across {} workers)",
+                    stage.name, stage.processed.get(), String.format("%.1f", seconds),
+                    String.format("%.1f", stage.processed.get() / seconds),
+                    String.format("%.1f", stage.busyNanos.get() / 1e9), stage.workers);
+        }
+        return result;
+    }
+
+    /**
+     * Documents submitted to the running ingestion and not yet complete
+     */
+    public int getPendingDocuments() {
+        return pendingDocuments.get();
+    }
+
+    /**
+     * Items waiting in the inter-stage queues of the running ingestion
+     */
+    public int getQueuedItems() {
+        int queued = 0;
+        for (Stage<?> stage : activeStages) {
+            queued += stage.queue.size();
+        }
+        return queued;
+    }
+
+    private void extractDocument(Document doc, Stage<PageWork> chunk) throws InterruptedException {
+        try {
+            if (doc.file.getName().toLowerCase().endsWith(".pdf")) {
+                pdfTextExtractor.extractPages(doc.file, page -> {
+                    doc.retain(1);
+                    chunk.put(new PageWork(doc, page.getPageNumber(), page.getText()));
+                });
+            } else {
+                // Markdown is treated as a single page
+                String content = new String(Files.readAllBytes(doc.file.toPath()), StandardCharsets.UTF_8);
+                doc.retain(1);
+                chunk.put(new PageWork(doc, 1, content));
+            }
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            doc.failed = true;
+            doc.error(e);
+            logger.error("Failed to read document: {}", doc.file.getName(), e);
+        } finally {
+            doc.release(1);
+        }
+    }
+
+    private void chunkPage(PageWork page, Stage<ChunkWork> embed) throws InterruptedException {
+        Document doc = page.doc;
+        // References taken for chunks that never reached the embed queue
+        int unqueued = 0;
+        try {
+            List<TextChunker.TextChunk> chunks = textChunker.chunkText(page.text, doc.sourcePath, page.pageNo);
+            doc.retain(chunks.size());
+            unqueued = chunks.size();
+            doc.pageChunked(page.pageNo, chunks.size());
+            for (TextChunker.TextChunk chunk : chunks) {
+                ChunkWork work = new ChunkWork(doc, chunk, ContentHashes.sha256(chunk.asCharSequence()));
+                embed.put(work);
+                unqueued--;
+            }
+        } catch (RuntimeException e) {
+            // The page's chunks are incomplete, so the document must not be stored
+            doc.failed = true;
+            doc.error(e);
+            logger.error("Failed to chunk {} page {}", doc.file.getName(), page.pageNo, e);
+        } finally {
+            doc.release(1 + unqueued);
+        }
+    }
+
+    private void embedBatch(List<ChunkWork> batch, Result result) throws InterruptedException {
+        // Unchanged chunk text keeps the embedding it had before re-ingestion
+        List<ChunkWork> missing = new ArrayList<>(batch.size());
+        List<String> texts = new ArrayList<>(batch.size());
+        for (ChunkWork work : batch) {
+            float[] reused = work.doc.reusableEmbeddings.get(work.textHash);
+            if (reused != null) {
+                result.reusedEmbeddings.incrementAndGet();
+                work.doc.embedded(new EmbeddedChunk(work, reused, true));
+            } else {
+                missing.add(work);
+                texts.add(work.chunk.getText());
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        List<float[]> embeddings;
+        try {
+            embeddings = embeddingService.generateEmbeddings(texts);
+            if (embeddings.size() != missing.size()) {
+                throw new IllegalStateException(
+                        "Expected " + missing.size() + " embeddings, got " + embeddings.size());
+            }
+        } catch (Exception e) {
+            logger.error("Failed to embed batch of {} chunks", missing.size(), e);
+            for (ChunkWork work : missing) {
+                fail(work, e, result);
+            }
+            return;
+        }
+
+        for (int i = 0; i < missing.size(); i++) {
+            ChunkWork work = missing.get(i);
+            work.doc.embedded(new EmbeddedChunk(work, embeddings.get(i), false));
+        }
+    }
+
+    private void persist(PersistWork work, Result result) throws InterruptedException {
+        if (work.slice == null) {
+            persistDocument(work.doc, result);
+            return;
+        }
+
+        stageSlice(work.doc, work.slice, result);
+        // The slice held the last reference: commit here rather than queue behind this worker
+        if (work.doc.releaseInPlace()) {
+            persistDocument(work.doc, result);
+        }
+    }
+
+    /**
+     * Write a full slice of a document before its last chunk is embedded, in
+     * a transaction of its own and marked staged, so it is neither indexed
+     * nor counted until {@link #persistDocument} publishes it. Slices of a
+     * document that already failed are dropped.
+     */
+    private void stageSlice(Document doc, List<EmbeddedChunk> slice, Result result) {
+        if (doc.isFailed()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeChunks(doc, slice, true));
+        } catch (RuntimeException e) {
+            doc.error(e);
+            doc.failedChunks.addAndGet(slice.size());
+            result.failedChunks.addAndGet(slice.size());
+            logger.error("Failed to stage {} chunks of {}", slice.size(), doc.file.getName(), e);
+        }
+    }
+
+    /**
+     * Finish one document in a single transaction: its remaining chunks in
+     * slices of {@code persistBatch} (flushed as JDBC batches and detached
+     * again), publishing the staged slices, then the listener's own
+     * bookkeeping. A document that failed writes nothing, drops its staged
+     * slices and keeps whatever was stored before.
+     */
+    private void persistDocument(Document doc, Result result) {
+        List<EmbeddedChunk> chunks = doc.takeEmbedded();
+        int staged = doc.getStoredChunks();
+        try {
+            if (!doc.isFailed()) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    writeChunks(doc, chunks, false);
+                    docChunkRepository.publishStaged(doc.sourcePath);
+                    if (doc.listener != null) {
+                        doc.listener.stored(doc);
+                    }
+                });
+                result.chunks.addAndGet(doc.getStoredChunks());
+            } else {
+                discardStaged(doc);
+            }
+        } catch (RuntimeException e) {
+            // Rolled back: none of the ids handed out in the transaction exist, and the staged slices go too
+            int lost = staged + chunks.size();
+            discardStaged(doc);
+            doc.error(e);
+            doc.failedChunks.addAndGet(lost);
+            result.failedChunks.addAndGet(lost);
+            logger.error("Failed to store {} ({} chunks), rolled back", doc.file.getName(), lost, e);
+        }
+        doc.complete();
+    }
+
+    private void discardStaged(Document doc) {
+        if (doc.getStoredChunks() > 0) {
+            try {
+                docChunkRepository.deleteStaged(doc.sourcePath);
+            } catch (RuntimeException e) {
+                // The next scan deletes staged chunks it finds
+                logger.warn("Failed to delete staged chunks of {}: {}", doc.file.getName(), e.getMessage());
+            }
+        }
+        doc.discardStored();
+    }
+
+    private void writeChunks(Document doc, List<EmbeddedChunk> chunks, boolean staged) {
+        // Ids follow document order within a slice
+        chunks.sort(Comparator.comparingInt((EmbeddedChunk embedded) -> embedded.work.chunk.getPageNumber())
+                .thenComparingInt(embedded -> embedded.work.chunk.getChunkIndex()));
+
+        int sliceSize = Math.max(persistBatch, 1);
+        for (int from = 0; from < chunks.size(); from += sliceSize) {
+            List<EmbeddedChunk> slice = chunks.subList(from, Math.min(from + sliceSize, chunks.size()));
+            List<DocChunk> entities = new ArrayList<>(slice.size());
+            for (EmbeddedChunk embedded : slice) {
+                TextChunker.TextChunk chunk = embedded.work.chunk;
+
+                DocChunk docChunk = new DocChunk();
+                docChunk.setSourcePath(chunk.getSourcePath());
+                docChunk.setPageNo(chunk.getPageNumber());
+                docChunk.setChunkIndex(chunk.getChunkIndex());
+                docChunk.setText(chunk.getText());
+                docChunk.setTextHash(embedded.work.textHash);
+                docChunk.setEmbeddingFromArray(embedded.embedding);
+                docChunk.setStaged(staged);
+                entities.add(docChunk);
+            }
+
+            List<DocChunk> saved = docChunkRepository.saveAll(entities);
+            entityManager.flush();
+            entityManager.clear();
+            for (int i = 0; i < slice.size(); i++) {
+                doc.stored(saved.get(i).getId(), slice.get(i).embedding);
+            }
+        }
+    }
+
+    /**
+     * Fail the chunks of a batch whose handler threw before settling them, so
+     * their documents are released and end up failed instead of waiting forever.
+     */
+    private void failUnsettled(List<ChunkWork> batch, RuntimeException cause, Result result)
+            throws InterruptedException {
+        for (ChunkWork work : batch) {
+            if (!work.settled) {
+                fail(work, cause, result);
+            }
+        }
+    }
+
+    private void fail(ChunkWork work, Exception cause, Result result) throws InterruptedException {
+        work.settled = true;
+        Document doc = work.doc;
+        doc.error(cause);
+        doc.failedChunks.incrementAndGet();
+        result.failedChunks.incrementAndGet();
+        doc.pageChunkDone(work.chunk.getPageNumber(), null);
+        doc.release(1);
+    }
+
+    public static class Result {
+        private final AtomicInteger files = new AtomicInteger();
+        private final AtomicInteger chunks = new AtomicInteger();
+        private final AtomicInteger failedChunks = new AtomicInteger();
+        private final AtomicInteger reusedEmbeddings = new AtomicInteger();
+
+        public int getFiles() {
+            return files.get();
+        }
+
+        public int getChunks() {
+            return chunks.get();
+        }
+
+        public int getFailedChunks() {
+            return failedChunks.get();
+        }
+
+        public int getReusedEmbeddings() {
+            return reusedEmbeddings.get();
+        }
+    }
+
+    public interface DocumentListener {
+        /**
+         * Called inside the document's transaction after its chunks are
+         * written; throwing rolls the whole document back
+         */
+        default void stored(Document document) {
+        }
+
+        /**
+         * Called from an embed worker when every chunk of a page has its
+         * embedding; pages arrive in any order. Not called for pages with a
+         * failed chunk. Exceptions are logged and ignored.
+         */
+        default void pageEmbedded(Document document, PageEmbeddings page) {
+        }
+
+        /**
+         * Called once the document is committed, or has failed and wrote nothing
+         */
+        void completed(Document document);
+    }
+
+    private interface BatchHandler<T> {
+        void handle(List<T> batch) throws InterruptedException;
+    }
+
+    private interface FailureHandler<T> {
+        void failed(List<T> batch, RuntimeException cause) throws InterruptedException;
+    }
+
+    /**
+     * One pipeline stage: a bounded input queue drained by a fixed set of workers
+     */
+    private final class Stage<T> {
+        private final String name;
+        private final int workers;
+        private final int batchSize;
+        private final BatchHandler<T> handler;
+        // Called with a batch whose handler threw; null when the handler settles its own items
+        private final FailureHandler<T> onFailure;
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(Math.max(queueCapacity, 1));
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+        private final Counter items;
+        private final Timer busy;
+        private ExecutorService pool;
+
+        Stage(String name, int workers, int batchSize, BatchHandler<T> handler) {
+            this(name, workers, batchSize, handler, null);
+        }
+
+        Stage(String name, int workers, int batchSize, BatchHandler<T> handler, FailureHandler<T> onFailure) {
+            this.name = name;
+            this.workers = Math.max(workers, 1);
+            this.batchSize = Math.max(batchSize, 1);
+            this.handler = handler;
+            this.onFailure = onFailure;
+            this.items = Counter.builder("rag.ingest.stage.items").tag("stage", name)
+                    .description("Items completed by an ingestion stage").register(meterRegistry);
+            this.busy = Timer.builder("rag.ingest.stage.busy").tag("stage", name)
+                    .description("Time ingestion stage workers spent handling batches").register(meterRegistry);
+        }
+
+        void start() {
+            AtomicInteger threadNumber = new AtomicInteger();
+            pool = Executors.newFixedThreadPool(workers, runnable -> {
+                Thread thread = new Thread(runnable, "ingest-" + name + "-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            for (int i = 0; i < workers; i++) {
+                pool.execute(this::work);
+            }
+        }
+
+        void put(T item) throws InterruptedException {
+            queue.put(item);
+        }
+
+        /**
+         * Signal that no more input will arrive and wait for the workers to drain the queue
+         */
+        void finish() throws InterruptedException {
+            for (int i = 0; i < workers; i++) {
+                queue.put(END);
+            }
+            pool.shutdown();
+            while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.info("Waiting for ingestion stage {} ({} queued)", name, queue.size());
+            }
+        }
+
+        void shutdown() {
+            if (pool != null && !pool.isTerminated()) {
+                pool.shutdownNow();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void work() {
+            List<Object> drained = new ArrayList<>(batchSize);
+            try {
+                while (true) {
+                    drained.clear();
+                    drained.add(queue.take());
+                    if (batchSize > 1) {
+                        queue.drainTo(drained, batchSize - 1);
+                    }
+
+                    // An END drained with the batch belongs to this worker; extra ones go back
+                    int ends = 0;
+                    List<T> batch = new ArrayList<>(drained.size());
+                    for (Object item : drained) {
+                        if (item == END) {
+                            ends++;
+                        } else {
+                            batch.add((T) item);
+                        }
+                    }
+
+                    if (!batch.isEmpty()) {
+                        long started = System.nanoTime();
+                        try {
+                            handler.handle(batch);
+                        } catch (RuntimeException e) {
+                            logger.error("Ingestion stage {} failed on a batch of {} items", name, batch.size(), e);
+                            if (onFailure != null) {
+                                onFailure.failed(batch, e);
+                            }
+                        }
+                        long elapsed = System.nanoTime() - started;
+                        busyNanos.addAndGet(elapsed);
+                        busy.record(elapsed, TimeUnit.NANOSECONDS);
+                        processed.addAndGet(batch.size());
+                        items.increment(batch.size());
+                    }
+
+                    if (ends > 0) {
+                        for (int i = 1; i < ends; i++) {
+                            queue.put(END);
+                        }
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Embeddings of one fully embedded page, for checkpointing. Only the
+     * embeddings computed in this run are listed; reused ones are counted.
+     */
+    public static class PageEmbeddings {
+        private final int pageNumber;
+        private final int chunkCount;
+        private final List<String> textHashes;
+        private final List<float[]> embeddings;
+
+        PageEmbeddings(int pageNumber, int chunkCount, List<String> textHashes, List<float[]> embeddings) {
+            this.pageNumber = pageNumber;
+            this.chunkCount = chunkCount;
+            this.textHashes = textHashes;
+            this.embeddings = embeddings;
+        }
+
+        public int getPageNumber() {
+            return pageNumber;
+        }
+
+        public int getChunkCount() {
+            return chunkCount;
+        }
+
+        /**
+         * Text hashes of the newly embedded chunks, parallel to {@link #getEmbeddings()}
+         */
+        public List<String> getTextHashes() {
+            return textHashes;
+        }
+
+        public List<float[]> getEmbeddings() {
+            return embeddings;
+        }
+    }
+
+    /**
+     * One file to ingest. Tracks a reference count: one for extraction, one per
+     * queued page, one per chunk in flight and one per staged slice not yet
+     * written; when it reaches zero the document is handed to the persist
+     * stage to be finished. Embedded chunks are buffered until
+     * {@code sliceSize} of them are ready, then passed on as a staged slice;
+     * only ids and embeddings, needed to publish the document to the index,
+     * are kept for the whole document.
+     */
+    public static class Document {
+        private final File file;
+        private final String sourcePath;
+        private final Map<String, float[]> reusableEmbeddings;
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private final List<Long> chunkIds = new ArrayList<>();
+        private final List<float[]> embeddings = new ArrayList<>();
+        private List<EmbeddedChunk> embedded = new ArrayList<>();
+        private final Map<Integer, PageProgress> pages = new ConcurrentHashMap<>();
+        private final AtomicInteger failedChunks = new AtomicInteger();
+        private final AtomicInteger errors = new AtomicInteger();
+        private volatile String lastError;
+        private volatile boolean failed;
+        private Result result;
+        private DocumentListener listener;
+        private AtomicInteger pendingDocuments;
+        private Stage<PersistWork> persist;
+        private int sliceSize;
+
+        /**
+         * @param reusableEmbeddings Embeddings by chunk text hash that may be reused
+         */
+        public Document(File file, Map<String, float[]> reusableEmbeddings) {
+            this.file = file;
+            this.sourcePath = file.getAbsolutePath();
+            this.reusableEmbeddings = reusableEmbeddings;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public String getSourcePath() {
+            return sourcePath;
+        }
+
+        public synchronized int getStoredChunks() {
+            return chunkIds.size();
+        }
+
+        /**
+         * Ids of the stored chunks, parallel to {@link #getEmbeddings()}
+         */
+        public synchronized List<Long> getChunkIds() {
+            return new ArrayList<>(chunkIds);
+        }
+
+        public synchronized List<float[]> getEmbeddings() {
+            return new ArrayList<>(embeddings);
+        }
+
+        public int getFailedChunks() {
+            return failedChunks.get();
+        }
+
+        /**
+         * Read, embedding and store failures in this run
+         */
+        public int getErrors() {
+            return errors.get();
+        }
+
+        public String getLastError() {
+            return lastError;
+        }
+
+        /**
+         * The file could not be read, or some of its chunks were not stored
+         */
+        public boolean isFailed() {
+            return failed || failedChunks.get() > 0;
+        }
+
+        void attach(Result result, DocumentListener listener, AtomicInteger pendingDocuments,
+                Stage<PersistWork> persist, int sliceSize) {
+            this.result = result;
+            this.listener = listener;
+            this.pendingDocuments = pendingDocuments;
+            this.persist = persist;
+            this.sliceSize = sliceSize;
+        }
+
+        void embedded(EmbeddedChunk chunk) throws InterruptedException {
+            chunk.work.settled = true;
+            List<EmbeddedChunk> slice = null;
+            synchronized (this) {
+                embedded.add(chunk);
+                if (embedded.size() >= sliceSize) {
+                    slice = embedded;
+                    embedded = new ArrayList<>();
+                }
+            }
+            pageChunkDone(chunk.work.chunk.getPageNumber(), chunk);
+            if (slice != null) {
+                // Blocks while the persist queue is full, holding the embed stage back
+                retain(1);
+                persist.put(new PersistWork(this, slice));
+            }
+            release(1);
+        }
+
+        void pageChunked(int pageNo, int chunks) {
+            if (chunks > 0) {
+                pages.put(pageNo, new PageProgress(chunks));
+            }
+        }
+
+        /**
+         * Count one chunk of the page as done; {@code chunk} is null when it failed
+         */
+        void pageChunkDone(int pageNo, EmbeddedChunk chunk) {
+            PageProgress page = pages.get(pageNo);
+            if (page == null || !page.done(chunk)) {
+                return;
+            }
+            pages.remove(pageNo);
+            if (page.failed || listener == null) {
+                return;
+            }
+            try {
+                listener.pageEmbedded(this, page.toEmbeddings(pageNo));
+            } catch (RuntimeException e) {
+                logger.warn("Checkpoint of {} page {} failed", file.getName(), pageNo, e);
+            }
+        }
+
+        void error(Exception cause) {
+            errors.incrementAndGet();
+            lastError = cause.toString();
+        }
+
+        synchronized List<EmbeddedChunk> takeEmbedded() {
+            List<EmbeddedChunk> chunks = embedded;
+            embedded = new ArrayList<>();
+            return chunks;
+        }
+
+        synchronized void stored(Long chunkId, float[] embedding) {
+            chunkIds.add(chunkId);
+            embeddings.add(embedding);
+        }
+
+        // Forget the chunks of a rolled-back transaction
+        synchronized void discardStored() {
+            chunkIds.clear();
+            embeddings.clear();
+        }
+
+        void retain(int count) {
+            pending.addAndGet(count);
+        }
+
+        void release(int count) throws InterruptedException {
+            if (pending.addAndGet(-count) == 0) {
+                persist.put(new PersistWork(this, null));
+            }
+        }
+
+        // Release a staged slice's reference; true when the caller should finish the document itself
+        boolean releaseInPlace() {
+            return pending.decrementAndGet() == 0;
+        }
+
+        private void complete() {
+            if (!failed) {
+                result.files.incrementAndGet();
+                if (failedChunks.get() > 0) {
+                    logger.warn("Processed {} ({} chunks, {} failed)", file.getName(), getStoredChunks(),
+                            failedChunks.get());
+                } else {
+                    logger.info("Processed {} ({} chunks)", file.getName(), getStoredChunks());
+                }
+            }
+
+            try {
+                if (listener != null) {
+                    listener.completed(this);
+                }
+            } catch (RuntimeException e) {
+                logger.error("Completion handling failed for {}", file.getName(), e);
+            } finally {
+                pendingDocuments.decrementAndGet();
+            }
+        }
+    }
+
+    // Chunks of one page still waiting for their embedding
+    private static class PageProgress {
+        private final int chunkCount;
+        private final AtomicInteger remaining;
+        private final List<EmbeddedChunk> fresh = new ArrayList<>();
+        private volatile boolean failed;
+
+        PageProgress(int chunkCount) {
+            this.chunkCount = chunkCount;
+            this.remaining = new AtomicInteger(chunkCount);
+        }
+
+        // True for the call that finishes the page
+        boolean done(EmbeddedChunk chunk) {
+            if (chunk == null) {
+                failed = true;
+            } else if (!chunk.reused) {
+                synchronized (fresh) {
+                    fresh.add(chunk);
+                }
+            }
+            return remaining.decrementAndGet() == 0;
+        }
+
+        PageEmbeddings toEmbeddings(int pageNo) {
+            synchronized (fresh) {
+                List<String> textHashes = new ArrayList<>(fresh.size());
+                List<float[]> embeddings = new ArrayList<>(fresh.size());
+                for (EmbeddedChunk chunk : fresh) {
+                    textHashes.add(chunk.work.textHash);
+                    embeddings.add(chunk.embedding);
+                }
+                return new PageEmbeddings(pageNo, chunkCount, textHashes, embeddings);
+            }
+        }
+    }
+
+    private static class PageWork {
+        private final Document doc;
+        private final int pageNo;
+        private final String text;
+
+        PageWork(Document doc, int pageNo, String text) {
+            this.doc = doc;
+            this.pageNo = pageNo;
+            this.text = text;
+        }
+    }
+
+    private static class ChunkWork {
+        private final Document doc;
+        private final TextChunker.TextChunk chunk;
+        private final String textHash;
+        // Embedded or failed; only touched by the embed worker holding the batch
+        private boolean settled;
+
+        ChunkWork(Document doc, TextChunker.TextChunk chunk, String textHash) {
+            this.doc = doc;
+            this.chunk = chunk;
+            this.textHash = textHash;
+        }
+    }
+
+    private static class PersistWork {
+        private final Document doc;
+        // Chunks to stage, or null to finish the document
+        private final List<EmbeddedChunk> slice;
+
+        PersistWork(Document doc, List<EmbeddedChunk> slice) {
+            this.doc = doc;
+            this.slice = slice;
+        }
+    }
+
+    private static class EmbeddedChunk {
+        private final ChunkWork work;
+        private final float[] embedding;
+        private final boolean reused;
+
+        EmbeddedChunk(ChunkWork work, float[] embedding, boolean reused) {
+            this.work = work;
+            this.embedding = embedding;
+            this.reused = reused;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.demo.domain.rag.service;
+
+import com.example.demo.infra.llm.OllamaHealthMonitor;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * LLM 서버 상태 (/actuator/health의 llm 항목)
+ *
+ * LLM이 없어도 모듈/평가 API는 동작하므로 상태는 항상 UP이고, details의 circuit/available로
+ * RAG 답변 가능 여부를 알린다. 백그라운드 모니터의 마지막 결과를 읽기만 하며 Ollama를 호출하지 않는다.
+ */
+@Component
+@RequiredArgsConstructor
+public class LlmHealthIndicator implements HealthIndicator {
+
+    private final OllamaHealthMonitor ollamaHealthMonitor;
+
+    @Override
+    public Health health() {
+        Health.Builder builder = Health.up()
+                .withDetail("circuit", ollamaHealthMonitor.getState().name())
+                .withDetail("available", ollamaHealthMonitor.isAvailable())
+                .withDetail("since", ollamaHealthMonitor.getStateSince().toString())
+                .withDetail("consecutiveFailures", ollamaHealthMonitor.getConsecutiveFailures());
+        if (ollamaHealthMonitor.getLastProbeAt() != null) {
+            builder.withDetail("lastProbeAt", ollamaHealthMonitor.getLastProbeAt().toString());
+        }
+        if (ollamaHealthMonitor.getLastError() != null) {
+            builder.withDetail("lastError", ollamaHealthMonitor.getLastError());
+        }
+        return builder.build();
+    }
+}
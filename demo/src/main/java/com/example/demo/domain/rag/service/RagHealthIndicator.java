@@ -0,0 +1,59 @@
+package com.example.demo.domain.rag.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * RAG 인덱스 상태 (/actuator/health의 rag 항목)
+ *
+ * 수집은 백그라운드에서 진행되므로 인덱스가 일부만 채워진 상태로도 요청을 처리한다. 상태는 항상 UP이고,
+ * details의 complete/state로 부분 인덱스와 완성된 인덱스를 구분한다.
+ * - WARMING_UP: 저장된 임베딩을 인덱스에 적재 중
+ * - INGESTING: 기동 후 첫 수집 또는 재수집 진행 중
+ * - INCOMPLETE: 수집이 끝났지만 실패한 문서가 있음 (다음 재수집에서 재시도)
+ * - COMPLETE: 모든 문서가 인덱스에 반영됨
+ */
+@Component
+@RequiredArgsConstructor
+public class RagHealthIndicator implements HealthIndicator {
+
+    private final VectorSearchService vectorSearchService;
+    private final DocumentIngestionService documentIngestionService;
+    private final IngestionJobService ingestionJobService;
+    private final IngestionPipeline ingestionPipeline;
+
+    @Value("${rag.enabled:true}")
+    private boolean ragEnabled;
+
+    @Override
+    public Health health() {
+        if (!ragEnabled) {
+            return Health.up().withDetail("state", "DISABLED").build();
+        }
+
+        String state;
+        long failedDocuments = 0;
+        if (!vectorSearchService.isReady()) {
+            state = "WARMING_UP";
+        } else if (!documentIngestionService.isInitialScanComplete() || documentIngestionService.isIngesting()) {
+            state = "INGESTING";
+        } else {
+            failedDocuments = ingestionJobService.countFailed();
+            state = failedDocuments > 0 ? "INCOMPLETE" : "COMPLETE";
+        }
+
+        Health.Builder builder = Health.up()
+                .withDetail("state", state)
+                .withDetail("complete", "COMPLETE".equals(state))
+                .withDetail("indexedEmbeddings", vectorSearchService.getStatus().getIndexedEmbeddings())
+                .withDetail("pendingDocuments", ingestionPipeline.getPendingDocuments())
+                .withDetail("failedDocuments", failedDocuments);
+        if (documentIngestionService.getLastScanAt() != null) {
+            builder.withDetail("lastScanAt", documentIngestionService.getLastScanAt().toString());
+        }
+        return builder.build();
+    }
+}
@@ -1,24 +1,38 @@
 package com.example.demo.domain.rag.service;
 
-import com.example.demo.domain.rag.entity.DocChunk;
 import com.example.demo.domain.rag.dto.RagAnswer;
 import com.example.demo.domain.rag.dto.RagQueryRequest;
-import com.example.demo.domain.rag.repository.DocChunkRepository;
+import com.example.demo.domain.rag.dto.RagSources;
+import com.example.demo.domain.rag.dto.RagStreamSummary;
+import com.example.demo.domain.rag.service.ChunkCache.CachedChunk;
 import com.example.demo.domain.rag.service.VectorSearchService.SearchResult;
+import com.example.demo.global.dto.ApiResponse;
 import com.example.demo.global.exception.BusinessException;
 import com.example.demo.global.exception.ErrorCode;
-import com.example.demo.infra.embedding.EmbeddingService;
-import com.example.demo.infra.llm.LlmClient;
+import com.example.demo.infra.embedding.ReactiveEmbeddingService;
+import com.example.demo.infra.llm.ReactiveLlmClient;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import lombok.RequiredArgsConstructor;
-import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @RequiredArgsConstructor
@@ -26,12 +40,23 @@ public class RagQueryService {
 
         private static final Logger logger = LoggerFactory.getLogger(RagQueryService.class);
 
-        private final EmbeddingService embeddingService;
+        private final ReactiveEmbeddingService embeddingService;
         private final VectorSearchService vectorSearchService;
-        private final LlmClient llmClient;
-        private final DocChunkRepository docChunkRepository;
+        private final ReactiveLlmClient llmClient;
+        private final ChunkCache chunkCache;
+        private final DocumentIngestionService documentIngestionService;
+        private final MeterRegistry meterRegistry;
+
+        private Timer firstTokenTimer;
+
+        @PostConstruct
+        public void init() {
+                firstTokenTimer = Timer.builder("rag.ask.stream.first.token")
+                                .description("Time from a streaming question to its first answer token")
+                                .publishPercentiles(0.5, 0.95)
+                                .register(meterRegistry);
+        }
 
-        @Transactional(readOnly = true)
         public RagAnswer query(RagQueryRequest request) {
                 if (!llmClient.isAvailable()) {
                         throw new BusinessException(ErrorCode.LLM_SERVICE_UNAVAILABLE);
@@ -41,65 +66,15 @@ public class RagQueryService {
                         // 질문 임베딩 생성
                         float[] queryEmbedding = embeddingService.generateEmbedding(request.getQuestion());
 
-                        // 벡터 검색 수행
-                        List<SearchResult> searchResults = vectorSearchService.searchSimilar(
-                                        queryEmbedding, request.getTopK());
-                        logger.info("Found {} similar chunks", searchResults.size());
-
-                        if (searchResults.isEmpty()) {
-                                logger.warn("No similar chunks found for query");
-                                return new RagAnswer("No relevant information found in the knowledge base.",
-                                                new ArrayList<>(), new ArrayList<>());
+                        Retrieval retrieval = retrieve(request, queryEmbedding);
+                        if (retrieval.prompt == null) {
+                                return new RagAnswer(retrieval.emptyMessage, new ArrayList<>(), new ArrayList<>());
                         }
 
-                        // 청크 상세 정보 조회 및 컨텍스트 빌드
-                        List<RagAnswer.Chunk> chunks = new ArrayList<>();
-                        List<RagAnswer.Source> sources = new ArrayList<>();
-                        StringBuilder contextBuilder = new StringBuilder();
-
-                        for (SearchResult result : searchResults) {
-                                Optional<DocChunk> chunkOpt = docChunkRepository.findById(result.getChunkId());
-                                if (chunkOpt.isPresent()) {
-                                        DocChunk chunk = chunkOpt.get();
-
-                                        // 청크 리스트에 추가
-                                        chunks.add(new RagAnswer.Chunk(
-                                                        chunk.getId(),
-                                                        chunk.getText(),
-                                                        chunk.getSourcePath(),
-                                                        chunk.getPageNo(),
-                                                        result.getSimilarity()));
-
-                                        // 소스 리스트에 추가 (중복 방지)
-                                        String sourceKey = chunk.getSourcePath() + ":" + chunk.getPageNo();
-                                        boolean isDuplicate = sources.stream().anyMatch(
-                                                        s -> (s.getSourcePath() + ":" + s.getPageNo())
-                                                                        .equals(sourceKey));
-                                        if (!isDuplicate) {
-                                                String preview = chunk.getText().length() > 200
-                                                                ? chunk.getText().substring(0, 200) + "..."
-                                                                : chunk.getText();
-                                                sources.add(new RagAnswer.Source(
-                                                                chunk.getSourcePath(),
-                                                                chunk.getPageNo(),
-                                                                preview));
-                                        }
-
-                                        // 프롬프트용 컨텍스트 빌드
-                                        contextBuilder.append("Source: ").append(chunk.getSourcePath())
-                                                        .append(" (Page ").append(chunk.getPageNo()).append(")\n");
-                                        contextBuilder.append("Content: ").append(chunk.getText()).append("\n\n");
-                                }
-                        }
-
-                        // LLM 프롬프트 생성 및 요청
-                        String context = contextBuilder.toString();
-                        String prompt = buildPrompt(request.getQuestion(), context, request.getMission());
-
-                        String answer = llmClient.generateResponse(prompt);
+                        String answer = llmClient.generateResponse(retrieval.prompt);
                         logger.info("LLM response generated (length: {} chars)", answer.length());
 
-                        return new RagAnswer(answer, sources, chunks);
+                        return new RagAnswer(answer, retrieval.sources, retrieval.chunks);
                 } catch (BusinessException e) {
                         throw e;
                 } catch (Exception e) {
@@ -108,6 +83,182 @@ public class RagQueryService {
                 }
         }
 
+        /**
+         * query()의 non-blocking 버전. 임베딩과 LLM 호출을 기다리는 동안 스레드를 점유하지 않으며,
+         * 벡터 검색과 청크 조회(DB)만 boundedElastic 스레드에서 실행한다.
+         */
+        public Mono<RagAnswer> queryAsync(RagQueryRequest request) {
+                return retrieveAsync(request)
+                                .flatMap(retrieval -> {
+                                        if (retrieval.prompt == null) {
+                                                return Mono.just(new RagAnswer(retrieval.emptyMessage,
+                                                                new ArrayList<>(), new ArrayList<>()));
+                                        }
+                                        return llmClient.generateResponseAsync(retrieval.prompt).map(answer -> {
+                                                logger.info("LLM response generated (length: {} chars)", answer.length());
+                                                return new RagAnswer(answer, retrieval.sources, retrieval.chunks);
+                                        });
+                                })
+                                .onErrorMap(e -> !(e instanceof BusinessException), e -> {
+                                        logger.error("RAG processing failed", e);
+                                        return new BusinessException(ErrorCode.RAG_SERVICE_ERROR,
+                                                        "답변 생성 중 오류가 발생했습니다.", e);
+                                });
+        }
+
+        /**
+         * 스트리밍 답변: 검색 결과(sources)를 먼저 보내고, LLM 토큰을 생성되는 대로(token) 보낸 뒤
+         * 요약(done)으로 끝낸다. 응답이 SSE로 시작되므로 실패(빈 질문 포함)는 예외 대신 error
+         * 이벤트로 전달한다. 클라이언트가 연결을 끊으면 LLM 생성도 취소된다.
+         */
+        public Flux<ServerSentEvent<Object>> queryStream(RagQueryRequest request) {
+                return Flux.defer(() -> {
+                        long started = System.nanoTime();
+                        if (request.getQuestion() == null || request.getQuestion().trim().isEmpty()) {
+                                throw new BusinessException(ErrorCode.INVALID_REQUEST, "질문 내용은 필수입니다.");
+                        }
+                        return retrieveAsync(request).flatMapMany(retrieval -> answerStream(retrieval, started));
+                })
+                                .onErrorResume(e -> Flux.just(errorEvent(e)));
+        }
+
+        private Flux<ServerSentEvent<Object>> answerStream(Retrieval retrieval, long started) {
+                ServerSentEvent<Object> sources = event("sources",
+                                new RagSources(retrieval.sources, retrieval.chunks));
+                if (retrieval.prompt == null) {
+                        return Flux.just(sources, event("token", retrieval.emptyMessage),
+                                        event("done", new RagStreamSummary(1, retrieval.emptyMessage.length(),
+                                                        null, elapsedMillis(started))));
+                }
+
+                AtomicInteger tokens = new AtomicInteger();
+                AtomicInteger length = new AtomicInteger();
+                AtomicLong firstToken = new AtomicLong(-1);
+                Flux<ServerSentEvent<Object>> answer = llmClient.streamResponse(retrieval.prompt)
+                                .doOnNext(token -> {
+                                        if (tokens.getAndIncrement() == 0) {
+                                                firstToken.set(elapsedMillis(started));
+                                                firstTokenTimer.record(firstToken.get(), TimeUnit.MILLISECONDS);
+                                        }
+                                        length.addAndGet(token.length());
+                                })
+                                .map(token -> event("token", token));
+                Mono<ServerSentEvent<Object>> done = Mono.fromSupplier(() -> {
+                        long total = elapsedMillis(started);
+                        logger.info("LLM response streamed ({} tokens, {} chars, first token {} ms, total {} ms)",
+                                        tokens.get(), length.get(), firstToken.get(), total);
+                        return event("done", new RagStreamSummary(tokens.get(), length.get(),
+                                        firstToken.get() >= 0 ? firstToken.get() : null, total));
+                });
+                return Flux.concat(Flux.just(sources), answer, done);
+        }
+
+        /**
+         * LLM 가용성 확인 → 질문 임베딩 (non-blocking) → 검색/청크 조회 (boundedElastic)
+         */
+        private Mono<Retrieval> retrieveAsync(RagQueryRequest request) {
+                return llmClient.isAvailableAsync()
+                                .flatMap(available -> {
+                                        if (!available) {
+                                                return Mono.error(new BusinessException(ErrorCode.LLM_SERVICE_UNAVAILABLE));
+                                        }
+                                        return embeddingService.generateEmbeddingAsync(request.getQuestion());
+                                })
+                                .publishOn(Schedulers.boundedElastic())
+                                .map(queryEmbedding -> retrieve(request, queryEmbedding));
+        }
+
+        /**
+         * 벡터 검색 → 청크 조회 → 프롬프트 생성. 검색 결과가 없으면 prompt 대신 emptyMessage를 채운다.
+         */
+        private Retrieval retrieve(RagQueryRequest request, float[] queryEmbedding) {
+                // 벡터 검색 수행
+                List<SearchResult> searchResults = vectorSearchService.searchSimilar(
+                                queryEmbedding, request.getTopK());
+                logger.info("Found {} similar chunks", searchResults.size());
+
+                List<RagAnswer.Chunk> chunks = new ArrayList<>();
+                List<RagAnswer.Source> sources = new ArrayList<>();
+
+                if (searchResults.isEmpty()) {
+                        logger.warn("No similar chunks found for query");
+                        // 백그라운드 수집 중에는 아직 공개되지 않은 문서가 있을 수 있음
+                        String message = documentIngestionService.isInitialScanComplete()
+                                        ? "No relevant information found in the knowledge base."
+                                        : "No relevant information found yet; the knowledge base is still being indexed.";
+                        return new Retrieval(sources, chunks, null, message);
+                }
+
+                // 청크 상세 정보 일괄 조회 (캐시 우선, 누락분만 DB에서 한 번에)
+                List<Long> chunkIds = new ArrayList<>(searchResults.size());
+                for (SearchResult result : searchResults) {
+                        chunkIds.add(result.getChunkId());
+                }
+                Map<Long, CachedChunk> chunkById = chunkCache.getAll(chunkIds);
+
+                // 유사도 순서를 유지하며 컨텍스트 빌드
+                Map<String, Set<Integer>> seenPages = new HashMap<>();
+                StringBuilder contextBuilder = new StringBuilder();
+
+                for (SearchResult result : searchResults) {
+                        CachedChunk chunk = chunkById.get(result.getChunkId());
+                        if (chunk == null) {
+                                continue;
+                        }
+
+                        // 청크 리스트에 추가
+                        chunks.add(new RagAnswer.Chunk(
+                                        chunk.getId(),
+                                        chunk.getText(),
+                                        chunk.getSourcePath(),
+                                        chunk.getPageNo(),
+                                        result.getSimilarity()));
+
+                        // 소스 리스트에 추가 (문서+페이지 중복 방지)
+                        if (seenPages.computeIfAbsent(chunk.getSourcePath(), k -> new HashSet<>())
+                                        .add(chunk.getPageNo())) {
+                                String preview = chunk.getText().length() > 200
+                                                ? chunk.getText().substring(0, 200) + "..."
+                                                : chunk.getText();
+                                sources.add(new RagAnswer.Source(
+                                                chunk.getSourcePath(),
+                                                chunk.getPageNo(),
+                                                preview));
+                        }
+
+                        // 프롬프트용 컨텍스트 빌드
+                        contextBuilder.append("Source: ").append(chunk.getSourcePath())
+                                        .append(" (Page ").append(chunk.getPageNo()).append(")\n");
+                        contextBuilder.append("Content: ").append(chunk.getText()).append("\n\n");
+                }
+
+                // LLM 프롬프트 생성
+                String context = contextBuilder.toString();
+                String prompt = buildPrompt(request.getQuestion(), context, request.getMission());
+                return new Retrieval(sources, chunks, prompt, null);
+        }
+
+        private ServerSentEvent<Object> errorEvent(Throwable e) {
+                ApiResponse<Void> error;
+                if (e instanceof BusinessException businessException) {
+                        logger.warn("RAG streaming failed: {}", businessException.getMessage());
+                        error = ApiResponse.error(businessException.getErrorCode().getCode(),
+                                        businessException.getMessage());
+                } else {
+                        logger.error("RAG streaming failed", e);
+                        error = ApiResponse.error(ErrorCode.RAG_SERVICE_ERROR.getCode(), "답변 생성 중 오류가 발생했습니다.");
+                }
+                return event("error", error);
+        }
+
+        private static ServerSentEvent<Object> event(String name, Object data) {
+                return ServerSentEvent.builder(data).event(name).build();
+        }
+
+        private static long elapsedMillis(long startedNanos) {
+                return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+        }
+
         private String buildPrompt(String question, String context, String mission) {
                 StringBuilder prompt = new StringBuilder();
 
@@ -130,4 +281,19 @@ public class RagQueryService {
 
                 return prompt.toString();
         }
-}
\ No newline at end of file
+
+        private static final class Retrieval {
+                private final List<RagAnswer.Source> sources;
+                private final List<RagAnswer.Chunk> chunks;
+                private final String prompt; // null when nothing relevant was found
+                private final String emptyMessage;
+
+                Retrieval(List<RagAnswer.Source> sources, List<RagAnswer.Chunk> chunks, String prompt,
+                                String emptyMessage) {
+                        this.sources = sources;
+                        this.chunks = chunks;
+                        this.prompt = prompt;
+                        this.emptyMessage = emptyMessage;
+                }
+        }
+}
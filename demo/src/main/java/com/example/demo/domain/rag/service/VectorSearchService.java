@@ -1,15 +1,35 @@
 package com.example.demo.domain.rag.service;
 
+import com.example.demo.domain.rag.dto.IndexStatus;
 import com.example.demo.domain.rag.entity.DocChunk;
+import com.example.demo.domain.rag.repository.ChunkEmbeddingView;
 import com.example.demo.domain.rag.repository.DocChunkRepository;
+import com.example.demo.infra.vector.ExactVectorIndex;
+import com.example.demo.infra.vector.HnswVectorIndex;
+import com.example.demo.infra.vector.ParallelScan;
+import com.example.demo.infra.vector.Quantization;
+import com.example.demo.infra.vector.QuantizationReport;
+import com.example.demo.infra.vector.SimilarityKernel;
+import com.example.demo.infra.vector.SimilarityKernels;
+import com.example.demo.infra.vector.VectorIndex;
+import com.example.demo.infra.vector.VectorIndexSnapshot;
+import com.example.demo.infra.vector.VectorMatrix;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,77 +45,402 @@ public class VectorSearchService {
     // @Autowired
     // private EmbeddingService embeddingService;
 
+    // exact: brute-force scan, hnsw: approximate graph search
+    @Value("${rag.index.type:exact}")
+    private String indexType;
+
+    @Value("${rag.index.hnsw.m:16}")
+    private int hnswM;
+
+    @Value("${rag.index.hnsw.efConstruction:200}")
+    private int hnswEfConstruction;
+
+    @Value("${rag.index.hnsw.efSearch:64}")
+    private int hnswEfSearch;
+
+    // Rebuild the HNSW graph once this share of its nodes are tombstones (0 disables)
+    @Value("${rag.index.hnsw.compactRatio:0.3}")
+    private double hnswCompactRatio;
+
+    // Below this many vectors the HNSW index answers with an exact scan
+    @Value("${rag.index.exactThreshold:1000}")
+    private int exactThreshold;
+
+    // Use the JDK Vector API for dot products when the module is enabled
+    @Value("${rag.index.simd:true}")
+    private boolean simdEnabled;
+
+    // Sharded exact scan on a dedicated pool, sized apart from the request threads
+    @Value("${rag.index.parallel.enabled:true}")
+    private boolean parallelEnabled;
+
+    // 0 = half of the available processors
+    @Value("${rag.index.parallel.threads:0}")
+    private int parallelThreads;
+
+    // Below this many vectors the scan stays sequential
+    @Value("${rag.index.parallel.threshold:50000}")
+    private int parallelThreshold;
+
+    // Searches beyond this many concurrent fan-outs run sequentially
+    @Value("${rag.index.parallel.maxConcurrent:2}")
+    private int parallelMaxConcurrent;
+
+    // none, int8 or binary first pass for exact search, rescored in float
+    @Value("${rag.index.quantization:none}")
+    private String quantization;
+
+    // Quantized candidates kept per requested result before rescoring
+    @Value("${rag.index.quantization.rescore:4}")
+    private int rescoreFactor;
+
+    // Copy-on-write segments of the exact index kept before the smallest are merged
+    @Value("${rag.index.segments.max:16}")
+    private int maxSegments;
+
+    // Memory-mapped copy of the index, rebuilt from the database only when missing or stale.
+    // Staleness is judged against the database, so it is only reused with a persistent datasource
+    @Value("${rag.index.snapshot.enabled:false}")
+    private boolean snapshotEnabled;
+
+    @Value("${rag.index.snapshot.path:data/rag/index/vectors.idx}")
+    private String snapshotPath;
+
+    @Value("${rag.embedding.model:nomic-embed-text}")
+    private String embeddingModel;
+
+    // Rows fetched per keyset page while filling the index from the database
+    @Value("${rag.index.warmup.batchSize:1000}")
+    private int warmupBatchSize;
+
+    // Fill the index on a background thread so startup does not wait for it
+    @Value("${rag.index.warmup.async:false}")
+    private boolean warmupAsync;
+
     // In-memory index for fast similarity search
-    private final Map<Long, float[]> embeddingIndex = new ConcurrentHashMap<>();
+    private volatile VectorIndex embeddingIndex;
+
+    private SimilarityKernel kernel;
+    private ParallelScan parallelScan;
+
+    // Set when the index has changes not yet written to the snapshot
+    private final AtomicBoolean snapshotDirty = new AtomicBoolean(false);
+
+    // Warm-up progress; search answers from a partial index until ready
+    private volatile boolean ready;
+    private final AtomicLong warmupLoaded = new AtomicLong();
+    private volatile long warmupTotal;
 
     @PostConstruct
     public void loadEmbeddings() {
-        logger.info("Loading embeddings into memory index...");
+        kernel = SimilarityKernels.select(simdEnabled);
+        if (parallelEnabled && !"hnsw".equalsIgnoreCase(indexType)) {
+            int threads = parallelThreads > 0
+                    ? parallelThreads
+                    : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+            parallelScan = new ParallelScan(threads, parallelThreshold, parallelMaxConcurrent);
+            logger.info("Parallel vector search enabled ({} threads, threshold {} vectors)",
+                    threads, parallelThreshold);
+        }
+
+        embeddingIndex = createIndex();
+
+        if (warmupAsync) {
+            Thread warmup = new Thread(this::warmUp, "vector-index-warmup");
+            warmup.setDaemon(true);
+            warmup.start();
+        } else {
+            warmUp();
+        }
+    }
+
+    private void warmUp() {
+        logger.info("Loading embeddings into memory index ({}, {})...",
+                embeddingIndex.getClass().getSimpleName(), kernel);
+
+        VectorIndexSnapshot.Mapped snapshot = null;
+        try {
+            snapshot = snapshotEnabled ? loadSnapshot() : null;
+            if (snapshot == null) {
+                loadFromDatabase();
+            }
+        } catch (RuntimeException e) {
+            logger.error("Vector index warm-up failed after {} embeddings", warmupLoaded.get(), e);
+        } finally {
+            ready = true;
+        }
+
+        if (snapshot != null) {
+            verifySnapshotInBackground(snapshot);
+        } else if (embeddingIndex.size() > 0) {
+            saveSnapshot();
+        }
+    }
+
+    private void loadFromDatabase() {
+        long started = System.currentTimeMillis();
+        warmupTotal = docChunkRepository.countPublishedChunks();
+        int batchSize = Math.max(warmupBatchSize, 1);
+        long progressStep = Math.max(warmupTotal / 10, batchSize);
+        long nextProgress = progressStep;
 
-        List<DocChunk> chunksWithEmbeddings = docChunkRepository.findAllWithEmbeddings();
+        long afterId = 0L;
+        while (true) {
+            List<ChunkEmbeddingView> page = docChunkRepository.findEmbeddingsAfter(afterId,
+                    PageRequest.of(0, batchSize));
+            List<Long> ids = new ArrayList<>(page.size());
+            List<float[]> embeddings = new ArrayList<>(page.size());
+            for (ChunkEmbeddingView row : page) {
+                float[] embedding = DocChunk.decodeEmbedding(row.getEmbeddingBlob(), row.getEmbeddingJson());
+                if (embedding.length > 0) {
+                    ids.add(row.getId());
+                    embeddings.add(embedding);
+                }
+                afterId = row.getId();
+            }
+            addEmbeddings(ids, embeddings);
+            long loaded = warmupLoaded.addAndGet(page.size());
 
-        for (DocChunk chunk : chunksWithEmbeddings) {
-            float[] embedding = chunk.getEmbeddingAsArray();
-            if (embedding.length > 0) {
-                embeddingIndex.put(chunk.getId(), embedding);
+            if (loaded >= nextProgress) {
+                logger.info("Vector index warm-up: {}/{} chunks", loaded, warmupTotal);
+                nextProgress = loaded + progressStep;
+            }
+            if (page.size() < batchSize) {
+                break;
             }
         }
 
-        logger.info("Loaded {} embeddings into memory index", embeddingIndex.size());
+        logger.info("Loaded {} embeddings into memory index in {} ms",
+                embeddingIndex.size(), System.currentTimeMillis() - started);
     }
 
     public void addEmbedding(Long chunkId, float[] embedding) {
-        embeddingIndex.put(chunkId, embedding);
+        try {
+            embeddingIndex.add(chunkId, embedding);
+            snapshotDirty.set(true);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Skipping embedding for chunk {}: {}", chunkId, e.getMessage());
+        }
+    }
+
+    /**
+     * Add a batch of chunks as one change; a batch the index rejects (e.g. a
+     * dimension mismatch) is retried row by row so only the bad rows are skipped
+     */
+    private void addEmbeddings(List<Long> chunkIds, List<float[]> embeddings) {
+        if (chunkIds.isEmpty()) {
+            return;
+        }
+        try {
+            embeddingIndex.replace(Collections.emptyList(), chunkIds, embeddings);
+            snapshotDirty.set(true);
+        } catch (IllegalArgumentException e) {
+            for (int i = 0; i < chunkIds.size(); i++) {
+                addEmbedding(chunkIds.get(i), embeddings.get(i));
+            }
+        }
+    }
+
+    /**
+     * Remove and add chunks as one visible change, e.g. when a document is re-ingested
+     */
+    public void replaceEmbeddings(Collection<Long> removedChunkIds, List<Long> chunkIds, List<float[]> embeddings) {
+        if (removedChunkIds.isEmpty() && chunkIds.isEmpty()) {
+            return;
+        }
+        try {
+            embeddingIndex.replace(removedChunkIds, chunkIds, embeddings);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Failed to publish {} embeddings: {}", chunkIds.size(), e.getMessage());
+        }
+        snapshotDirty.set(true);
+    }
+
+    public void removeEmbeddings(Collection<Long> chunkIds) {
+        if (chunkIds.isEmpty()) {
+            return;
+        }
+        embeddingIndex.replace(chunkIds, Collections.emptyList(), Collections.emptyList());
+        snapshotDirty.set(true);
+        logger.debug("Removed {} chunks from memory index", chunkIds.size());
     }
 
     public List<SearchResult> searchSimilar(float[] queryEmbedding, int topK) {
-        if (embeddingIndex.isEmpty()) {
+        if (!ready) {
+            logger.debug("Searching a partially loaded index ({}/{} chunks)", warmupLoaded.get(), warmupTotal);
+        }
+        if (embeddingIndex.size() == 0) {
             logger.warn("No embeddings available for search");
             return Collections.emptyList();
         }
 
-        List<SearchResult> results = new ArrayList<>();
+        return embeddingIndex.search(queryEmbedding, topK).stream()
+                .map(hit -> new SearchResult(hit.getId(), hit.getSimilarity()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Persist the index to the snapshot file if it changed since the last write.
+     */
+    public void saveSnapshot() {
+        // A partially warmed index must not be recorded as current
+        if (!snapshotEnabled || !ready || !snapshotDirty.getAndSet(false)) {
+            return;
+        }
+
+        Path path = Paths.get(snapshotPath);
+        try {
+            long started = System.currentTimeMillis();
+            Long maxId = docChunkRepository.findMaxPublishedChunkId();
+            VectorIndexSnapshot.write(path, embeddingIndex, embeddingModel,
+                    docChunkRepository.countPublishedChunks(), maxId != null ? maxId : 0L);
+            logger.info("Wrote vector index snapshot {} ({} embeddings, {} ms)",
+                    path, embeddingIndex.size(), System.currentTimeMillis() - started);
+        } catch (IOException | RuntimeException e) {
+            snapshotDirty.set(true);
+            logger.warn("Failed to write vector index snapshot {}: {}", path, e.getMessage());
+        }
+    }
 
-        for (Map.Entry<Long, float[]> entry : embeddingIndex.entrySet()) {
-            Long chunkId = entry.getKey();
-            float[] chunkEmbedding = entry.getValue();
+    /**
+     * Serve the index from the snapshot when it matches the database.
+     *
+     * @return The mapped snapshot, still to be verified, or null to rebuild from the database
+     */
+    private VectorIndexSnapshot.Mapped loadSnapshot() {
+        Path path = Paths.get(snapshotPath);
+        if (!Files.isRegularFile(path)) {
+            logger.info("No vector index snapshot at {}, rebuilding from database", path);
+            return null;
+        }
 
-            if (chunkEmbedding.length != queryEmbedding.length) {
-                continue; // Skip mismatched dimensions
+        try {
+            VectorIndexSnapshot.Header header = VectorIndexSnapshot.readHeader(path);
+            Long maxId = docChunkRepository.findMaxPublishedChunkId();
+            long chunkCount = docChunkRepository.countPublishedChunks();
+            if (chunkCount == 0 && header.getSourceCount() > 0) {
+                logger.info("Vector index snapshot {} covers {} chunks but the database is empty; "
+                        + "snapshots are only reused with a persistent datasource", path, header.getSourceCount());
+                return null;
+            }
+            if (!embeddingModel.equals(header.getModel())
+                    || header.getSourceCount() != chunkCount
+                    || header.getSourceMaxId() != (maxId != null ? maxId : 0L)) {
+                logger.info("Vector index snapshot {} is stale (model {}, {} chunks), rebuilding from database",
+                        path, header.getModel(), header.getSourceCount());
+                return null;
             }
 
-            double similarity = cosineSimilarity(queryEmbedding, chunkEmbedding);
-            results.add(new SearchResult(chunkId, similarity));
+            long started = System.currentTimeMillis();
+            warmupTotal = header.getCount();
+            VectorIndexSnapshot.Mapped snapshot = VectorIndexSnapshot.map(path);
+            for (VectorMatrix rows : snapshot.matrices(kernel)) {
+                embeddingIndex.addRows(rows);
+                warmupLoaded.addAndGet(rows.rows());
+            }
+            snapshotDirty.set(false);
+            logger.info("Mapped {} embeddings from snapshot {} in {} ms",
+                    embeddingIndex.size(), path, System.currentTimeMillis() - started);
+            return snapshot;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring unreadable vector index snapshot {}: {}", path, e.getMessage());
+            resetIndex();
+            return null;
         }
+    }
 
-        // Sort by similarity (descending) and return top K
-        return results.stream()
-                .sorted((a, b) -> Double.compare(b.similarity, a.similarity))
-                .limit(topK)
-                .collect(Collectors.toList());
+    /**
+     * Check the snapshot checksum off the startup path; searches are served
+     * from the mapped rows meanwhile. On a mismatch the index is rebuilt from
+     * the database and the snapshot rewritten.
+     */
+    private void verifySnapshotInBackground(VectorIndexSnapshot.Mapped snapshot) {
+        Thread verifier = new Thread(() -> {
+            long started = System.currentTimeMillis();
+            try {
+                snapshot.verify();
+                logger.info("Verified vector index snapshot {} in {} ms",
+                        snapshotPath, System.currentTimeMillis() - started);
+            } catch (IOException e) {
+                logger.warn("{}; rebuilding vector index from database", e.getMessage());
+                ready = false;
+                try {
+                    resetIndex();
+                    loadFromDatabase();
+                } catch (RuntimeException rebuildFailure) {
+                    logger.error("Vector index rebuild failed after {} embeddings", warmupLoaded.get(),
+                            rebuildFailure);
+                } finally {
+                    ready = true;
+                }
+                snapshotDirty.set(true);
+                saveSnapshot();
+            }
+        }, "vector-snapshot-verify");
+        verifier.setDaemon(true);
+        verifier.start();
     }
 
-    private double cosineSimilarity(float[] a, float[] b) {
-        if (a.length != b.length) {
-            logger.warn("Embedding dimension mismatch: {} vs {}", a.length, b.length);
-            return 0.0;
+    /**
+     * Swap in an empty index, e.g. after unverified snapshot rows were added.
+     */
+    private void resetIndex() {
+        VectorIndex previous = embeddingIndex;
+        embeddingIndex = createIndex();
+        warmupLoaded.set(0);
+        if (previous instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                logger.debug("Failed to close vector index: {}", e.getMessage());
+            }
         }
+    }
 
-        double dotProduct = 0.0;
-        double normA = 0.0;
-        double normB = 0.0;
-
-        for (int i = 0; i < a.length; i++) {
-            dotProduct += a[i] * b[i];
-            normA += a[i] * a[i];
-            normB += b[i] * b[i];
+    private VectorIndex createIndex() {
+        if ("hnsw".equalsIgnoreCase(indexType)) {
+            return new HnswVectorIndex(hnswM, hnswEfConstruction, hnswEfSearch, exactThreshold, hnswCompactRatio,
+                    kernel);
+        }
+        if (!"exact".equalsIgnoreCase(indexType)) {
+            logger.warn("Unknown rag.index.type '{}', falling back to exact search", indexType);
         }
+        return new ExactVectorIndex(kernel, parallelScan, resolveQuantization(), rescoreFactor, maxSegments);
+    }
 
-        if (normA == 0.0 || normB == 0.0) {
-            return 0.0;
+    private Quantization resolveQuantization() {
+        try {
+            return Quantization.from(quantization);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Unknown rag.index.quantization '{}', falling back to none", quantization);
+            return Quantization.NONE;
         }
+    }
 
-        return dotProduct / (Math.sqrt(normA) * Math.sqrt(normB));
+    public boolean isReady() {
+        return ready;
+    }
+
+    public IndexStatus getStatus() {
+        return new IndexStatus(ready, warmupLoaded.get(), warmupTotal, embeddingIndex.size());
+    }
+
+    public QuantizationReport evaluateQuantization(int k, int samples) {
+        return embeddingIndex.evaluateQuantization(k, samples, rescoreFactor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (embeddingIndex instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                logger.debug("Failed to close vector index: {}", e.getMessage());
+            }
+        }
+        if (parallelScan != null) {
+            parallelScan.close();
+        }
     }
 
     public static class SearchResult {
@@ -0,0 +1,58 @@
+package com.example.demo.global.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+@Configuration
+public class OllamaHttpConfig {
+
+    /**
+     * Ollama 호출(LLM 생성, 임베딩)이 함께 쓰는 커넥션 풀. 최대 연결 수를 넘는 요청은 스레드를 잡지 않고
+     * 대기열에서 기다리며, 유휴 연결은 keep-alive로 재사용하다가 maxIdleTime이 지나면 정리한다.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider ollamaConnectionProvider(
+            @Value("${llm.http.maxConnections:64}") int maxConnections,
+            @Value("${llm.http.pendingAcquireMaxCount:1000}") int pendingAcquireMaxCount,
+            @Value("${llm.http.pendingAcquireTimeoutSeconds:120}") long pendingAcquireTimeoutSeconds,
+            @Value("${llm.http.maxIdleTimeSeconds:30}") long maxIdleTimeSeconds) {
+        return ConnectionProvider.builder("ollama")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(Duration.ofSeconds(pendingAcquireTimeoutSeconds))
+                .maxIdleTime(Duration.ofSeconds(maxIdleTimeSeconds))
+                .evictInBackground(Duration.ofSeconds(Math.max(maxIdleTimeSeconds, 1)))
+                .metrics(true)
+                .build();
+    }
+
+    /**
+     * 공유 풀 위의 WebClient. 연결 타임아웃과 읽기 타임아웃(응답 수신 중 read 간 최대 간격, 스트리밍에서는
+     * 토큰 간 간격)을 여기서 걸고, 전체 응답 타임아웃은 각 클라이언트가 스트리밍이 아닌 호출에 건다.
+     */
+    @Bean
+    public WebClient ollamaWebClient(ConnectionProvider ollamaConnectionProvider,
+            @Value("${llm.http.connectTimeoutMs:3000}") int connectTimeoutMs,
+            @Value("${llm.http.readTimeoutSeconds:120}") long readTimeoutSeconds,
+            @Value("${llm.http.maxInMemorySizeMb:16}") int maxInMemorySizeMb) {
+        HttpClient httpClient = HttpClient.create(ollamaConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true)
+                .responseTimeout(Duration.ofSeconds(readTimeoutSeconds));
+
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                // Batch embedding responses exceed the 256 KB default
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxInMemorySizeMb * 1024 * 1024))
+                .build();
+    }
+}
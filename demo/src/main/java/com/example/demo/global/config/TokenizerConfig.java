@@ -0,0 +1,52 @@
+package com.example.demo.global.config;
+
+import com.example.demo.infra.pdf.HeuristicTokenCounter;
+import com.example.demo.infra.pdf.TokenCounter;
+import com.example.demo.infra.pdf.WordPieceTokenCounter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@Configuration
+public class TokenizerConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenizerConfig.class);
+
+    /**
+     * 청크 크기 계산용 토큰 카운터. 어휘 파일을 지정하지 않으면 글자 수 기반 추정을 쓰고,
+     * 지정한 어휘 파일이 없거나 읽을 수 없으면 조용히 추정으로 바꾸지 않고 시작을 중단한다.
+     */
+    @Bean
+    public TokenCounter tokenCounter(ResourceLoader resourceLoader,
+            @Value("${rag.tokenizer.vocab:}") String vocabLocation,
+            @Value("${rag.tokenizer.lowercase:true}") boolean lowercase,
+            @Value("${rag.tokenizer.cacheSize:50000}") int cacheSize) {
+        if (vocabLocation.isBlank()) {
+            logger.warn("rag.tokenizer.vocab not set, sizing chunks by a 4 characters/token per word estimate; "
+                    + "chunk sizes are not exact WordPiece token counts");
+            return new HeuristicTokenCounter();
+        }
+
+        Resource vocab = resourceLoader.getResource(vocabLocation);
+        if (!vocab.exists()) {
+            throw new IllegalStateException("WordPiece vocabulary not found at " + vocabLocation
+                    + "; add the file or clear rag.tokenizer.vocab to size chunks by estimate");
+        }
+
+        try (InputStream in = vocab.getInputStream()) {
+            WordPieceTokenCounter counter = WordPieceTokenCounter.load(in, lowercase, cacheSize);
+            logger.info("Sizing chunks with WordPiece vocabulary {} ({})", vocabLocation, counter.name());
+            return counter;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to load WordPiece vocabulary " + vocabLocation, e);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.demo.global.enums;
+
+/**
+ * LLM 서버 가용성 서킷 브레이커 상태
+ * OPEN/HALF_OPEN 동안 LLM 요청은 서버를 호출하지 않고 즉시 실패
+ */
+public enum CircuitState {
+    CLOSED("정상", "The model answered the last probe; requests go through"),
+    OPEN("차단", "Probes or requests failed repeatedly; requests fail fast until the next trial probe"),
+    HALF_OPEN("확인 중", "A trial probe is running; requests resume once it succeeds");
+
+    private final String displayName;
+    private final String description;
+
+    CircuitState(String displayName, String description) {
+        this.displayName = displayName;
+        this.description = description;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.demo.global.enums;
+
+/**
+ * 문서 수집 작업의 진행 상태를 나타내는 열거형
+ * 재시작 시 완료되지 않은 작업은 체크포인트부터 이어서 처리
+ */
+public enum IngestionJobState {
+    RUNNING("수집 중", "Pages are being embedded; checkpoints are written as pages finish"),
+    INTERRUPTED("중단됨", "The node stopped while the job was running; resumed on the next scan"),
+    FAILED("실패", "Some chunks could not be embedded or stored; retried on the next scan"),
+    COMPLETED("완료", "All chunks stored and published to the index");
+
+    private final String displayName;
+    private final String description;
+
+    IngestionJobState(String displayName, String description) {
+        this.displayName = displayName;
+        this.description = description;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.demo.infra.concurrent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Request coalescing: concurrent calls with the same key share one in-flight
+ * {@link CompletableFuture}, so the expensive call runs once and every caller
+ * gets its result (or its exception).
+ *
+ * The first caller for a key runs the loader on its own thread; later callers
+ * block on the shared future. A successful result stays shareable for
+ * {@code windowMillis} after it completes (0 = only while in flight); a
+ * failure is never shared with callers that arrive after it.
+ *
+ * Calls are counted as {@code rag.coalesce.requests{target, result=leader|shared}}.
+ */
+public final class SingleFlight<K, V> {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+    private final Executor expiry;
+    private final Counter leaders;
+    private final Counter shared;
+
+    public SingleFlight(String target, long windowMillis, MeterRegistry meterRegistry) {
+        this.expiry = windowMillis > 0 ? CompletableFuture.delayedExecutor(windowMillis, TimeUnit.MILLISECONDS) : null;
+        this.leaders = Counter.builder("rag.coalesce.requests").tag("target", target).tag("result", "leader")
+                .description("Calls that ran the underlying request").register(meterRegistry);
+        this.shared = Counter.builder("rag.coalesce.requests").tag("target", target).tag("result", "shared")
+                .description("Calls answered by another caller's identical request").register(meterRegistry);
+        Gauge.builder("rag.coalesce.inflight", flights, ConcurrentHashMap::size).tag("target", target)
+                .description("Distinct requests in flight or within the coalescing window").register(meterRegistry);
+    }
+
+    /**
+     * Run {@code loader} for the key, or wait for the identical call already running
+     */
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = flights.putIfAbsent(key, flight);
+        if (existing != null) {
+            shared.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw e;
+            }
+        }
+
+        leaders.increment();
+        V value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+
+        flight.complete(value);
+        release(key, flight);
+        return value;
+    }
+
+    /**
+     * Non-blocking {@link #execute}: start {@code loader} for the key, or join
+     * the identical call already running. Each caller gets its own copy of the
+     * shared future, so cancelling one does not cancel the call for the others.
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<? extends CompletionStage<V>> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = flights.putIfAbsent(key, flight);
+        if (existing != null) {
+            shared.increment();
+            return existing.copy();
+        }
+
+        leaders.increment();
+        try {
+            loader.get().whenComplete((value, error) -> {
+                if (error != null) {
+                    flights.remove(key, flight);
+                    flight.completeExceptionally(error);
+                } else {
+                    flight.complete(value);
+                    release(key, flight);
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, flight);
+            flight.completeExceptionally(e);
+        }
+        return flight.copy();
+    }
+
+    private void release(K key, CompletableFuture<V> flight) {
+        if (expiry == null) {
+            flights.remove(key, flight);
+        } else {
+            expiry.execute(() -> flights.remove(key, flight));
+        }
+    }
+
+    /**
+     * Fixed-length key for a request text: the prefix (e.g. model name) plus
+     * the SHA-256 of the text, optionally with whitespace runs collapsed and
+     * the ends trimmed first
+     */
+    public static String textKey(String prefix, String text, boolean normalizeWhitespace) {
+        String keyed = normalizeWhitespace ? WHITESPACE.matcher(text.trim()).replaceAll(" ") : text;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return prefix + ":" + HexFormat.of().formatHex(digest.digest(keyed.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package com.example.demo.infra.embedding;
+
+import com.example.demo.infra.concurrent.SingleFlight;
+import com.example.demo.infra.vector.EmbeddingCodec;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query-embedding cache and request coalescing in front of the configured
+ * embedding service.
+ *
+ * Single-text embeddings (questions, evaluation prompts) are cached by
+ * model name plus the SHA-256 of the whitespace-normalized text, in an LRU
+ * map bounded by {@code rag.embedding.cache.maxSize} whose entries expire
+ * after {@code rag.embedding.cache.ttlMinutes}. Batch embeddings come from
+ * ingestion, where every chunk is embedded once, so they bypass the cache.
+ * Delegate failures propagate to the caller and all-zero vectors are never
+ * cached, so an outage does not leave questions answered from empty vectors.
+ *
+ * With {@code rag.embedding.cache.disk.enabled} new entries are appended to
+ * a log file that is read back (and compacted) at startup, so the cache
+ * survives restarts. Hits, misses, the hit ratio and the model time saved by
+ * hits are exported under {@code rag.embedding.cache.*}.
+ *
+ * Concurrent misses for the same text share one model call
+ * ({@link SingleFlight}); {@code rag.embedding.coalesce.key} selects whether
+ * texts differing only in whitespace count as the same request. Blocking and
+ * reactive callers share the same cache and in-flight calls.
+ */
+@Service
+@Primary
+@RequiredArgsConstructor
+public class CachingEmbeddingService implements ReactiveEmbeddingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingEmbeddingService.class);
+
+    private static final int DISK_MAGIC = 0x45434348; // "ECCH"
+    private static final int DISK_VERSION = 1;
+
+    private final DjlEmbeddingService delegate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${rag.embedding.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rag.embedding.cache.maxSize:1000}")
+    private int maxSize;
+
+    // 0 = entries never expire
+    @Value("${rag.embedding.cache.ttlMinutes:60}")
+    private long ttlMinutes;
+
+    @Value("${rag.embedding.cache.disk.enabled:false}")
+    private boolean diskEnabled;
+
+    @Value("${rag.embedding.cache.disk.path:data/rag/index/embedding-cache.bin}")
+    private String diskPath;
+
+    @Value("${rag.embedding.coalesce.enabled:true}")
+    private boolean coalesceEnabled;
+
+    // How long a finished embedding stays shareable; 0 = only while in flight
+    @Value("${rag.embedding.coalesce.windowMs:0}")
+    private long coalesceWindowMs;
+
+    // normalized (whitespace-insensitive) or exact
+    @Value("${rag.embedding.coalesce.key:normalized}")
+    private String coalesceKey;
+
+    private Map<String, Entry> entries;
+    private long ttlMillis;
+    private DataOutputStream diskLog;
+    private Counter hits;
+    private Counter misses;
+    private Counter savedSeconds;
+    private Timer missLatency;
+    private SingleFlight<String, float[]> flights;
+
+    @PostConstruct
+    public void init() {
+        int capacity = Math.max(maxSize, 0);
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+        ttlMillis = TimeUnit.MINUTES.toMillis(Math.max(ttlMinutes, 0));
+
+        hits = Counter.builder("rag.embedding.cache.requests").tag("result", "hit")
+                .description("Query embeddings answered from the cache").register(meterRegistry);
+        misses = Counter.builder("rag.embedding.cache.requests").tag("result", "miss")
+                .description("Query embeddings computed by the model").register(meterRegistry);
+        savedSeconds = Counter.builder("rag.embedding.cache.saved").baseUnit("seconds")
+                .description("Estimated model time saved by cache hits (mean miss latency per hit)")
+                .register(meterRegistry);
+        missLatency = Timer.builder("rag.embedding.cache.miss.latency")
+                .description("Time to compute a query embedding on a cache miss").register(meterRegistry);
+        Gauge.builder("rag.embedding.cache.size", this, CachingEmbeddingService::size)
+                .description("Query embeddings currently cached").register(meterRegistry);
+        Gauge.builder("rag.embedding.cache.hit.ratio", this, CachingEmbeddingService::hitRatio)
+                .description("Share of query embeddings answered from the cache").register(meterRegistry);
+
+        if (coalesceEnabled) {
+            flights = new SingleFlight<>("embedding", coalesceWindowMs, meterRegistry);
+        }
+        if (enabled && diskEnabled) {
+            openDiskStore(Paths.get(diskPath));
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (diskLog != null) {
+            try {
+                diskLog.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close embedding cache file: {}", e.getMessage());
+            }
+            diskLog = null;
+        }
+    }
+
+    @Override
+    public float[] generateEmbedding(String text) {
+        if (text == null || (!enabled && flights == null)) {
+            return delegate.generateEmbedding(text);
+        }
+
+        String key = key(text);
+        if (enabled) {
+            float[] cached = get(key);
+            if (cached != null) {
+                hits.increment();
+                savedSeconds.increment(missLatency.mean(TimeUnit.SECONDS));
+                return cached.clone();
+            }
+        }
+
+        if (flights == null) {
+            return load(key, text);
+        }
+        // Every caller gets its own copy of the shared array
+        float[] embedding = flights.execute(flightKey(key, text), () -> load(key, text));
+        return embedding != null ? embedding.clone() : null;
+    }
+
+    @Override
+    public Mono<float[]> generateEmbeddingAsync(String text) {
+        if (text == null || (!enabled && flights == null)) {
+            return delegate.generateEmbeddingAsync(text);
+        }
+
+        String key = key(text);
+        if (enabled) {
+            float[] cached = get(key);
+            if (cached != null) {
+                hits.increment();
+                savedSeconds.increment(missLatency.mean(TimeUnit.SECONDS));
+                return Mono.just(cached.clone());
+            }
+        }
+
+        if (flights == null) {
+            return loadAsync(key, text);
+        }
+        String flightKey = flightKey(key, text);
+        return Mono.fromFuture(() -> flights.executeAsync(flightKey, () -> loadAsync(key, text).toFuture()), true)
+                .map(float[]::clone);
+    }
+
+    @Override
+    public List<float[]> generateEmbeddings(List<String> texts) {
+        return delegate.generateEmbeddings(texts);
+    }
+
+    @Override
+    public int getEmbeddingDimension() {
+        return delegate.getEmbeddingDimension();
+    }
+
+    @Override
+    public String getModelName() {
+        return delegate.getModelName();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total > 0 ? hits.count() / total : 0.0;
+    }
+
+    // Model name plus SHA-256 of the whitespace-normalized text
+    private String key(String text) {
+        return SingleFlight.textKey(getModelName(), text, true);
+    }
+
+    private String flightKey(String key, String text) {
+        return "exact".equalsIgnoreCase(coalesceKey) ? SingleFlight.textKey(getModelName(), text, false) : key;
+    }
+
+    private float[] load(String key, String text) {
+        misses.increment();
+        long started = System.nanoTime();
+        float[] embedding = delegate.generateEmbedding(text);
+        loaded(key, embedding, started);
+        return embedding;
+    }
+
+    private Mono<float[]> loadAsync(String key, String text) {
+        return Mono.defer(() -> {
+            misses.increment();
+            long started = System.nanoTime();
+            return delegate.generateEmbeddingAsync(text).doOnNext(embedding -> loaded(key, embedding, started));
+        });
+    }
+
+    private void loaded(String key, float[] embedding, long startedNanos) {
+        missLatency.record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+        if (enabled && isCacheable(embedding)) {
+            put(key, embedding.clone(), System.currentTimeMillis());
+        }
+    }
+
+    // An all-zero vector is a failed or empty embedding, never a result worth keeping
+    private static boolean isCacheable(float[] embedding) {
+        if (embedding == null) {
+            return false;
+        }
+        for (float value : embedding) {
+            if (value != 0.0f) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized float[] get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (isExpired(entry.createdAt, System.currentTimeMillis())) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.embedding;
+    }
+
+    private synchronized void put(String key, float[] embedding, long createdAt) {
+        entries.put(key, new Entry(embedding, createdAt));
+        if (diskLog != null) {
+            try {
+                writeRecord(diskLog, key, embedding, createdAt);
+                diskLog.flush();
+            } catch (IOException e) {
+                logger.warn("Failed to append to embedding cache file, disabling disk store: {}", e.getMessage());
+                close();
+            }
+        }
+    }
+
+    private boolean isExpired(long createdAt, long now) {
+        return ttlMillis > 0 && now - createdAt > ttlMillis;
+    }
+
+    /**
+     * Load the unexpired entries of the current model, rewrite the file with
+     * just those, and keep it open for appending.
+     */
+    private void openDiskStore(Path path) {
+        String modelPrefix = getModelName() + ":";
+        long now = System.currentTimeMillis();
+        int loaded = 0;
+
+        if (Files.isRegularFile(path)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                if (in.readInt() != DISK_MAGIC || in.readInt() != DISK_VERSION) {
+                    throw new IOException("not an embedding cache file");
+                }
+                while (true) {
+                    String key;
+                    long createdAt;
+                    byte[] bytes;
+                    try {
+                        key = in.readUTF();
+                        createdAt = in.readLong();
+                        bytes = new byte[in.readInt()];
+                        in.readFully(bytes);
+                    } catch (EOFException e) {
+                        break; // End of file, or a record cut short by a crash
+                    }
+                    if (key.startsWith(modelPrefix) && !isExpired(createdAt, now)) {
+                        float[] embedding = EmbeddingCodec.decode(bytes);
+                        // Skip zero vectors (failed embeddings cached by older builds)
+                        if (isCacheable(embedding)) {
+                            entries.put(key, new Entry(embedding, createdAt));
+                        }
+                    }
+                }
+                loaded = entries.size();
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Ignoring unreadable embedding cache file {}: {}", path, e.getMessage());
+                entries.clear();
+            }
+        }
+
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(DISK_MAGIC);
+                out.writeInt(DISK_VERSION);
+                for (Map.Entry<String, Entry> entry : new ArrayList<>(entries.entrySet())) {
+                    writeRecord(out, entry.getKey(), entry.getValue().embedding, entry.getValue().createdAt);
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            diskLog = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(path, StandardOpenOption.APPEND)));
+            logger.info("Embedding cache file {} opened ({} entries loaded)", path, loaded);
+        } catch (IOException e) {
+            logger.warn("Embedding cache disk store unavailable at {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, String key, float[] embedding, long createdAt)
+            throws IOException {
+        byte[] bytes = EmbeddingCodec.encode(embedding);
+        out.writeUTF(key);
+        out.writeLong(createdAt);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static final class Entry {
+        private final float[] embedding;
+        private final long createdAt; // Epoch millis, so expiry carries over restarts
+
+        Entry(float[] embedding, long createdAt) {
+            this.embedding = embedding;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -4,15 +4,23 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
 import jakarta.annotation.PostConstruct;
-
+import java.util.List;
+
+/**
+ * Entry point for embeddings. With {@code rag.embedding.provider=ollama}
+ * every call goes to Ollama, checked against the health monitor's latest
+ * model list per call: while the model is not listed the call fails, so the
+ * ingestion job is marked failed and retried instead of storing vectors from
+ * another model. Once a later probe lists the model, calls go through again
+ * without a restart. Any other provider uses the hash-based mock on purpose.
+ */
 @Service
-@Primary
 @RequiredArgsConstructor
-public class DjlEmbeddingService implements EmbeddingService {
+public class DjlEmbeddingService implements ReactiveEmbeddingService {
 
     private static final Logger logger = LoggerFactory.getLogger(DjlEmbeddingService.class);
 
@@ -21,40 +29,63 @@ public class DjlEmbeddingService implements EmbeddingService {
 
     private final OllamaEmbeddingService ollamaEmbeddingService;
 
-    private EmbeddingService actualEmbeddingService;
+    private final EmbeddingService mockEmbeddingService = new MockEmbeddingService();
+
+    private boolean useOllama;
 
     @PostConstruct
     public void initialize() {
-        try {
-            logger.info("Initializing embedding service with provider: {}", embeddingProvider);
-
-            if ("ollama".equals(embeddingProvider) && ollamaEmbeddingService != null) {
-                if (ollamaEmbeddingService.isAvailable()) {
-                    actualEmbeddingService = ollamaEmbeddingService;
-                    logger.info("Using Ollama embedding service (nomic-embed-text)");
-                } else {
-                    logger.warn("Ollama embedding service not available, falling back to mock implementation");
-                    actualEmbeddingService = new MockEmbeddingService();
-                }
-            } else {
-                logger.warn("Using mock embedding service as fallback");
-                actualEmbeddingService = new MockEmbeddingService();
-            }
-
-        } catch (Exception e) {
-            logger.error("Failed to initialize embedding service", e);
-            actualEmbeddingService = new MockEmbeddingService();
+        logger.info("Initializing embedding service with provider: {}", embeddingProvider);
+        useOllama = "ollama".equals(embeddingProvider);
+        if (!useOllama) {
+            logger.warn("Using mock embedding service (provider {})", embeddingProvider);
+        } else if (!ollamaEmbeddingService.isAvailable()) {
+            logger.warn("Ollama embedding model {} is not available yet; embedding calls fail until it is",
+                    ollamaEmbeddingService.getModelName());
+        } else {
+            logger.info("Using Ollama embedding service ({})", ollamaEmbeddingService.getModelName());
         }
     }
 
     @Override
     public float[] generateEmbedding(String text) {
-        return actualEmbeddingService.generateEmbedding(text);
+        return delegate().generateEmbedding(text);
+    }
+
+    @Override
+    public Mono<float[]> generateEmbeddingAsync(String text) {
+        if (!useOllama) {
+            // Mock embeddings are computed in place
+            return Mono.fromCallable(() -> mockEmbeddingService.generateEmbedding(text));
+        }
+        return Mono.defer(() -> ((OllamaEmbeddingService) delegate()).generateEmbeddingAsync(text));
+    }
+
+    @Override
+    public List<float[]> generateEmbeddings(List<String> texts) {
+        return delegate().generateEmbeddings(texts);
     }
 
     @Override
     public int getEmbeddingDimension() {
-        return actualEmbeddingService.getEmbeddingDimension();
+        return useOllama ? ollamaEmbeddingService.getEmbeddingDimension() : mockEmbeddingService.getEmbeddingDimension();
+    }
+
+    // The configured model even while it is unavailable, so cache keys and snapshots stay stable
+    @Override
+    public String getModelName() {
+        return useOllama ? ollamaEmbeddingService.getModelName() : mockEmbeddingService.getModelName();
+    }
+
+    private EmbeddingService delegate() {
+        if (!useOllama) {
+            return mockEmbeddingService;
+        }
+        if (!ollamaEmbeddingService.isAvailable()) {
+            throw new IllegalStateException("Embedding model " + ollamaEmbeddingService.getModelName()
+                    + " is not available on the Ollama server");
+        }
+        return ollamaEmbeddingService;
     }
 
     // Fallback mock implementation
@@ -96,5 +127,10 @@ public class DjlEmbeddingService implements EmbeddingService {
         public int getEmbeddingDimension() {
             return 768; // nomic-embed-text dimension
         }
+
+        @Override
+        public String getModelName() {
+            return "mock-hash-768";
+        }
     }
 }
@@ -1,5 +1,8 @@
 package com.example.demo.infra.embedding;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface EmbeddingService {
 
     /**
@@ -10,10 +13,32 @@ public interface EmbeddingService {
      */
     float[] generateEmbedding(String text);
 
+    /**
+     * Generate embedding vectors for several texts at once
+     *
+     * @param texts Input texts to embed
+     * @return Embedding vectors, in the same order as the input
+     */
+    default List<float[]> generateEmbeddings(List<String> texts) {
+        List<float[]> embeddings = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            embeddings.add(generateEmbedding(text));
+        }
+        return embeddings;
+    }
+
     /**
      * Get the dimension of embeddings produced by this service
      *
      * @return Embedding dimension
      */
     int getEmbeddingDimension();
+
+    /**
+     * Get the name of the model behind the embeddings, so stored vectors from
+     * a different model can be recognised
+     *
+     * @return Model name
+     */
+    String getModelName();
 }
\ No newline at end of file
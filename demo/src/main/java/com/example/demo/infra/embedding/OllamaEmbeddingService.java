@@ -1,5 +1,6 @@
 package com.example.demo.infra.embedding;
 
+import com.example.demo.infra.llm.OllamaHealthMonitor;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
@@ -8,16 +9,23 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
-public class OllamaEmbeddingService implements EmbeddingService {
+public class OllamaEmbeddingService implements ReactiveEmbeddingService {
 
     private static final Logger logger = LoggerFactory.getLogger(OllamaEmbeddingService.class);
 
     private final WebClient webClient;
+    private final OllamaHealthMonitor healthMonitor;
     private final ObjectMapper objectMapper;
 
     @Value("${llm.ollama.url:http://localhost:11434}")
@@ -26,66 +34,155 @@ public class OllamaEmbeddingService implements EmbeddingService {
     @Value("${rag.embedding.model:nomic-embed-text}")
     private String embeddingModel;
 
-    public OllamaEmbeddingService() {
-        this.webClient = WebClient.builder().build();
+    // Texts per /api/embed request
+    @Value("${rag.embedding.batchSize:32}")
+    private int batchSize;
+
+    // Batch requests allowed in flight at once
+    @Value("${rag.embedding.maxInFlight:2}")
+    private int maxInFlight;
+
+    // Whole-response limit per embedding request
+    @Value("${llm.http.responseTimeoutSeconds:300}")
+    private long responseTimeoutSeconds;
+
+    public OllamaEmbeddingService(WebClient ollamaWebClient, OllamaHealthMonitor healthMonitor) {
+        this.webClient = ollamaWebClient;
+        this.healthMonitor = healthMonitor;
         this.objectMapper = new ObjectMapper();
     }
 
     @Override
     public float[] generateEmbedding(String text) {
+        return generateEmbeddingAsync(text).block();
+    }
+
+    /**
+     * One {@code /api/embeddings} call. Failures are propagated rather than
+     * answered with a zero vector, so nothing downstream caches or searches
+     * with a vector that carries no meaning.
+     */
+    @Override
+    public Mono<float[]> generateEmbeddingAsync(String text) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", embeddingModel);
+        requestBody.put("prompt", text);
+
+        return webClient.post()
+                .uri(ollamaUrl + "/api/embeddings")
+                .header("Content-Type", "application/json")
+                .bodyValue(requestBody)
+                .retrieve()
+                .bodyToMono(String.class)
+                .timeout(Duration.ofSeconds(responseTimeoutSeconds))
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("Empty /api/embeddings response")))
+                .map(this::parseEmbeddingResponse)
+                .doOnError(e -> logger.error("Failed to generate embedding for text: {}",
+                        text.substring(0, Math.min(100, text.length())), e));
+    }
+
+    private float[] parseEmbeddingResponse(String response) {
+        JsonNode root;
         try {
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("model", embeddingModel);
-            requestBody.put("prompt", text);
-
-            String response = webClient.post()
-                    .uri(ollamaUrl + "/api/embeddings")
-                    .header("Content-Type", "application/json")
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            if (response == null) {
-                logger.error("Received null response from Ollama embedding API");
-                return new float[768];
-            }
+            root = objectMapper.readTree(response);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unreadable /api/embeddings response", e);
+        }
 
-            JsonNode root = objectMapper.readTree(response);
-            // logger.debug("Ollama embedding API response: {}", response);
-
-            // Ollama embedding API 응답 형식 확인
-            JsonNode embeddingNode = null;
-            if (root.has("embedding")) {
-                // 직접 embedding 필드가 있는 경우
-                embeddingNode = root.path("embedding");
-            } else if (root.has("data") && root.path("data").isArray() && root.path("data").size() > 0) {
-                // data 배열 안에 embedding이 있는 경우
-                embeddingNode = root.path("data").get(0).path("embedding");
-            }
+        // Ollama embedding API 응답 형식 확인
+        JsonNode embeddingNode = null;
+        if (root.has("embedding")) {
+            // 직접 embedding 필드가 있는 경우
+            embeddingNode = root.path("embedding");
+        } else if (root.has("data") && root.path("data").isArray() && root.path("data").size() > 0) {
+            // data 배열 안에 embedding이 있는 경우
+            embeddingNode = root.path("data").get(0).path("embedding");
+        }
+
+        if (embeddingNode != null && embeddingNode.isArray() && embeddingNode.size() > 0) {
+            float[] result = new float[embeddingNode.size()];
 
-            if (embeddingNode != null && embeddingNode.isArray() && embeddingNode.size() > 0) {
-                float[] result = new float[embeddingNode.size()];
-
-                for (int i = 0; i < embeddingNode.size(); i++) {
-                    result[i] = (float) embeddingNode.get(i).asDouble();
-                }
-
-                // logger.debug("Successfully generated embedding with {} dimensions",
-                // result.length);
-                // logger.debug("First 5 embedding values: [{}, {}, {}, {}, {}]",
-                // result[0], result[1], result[2], result[3], result[4]);
-                return result;
-            } else {
-                logger.error("Invalid response format from Ollama embedding API. Response: {}", response);
-                return new float[768];
+            for (int i = 0; i < embeddingNode.size(); i++) {
+                result[i] = (float) embeddingNode.get(i).asDouble();
             }
+            return result;
+        } else {
+            throw new IllegalStateException("Invalid response format from Ollama embedding API: " + response);
+        }
+    }
+
+    /**
+     * Embed texts through the batch endpoint ({@code /api/embed}), several
+     * batches in flight at once. A batch the endpoint rejects with a 4xx (e.g.
+     * an older Ollama without it) falls back to one {@code /api/embeddings}
+     * call per text. Any other failure, including in the fallback, is thrown
+     * so the caller can fail and retry the chunks instead of storing zero
+     * vectors.
+     */
+    @Override
+    public List<float[]> generateEmbeddings(List<String> texts) {
+        if (texts.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        int size = Math.max(batchSize, 1);
+        List<List<String>> batches = new ArrayList<>();
+        for (int from = 0; from < texts.size(); from += size) {
+            batches.add(texts.subList(from, Math.min(from + size, texts.size())));
+        }
+
+        List<float[]> embeddings = Flux.fromIterable(batches)
+                .flatMapSequential(this::embedBatch, Math.max(maxInFlight, 1))
+                .flatMapIterable(batch -> batch)
+                .collectList()
+                .block();
+        return embeddings != null ? embeddings : Collections.emptyList();
+    }
 
+    private Mono<List<float[]>> embedBatch(List<String> batch) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", embeddingModel);
+        requestBody.put("input", batch);
+
+        return webClient.post()
+                .uri(ollamaUrl + "/api/embed")
+                .header("Content-Type", "application/json")
+                .bodyValue(requestBody)
+                .retrieve()
+                .bodyToMono(String.class)
+                .timeout(Duration.ofSeconds(responseTimeoutSeconds))
+                .map(response -> parseBatchResponse(response, batch.size()))
+                .onErrorResume(e -> e instanceof WebClientResponseException response
+                        && response.getStatusCode().is4xxClientError(), e -> {
+                    logger.warn("Batch embedding of {} texts rejected, embedding one by one: {}",
+                            batch.size(), e.getMessage());
+                    return Flux.fromIterable(batch)
+                            .concatMap(this::generateEmbeddingAsync)
+                            .collectList();
+                });
+    }
+
+    private List<float[]> parseBatchResponse(String response, int expected) {
+        JsonNode embeddingsNode;
+        try {
+            embeddingsNode = objectMapper.readTree(response).path("embeddings");
         } catch (Exception e) {
-            logger.error("Failed to generate embedding for text: {}", text.substring(0, Math.min(100, text.length())),
-                    e);
-            return new float[768]; // Return zero vector on error
+            throw new IllegalStateException("Unreadable /api/embed response", e);
+        }
+        if (!embeddingsNode.isArray() || embeddingsNode.size() != expected) {
+            throw new IllegalStateException("Expected " + expected + " embeddings from /api/embed, got "
+                    + (embeddingsNode.isArray() ? embeddingsNode.size() : 0));
         }
+
+        List<float[]> embeddings = new ArrayList<>(expected);
+        for (JsonNode embeddingNode : embeddingsNode) {
+            float[] result = new float[embeddingNode.size()];
+            for (int i = 0; i < embeddingNode.size(); i++) {
+                result[i] = (float) embeddingNode.get(i).asDouble();
+            }
+            embeddings.add(result);
+        }
+        return embeddings;
     }
 
     @Override
@@ -93,20 +190,13 @@ public class OllamaEmbeddingService implements EmbeddingService {
         return 768; // nomic-embed-text dimension
     }
 
+    @Override
+    public String getModelName() {
+        return embeddingModel;
+    }
+
+    // Server reachable and the embedding model pulled, as of the monitor's last probe
     public boolean isAvailable() {
-        try {
-            String response = webClient.get()
-                    .uri(ollamaUrl + "/api/tags")
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-            return response != null && response.contains(embeddingModel);
-        } catch (WebClientResponseException e) {
-            logger.warn("Ollama service not available: {}", e.getMessage());
-            return false;
-        } catch (Exception e) {
-            logger.warn("Failed to check Ollama availability: {}", e.getMessage());
-            return false;
-        }
+        return healthMonitor.hasModel(embeddingModel);
     }
-}
\ No newline at end of file
+}
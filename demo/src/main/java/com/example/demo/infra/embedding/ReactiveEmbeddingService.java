@@ -0,0 +1,15 @@
+package com.example.demo.infra.embedding;
+
+import reactor.core.publisher.Mono;
+
+public interface ReactiveEmbeddingService extends EmbeddingService {
+
+    /**
+     * Generate embedding vector for the given text without blocking the
+     * calling thread
+     *
+     * @param text Input text to embed
+     * @return Embedding vector as float array
+     */
+    Mono<float[]> generateEmbeddingAsync(String text);
+}
@@ -0,0 +1,115 @@
+package com.example.demo.infra.llm;
+
+import com.example.demo.infra.concurrent.SingleFlight;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Shares one generation between concurrent callers sending the same prompt,
+ * e.g. several advanced evaluations of the same mission at once; the local
+ * model would otherwise run them one after another.
+ */
+@Service
+@Primary
+@RequiredArgsConstructor
+public class CoalescingLlmClient implements ReactiveLlmClient {
+
+    private static final String ERROR_PREFIX = "Error:";
+
+    private final OllamaClient delegate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${llm.coalesce.enabled:true}")
+    private boolean enabled;
+
+    // How long a finished response stays shareable; 0 = only while in flight
+    @Value("${llm.coalesce.windowMs:0}")
+    private long windowMs;
+
+    // normalized (whitespace-insensitive) or exact
+    @Value("${llm.coalesce.key:normalized}")
+    private String keyMode;
+
+    @Value("${llm.ollama.model:llama3}")
+    private String modelName;
+
+    private SingleFlight<String, String> flights;
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            flights = new SingleFlight<>("llm", windowMs, meterRegistry);
+        }
+    }
+
+    @Override
+    public String generateResponse(String prompt) {
+        if (flights == null || prompt == null) {
+            return delegate.generateResponse(prompt);
+        }
+        try {
+            return flights.execute(key(prompt), () -> checked(delegate.generateResponse(prompt)));
+        } catch (FailedResponse e) {
+            return e.response;
+        }
+    }
+
+    @Override
+    public Mono<String> generateResponseAsync(String prompt) {
+        if (flights == null || prompt == null) {
+            return delegate.generateResponseAsync(prompt);
+        }
+        // The shared generation keeps running when one caller cancels
+        return Mono.fromFuture(() -> flights.executeAsync(key(prompt),
+                        () -> delegate.generateResponseAsync(prompt).map(CoalescingLlmClient::checked).toFuture()), true)
+                .onErrorResume(FailedResponse.class, e -> Mono.just(e.response));
+    }
+
+    // Each streaming caller gets its own token stream
+    @Override
+    public Flux<String> streamResponse(String prompt) {
+        return delegate.streamResponse(prompt);
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return delegate.isAvailable();
+    }
+
+    @Override
+    public Mono<Boolean> isAvailableAsync() {
+        return delegate.isAvailableAsync();
+    }
+
+    /**
+     * OllamaClient reports failures as an "Error: ..." answer. Raise them as a
+     * failure inside the flight so waiting callers get the same text but the
+     * result is not kept for the window; the callers unwrap it again.
+     */
+    private static String checked(String response) {
+        if (response != null && response.startsWith(ERROR_PREFIX)) {
+            throw new FailedResponse(response);
+        }
+        return response;
+    }
+
+    private String key(String prompt) {
+        return SingleFlight.textKey(modelName, prompt, !"exact".equalsIgnoreCase(keyMode));
+    }
+
+    private static final class FailedResponse extends RuntimeException {
+        private final String response;
+
+        FailedResponse(String response) {
+            super(response, null, false, false);
+            this.response = response;
+        }
+    }
+}
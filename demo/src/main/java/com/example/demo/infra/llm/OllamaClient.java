@@ -5,15 +5,24 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Ollama client on the shared, pooled {@code ollamaWebClient}. Every call is
+ * non-blocking underneath; the blocking {@link LlmClient} methods wait on
+ * the reactive ones. Availability comes from {@link OllamaHealthMonitor},
+ * which every call reports its outcome to.
+ */
 @Service
-public class OllamaClient implements LlmClient {
+public class OllamaClient implements ReactiveLlmClient {
 
     private static final Logger logger = LoggerFactory.getLogger(OllamaClient.class);
 
@@ -23,57 +32,110 @@ public class OllamaClient implements LlmClient {
     @Value("${llm.ollama.model:llama3}")
     private String modelName;
 
-    private final RestTemplate restTemplate;
+    // Whole-response limit for non-streaming generation
+    @Value("${llm.http.responseTimeoutSeconds:300}")
+    private long responseTimeoutSeconds;
+
+    private final WebClient webClient;
+    private final OllamaHealthMonitor healthMonitor;
     private final ObjectMapper objectMapper;
 
-    public OllamaClient() {
-        this.restTemplate = new RestTemplate();
+    public OllamaClient(WebClient ollamaWebClient, OllamaHealthMonitor healthMonitor) {
+        this.webClient = ollamaWebClient;
+        this.healthMonitor = healthMonitor;
         this.objectMapper = new ObjectMapper();
     }
 
     @Override
     public String generateResponse(String prompt) {
-        try {
-            String url = ollamaUrl + "/api/generate";
-
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("model", modelName);
-            requestBody.put("prompt", prompt);
-            requestBody.put("stream", false);
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-
-            HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
-
-            ResponseEntity<String> response = restTemplate.postForEntity(url, request, String.class);
-
-            if (response.getStatusCode() == HttpStatus.OK) {
-                JsonNode jsonResponse = objectMapper.readTree(response.getBody());
-                String generatedText = jsonResponse.get("response").asText();
-                logger.debug("Generated response from Ollama: {}",
-                        generatedText.substring(0, Math.min(100, generatedText.length())));
-                return generatedText;
-            } else {
-                logger.error("Ollama API returned status: {}", response.getStatusCode());
-                return "Error: Unable to generate response";
-            }
-
-        } catch (Exception e) {
-            logger.error("Failed to generate response from Ollama", e);
-            return "Error: " + e.getMessage();
-        }
+        return generateResponseAsync(prompt).block();
+    }
+
+    @Override
+    public Mono<String> generateResponseAsync(String prompt) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", modelName);
+        requestBody.put("prompt", prompt);
+        requestBody.put("stream", false);
+
+        return webClient.post()
+                .uri(ollamaUrl + "/api/generate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requestBody)
+                .retrieve()
+                .bodyToMono(String.class)
+                .timeout(Duration.ofSeconds(responseTimeoutSeconds))
+                .map(response -> {
+                    try {
+                        String generatedText = objectMapper.readTree(response).get("response").asText();
+                        logger.debug("Generated response from Ollama: {}",
+                                generatedText.substring(0, Math.min(100, generatedText.length())));
+                        return generatedText;
+                    } catch (Exception e) {
+                        throw new IllegalStateException("Unreadable Ollama response", e);
+                    }
+                })
+                .doOnNext(response -> healthMonitor.recordSuccess())
+                .onErrorResume(e -> {
+                    logger.error("Failed to generate response from Ollama", e);
+                    healthMonitor.recordFailure(e);
+                    return Mono.just("Error: " + e.getMessage());
+                });
+    }
+
+    /**
+     * Ollama streams {@code /api/generate} as NDJSON: one object per line with
+     * the next {@code response} fragment, the last one flagged {@code done}.
+     * Cancelling the returned Flux closes the connection, which makes Ollama
+     * stop generating.
+     */
+    @Override
+    public Flux<String> streamResponse(String prompt) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", modelName);
+        requestBody.put("prompt", prompt);
+        requestBody.put("stream", true);
+
+        return webClient.post()
+                .uri(ollamaUrl + "/api/generate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(requestBody)
+                .retrieve()
+                .bodyToFlux(String.class) // Split on newlines
+                .<JsonNode>handle((line, sink) -> {
+                    if (line.isBlank()) {
+                        return;
+                    }
+                    try {
+                        JsonNode node = objectMapper.readTree(line);
+                        if (node.hasNonNull("error")) {
+                            sink.error(new IllegalStateException("Ollama error: " + node.get("error").asText()));
+                        } else {
+                            sink.next(node);
+                        }
+                    } catch (Exception e) {
+                        sink.error(new IllegalStateException("Unreadable Ollama stream line: " + line, e));
+                    }
+                })
+                .takeUntil(node -> node.path("done").asBoolean(false))
+                .map(node -> node.path("response").asText(""))
+                .filter(token -> !token.isEmpty())
+                .doOnComplete(healthMonitor::recordSuccess)
+                .doOnError(e -> {
+                    logger.error("Streaming response from Ollama failed: {}", e.getMessage());
+                    healthMonitor.recordFailure(e);
+                });
     }
 
+    // Volatile read of the monitor's circuit state, no request to Ollama
     @Override
     public boolean isAvailable() {
-        try {
-            String url = ollamaUrl + "/api/tags";
-            ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
-            return response.getStatusCode() == HttpStatus.OK;
-        } catch (Exception e) {
-            logger.debug("Ollama service not available: {}", e.getMessage());
-            return false;
-        }
+        return healthMonitor.isAvailable();
+    }
+
+    @Override
+    public Mono<Boolean> isAvailableAsync() {
+        return Mono.fromSupplier(healthMonitor::isAvailable);
     }
-}
\ No newline at end of file
+}
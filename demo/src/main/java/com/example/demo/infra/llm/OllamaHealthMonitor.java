@@ -0,0 +1,304 @@
+package com.example.demo.infra.llm;
+
+import com.example.demo.global.enums.CircuitState;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Exceptions;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background availability check for the Ollama server, with a circuit
+ * breaker in front of LLM calls.
+ *
+ * A single thread probes {@code /api/tags} every
+ * {@code llm.health.intervalSeconds}; a probe succeeds when the server
+ * answers within {@code llm.health.timeoutMs} and lists the configured model.
+ * After {@code llm.health.failureThreshold} consecutive failures (probes, or
+ * calls reported by the client) the circuit opens and
+ * {@link #isAvailable()} turns false, so callers fail fast without touching
+ * the network. After {@code llm.health.openSeconds} a trial probe runs in the
+ * half-open state: success closes the circuit, failure reopens it with the
+ * wait doubled up to {@code llm.health.maxOpenSeconds}.
+ *
+ * The first probe runs during startup, so the state and the model list are
+ * known before the first request. The request path only reads volatile fields.
+ */
+@Service
+public class OllamaHealthMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(OllamaHealthMonitor.class);
+
+    private static final int MAX_ERROR_LENGTH = 200;
+
+    private final WebClient webClient;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${llm.ollama.url:http://localhost:11434}")
+    private String ollamaUrl;
+
+    @Value("${llm.ollama.model:llama3}")
+    private String modelName;
+
+    @Value("${llm.health.intervalSeconds:10}")
+    private long intervalSeconds;
+
+    @Value("${llm.health.timeoutMs:2000}")
+    private long timeoutMs;
+
+    @Value("${llm.health.failureThreshold:2}")
+    private int failureThreshold;
+
+    @Value("${llm.health.openSeconds:15}")
+    private long openSeconds;
+
+    @Value("${llm.health.maxOpenSeconds:120}")
+    private long maxOpenSeconds;
+
+    private volatile CircuitState state = CircuitState.HALF_OPEN;
+    private volatile Set<String> models = Collections.emptySet();
+    private volatile String lastError;
+    private volatile LocalDateTime lastProbeAt;
+    private volatile LocalDateTime stateSince = LocalDateTime.now();
+
+    private int consecutiveFailures;
+    private long currentOpenSeconds;
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> nextProbe;
+    private final EnumMap<CircuitState, Counter> transitions = new EnumMap<>(CircuitState.class);
+
+    public OllamaHealthMonitor(WebClient ollamaWebClient, MeterRegistry meterRegistry) {
+        this.webClient = ollamaWebClient;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        currentOpenSeconds = Math.max(openSeconds, 1);
+        for (CircuitState target : CircuitState.values()) {
+            transitions.put(target, Counter.builder("llm.circuit.transitions").tag("to", target.name())
+                    .description("LLM circuit breaker state changes").register(meterRegistry));
+        }
+        Gauge.builder("llm.circuit.open", this, monitor -> monitor.isAvailable() ? 0 : 1)
+                .description("1 while LLM requests are rejected without calling the server")
+                .register(meterRegistry);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ollama-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        probe();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Whether LLM requests may go to the server (circuit closed)
+     */
+    public boolean isAvailable() {
+        return state == CircuitState.CLOSED;
+    }
+
+    /**
+     * Whether the last successful probe listed the model; a name without a tag
+     * matches its {@code :latest} tag
+     */
+    public boolean hasModel(String model) {
+        Set<String> listed = models;
+        return listed.contains(model) || (!model.contains(":") && listed.contains(model + ":latest"));
+    }
+
+    public CircuitState getState() {
+        return state;
+    }
+
+    public LocalDateTime getStateSince() {
+        return stateSince;
+    }
+
+    public LocalDateTime getLastProbeAt() {
+        return lastProbeAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * A call to the model succeeded
+     */
+    public synchronized void recordSuccess() {
+        if (state == CircuitState.CLOSED) {
+            consecutiveFailures = 0;
+        }
+    }
+
+    /**
+     * A call to the model failed; enough consecutive failures open the circuit
+     * without waiting for the next probe
+     */
+    public synchronized void recordFailure(Throwable error) {
+        if (state != CircuitState.CLOSED) {
+            return;
+        }
+        lastError = describe(error);
+        if (++consecutiveFailures >= failureThreshold) {
+            open();
+        }
+    }
+
+    private void probe() {
+        boolean trial = false;
+        synchronized (this) {
+            if (state == CircuitState.OPEN) {
+                transition(CircuitState.HALF_OPEN);
+                trial = true;
+            }
+        }
+
+        String error = null;
+        try {
+            String response = webClient.get()
+                    .uri(ollamaUrl + "/api/tags")
+                    .retrieve()
+                    .bodyToMono(String.class)
+                    .timeout(Duration.ofMillis(timeoutMs))
+                    .block();
+            models = parseModels(response);
+            if (!hasModel(modelName)) {
+                error = "Model " + modelName + " is not pulled";
+            }
+        } catch (RuntimeException e) {
+            error = describe(Exceptions.unwrap(e));
+        }
+        lastProbeAt = LocalDateTime.now();
+
+        synchronized (this) {
+            if (error == null) {
+                lastError = null;
+                consecutiveFailures = 0;
+                currentOpenSeconds = Math.max(openSeconds, 1);
+                if (state != CircuitState.CLOSED) {
+                    transition(CircuitState.CLOSED);
+                }
+                schedule(intervalSeconds);
+            } else {
+                lastError = error;
+                consecutiveFailures++;
+                if (trial) {
+                    // Trial failed: wait longer before the next one
+                    currentOpenSeconds = Math.min(currentOpenSeconds * 2, Math.max(maxOpenSeconds, openSeconds));
+                    open();
+                } else if (state == CircuitState.HALF_OPEN) {
+                    // Startup probe: no earlier success to fall back on
+                    open();
+                } else if (consecutiveFailures >= failureThreshold) {
+                    open();
+                } else {
+                    schedule(intervalSeconds);
+                }
+            }
+        }
+    }
+
+    // Caller holds the lock
+    private void open() {
+        transition(CircuitState.OPEN);
+        schedule(currentOpenSeconds);
+    }
+
+    // Caller holds the lock
+    private void transition(CircuitState target) {
+        if (state == target) {
+            return;
+        }
+        CircuitState previous = state;
+        state = target;
+        stateSince = LocalDateTime.now();
+        transitions.get(target).increment();
+        if (target == CircuitState.OPEN) {
+            logger.warn("LLM circuit opened after {} consecutive failures ({}), next trial in {}s",
+                    consecutiveFailures, lastError, currentOpenSeconds);
+        } else if (target == CircuitState.CLOSED) {
+            logger.info("LLM circuit closed, {} at {} is available", modelName, ollamaUrl);
+        } else {
+            logger.debug("LLM circuit {} -> {}", previous, target);
+        }
+    }
+
+    // Caller holds the lock
+    private void schedule(long delaySeconds) {
+        if (scheduler == null || scheduler.isShutdown()) {
+            return;
+        }
+        if (nextProbe != null) {
+            nextProbe.cancel(false);
+        }
+        nextProbe = scheduler.schedule(this::probeSafely, Math.max(delaySeconds, 1), TimeUnit.SECONDS);
+    }
+
+    private void probeSafely() {
+        try {
+            probe();
+        } catch (RuntimeException e) {
+            logger.error("LLM health probe failed unexpectedly", e);
+            synchronized (this) {
+                schedule(intervalSeconds);
+            }
+        }
+    }
+
+    private Set<String> parseModels(String response) {
+        Set<String> names = new HashSet<>();
+        try {
+            JsonNode root = objectMapper.readTree(response == null ? "{}" : response);
+            for (JsonNode model : root.path("models")) {
+                if (model.hasNonNull("name")) {
+                    names.add(model.get("name").asText());
+                }
+                if (model.hasNonNull("model")) {
+                    names.add(model.get("model").asText());
+                }
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Unreadable /api/tags response", e);
+        }
+        return names;
+    }
+
+    private static String describe(Throwable error) {
+        String message = error.getClass().getSimpleName() + (error.getMessage() != null ? ": " + error.getMessage() : "");
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
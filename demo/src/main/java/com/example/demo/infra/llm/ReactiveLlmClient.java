@@ -0,0 +1,21 @@
+package com.example.demo.infra.llm;
+
+import reactor.core.publisher.Mono;
+
+public interface ReactiveLlmClient extends StreamingLlmClient {
+
+    /**
+     * Generate a response without blocking the calling thread
+     *
+     * @param prompt The input prompt
+     * @return Generated response text
+     */
+    Mono<String> generateResponseAsync(String prompt);
+
+    /**
+     * Check if the LLM service is available without blocking the calling thread
+     *
+     * @return true if available, false otherwise
+     */
+    Mono<Boolean> isAvailableAsync();
+}
@@ -0,0 +1,15 @@
+package com.example.demo.infra.llm;
+
+import reactor.core.publisher.Flux;
+
+public interface StreamingLlmClient extends LlmClient {
+
+    /**
+     * Generate a response token by token
+     *
+     * @param prompt The input prompt
+     * @return Response fragments in the order the model produces them;
+     *         cancelling the subscription stops the generation
+     */
+    Flux<String> streamResponse(String prompt);
+}
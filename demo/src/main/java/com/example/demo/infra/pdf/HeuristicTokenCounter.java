@@ -0,0 +1,34 @@
+package com.example.demo.infra.pdf;
+
+/**
+ * Length-based estimate used when no vocabulary is available.
+ *
+ * Each whitespace-separated word counts as one token per 4 characters, rounded
+ * up. Counting per word keeps the estimate additive: a span's count is the sum
+ * of its sentences' counts, which the chunker relies on to stay within the
+ * chunk size.
+ */
+public class HeuristicTokenCounter implements TokenCounter {
+
+    private static final int CHARS_PER_TOKEN = 4;
+
+    @Override
+    public int count(CharSequence text, int start, int end) {
+        int tokens = 0;
+        int wordLength = 0;
+        for (int i = start; i < end; i++) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                tokens += (wordLength + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+                wordLength = 0;
+            } else {
+                wordLength++;
+            }
+        }
+        return tokens + (wordLength + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    @Override
+    public String name() {
+        return "words4";
+    }
+}
@@ -1,52 +1,196 @@
 package com.example.demo.infra.pdf;
 
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.DefaultResourceCache;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class PdfTextExtractor {
 
     private static final Logger logger = LoggerFactory.getLogger(PdfTextExtractor.class);
 
-    public List<PageText> extractTextFromPdf(File pdfFile) {
-        List<PageText> pages = new ArrayList<>();
+    // Files above this size are parsed with temp-file buffers instead of heap buffers
+    @Value("${rag.pdf.tempFileThresholdMb:32}")
+    private long tempFileThresholdMb;
+
+    // Extra threads for page ranges of one large PDF; 0 = one thread per document
+    @Value("${rag.pdf.parallel.threads:0}")
+    private int parallelThreads;
+
+    // Documents with fewer pages are never split
+    @Value("${rag.pdf.parallel.minPages:200}")
+    private int parallelMinPages;
+
+    private ExecutorService rangePool;
+
+    @PostConstruct
+    public void init() {
+        if (parallelThreads > 0) {
+            AtomicInteger threadCount = new AtomicInteger();
+            rangePool = Executors.newFixedThreadPool(parallelThreads, runnable -> {
+                Thread thread = new Thread(runnable, "pdf-extract-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
 
-        try (PDDocument document = PDDocument.load(pdfFile)) {
-            logger.info("Processing PDF: {} ({} pages)", pdfFile.getName(), document.getNumberOfPages());
+    @PreDestroy
+    public void shutdown() {
+        if (rangePool != null) {
+            rangePool.shutdownNow();
+        }
+    }
 
-            PDFTextStripper stripper = new PDFTextStripper();
+    public List<PageText> extractTextFromPdf(File pdfFile) {
+        List<PageText> pages = Collections.synchronizedList(new ArrayList<>());
+        try {
+            extractPages(pdfFile, pages::add);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("PDF text extraction interrupted", e);
+        }
+        pages.sort(Comparator.comparingInt(PageText::getPageNumber));
+        return pages;
+    }
 
-            // Extract text page by page
-            for (int pageNum = 1; pageNum <= document.getNumberOfPages(); pageNum++) {
-                stripper.setStartPage(pageNum);
-                stripper.setEndPage(pageNum);
+    /**
+     * Extract text page by page, handing each non-empty page to the consumer
+     * as soon as it is read; only the page being stripped is held in memory.
+     *
+     * Large documents may be split into page ranges that are parsed in parallel
+     * on separate {@link PDDocument} instances. Pages then arrive out of order
+     * and from several threads, so the consumer must be thread-safe.
+     */
+    public void extractPages(File pdfFile, PageConsumer consumer) throws InterruptedException {
+        try (PDDocument document = load(pdfFile)) {
+            int pageCount = document.getNumberOfPages();
+            int ranges = rangePool == null || pageCount < parallelMinPages
+                    ? 1
+                    : Math.min(parallelThreads + 1, pageCount);
+            logger.info("Processing PDF: {} ({} pages{})", pdfFile.getName(), pageCount,
+                    ranges > 1 ? ", " + ranges + " parallel ranges" : "");
+
+            int extractedPages = ranges == 1
+                    ? extractRange(document, 1, pageCount, consumer)
+                    : extractParallel(pdfFile, document, ranges, consumer);
+
+            logger.info("Successfully extracted text from {} pages in {}", extractedPages, pdfFile.getName());
 
-                String pageText = stripper.getText(document);
+        } catch (IOException e) {
+            logger.error("Failed to extract text from PDF: {}", pdfFile.getName(), e);
+            throw new RuntimeException("PDF text extraction failed", e);
+        }
+    }
 
-                if (pageText != null && !pageText.trim().isEmpty()) {
-                    pages.add(new PageText(pageNum, pageText.trim()));
-                    logger.debug("Extracted text from page {}: {} characters", pageNum, pageText.length());
-                } else {
-                    logger.debug("Page {} is empty or contains no text", pageNum);
+    /**
+     * Split the pages into contiguous ranges; the calling thread extracts the
+     * first range from the already open document, the pool the others, each
+     * from its own document instance.
+     */
+    private int extractParallel(File pdfFile, PDDocument document, int ranges, PageConsumer consumer)
+            throws IOException, InterruptedException {
+        int pageCount = document.getNumberOfPages();
+        int rangePages = (pageCount + ranges - 1) / ranges;
+
+        List<Future<Integer>> futures = new ArrayList<>(ranges - 1);
+        for (int first = rangePages + 1; first <= pageCount; first += rangePages) {
+            int start = first;
+            int end = Math.min(first + rangePages - 1, pageCount);
+            futures.add(rangePool.submit(() -> {
+                try (PDDocument rangeDocument = load(pdfFile)) {
+                    return extractRange(rangeDocument, start, end, consumer);
                 }
+            }));
+        }
+
+        int extractedPages = 0;
+        boolean completed = false;
+        try {
+            extractedPages += extractRange(document, 1, Math.min(rangePages, pageCount), consumer);
+            for (Future<Integer> future : futures) {
+                extractedPages += future.get();
             }
+            completed = true;
+            return extractedPages;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof InterruptedException) {
+                throw new InterruptedException("PDF page range extraction interrupted");
+            }
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new RuntimeException("PDF text extraction failed", cause);
+        } catch (CancellationException e) {
+            throw new InterruptedException("PDF page range extraction cancelled");
+        } finally {
+            if (!completed) {
+                futures.forEach(future -> future.cancel(true));
+            }
+        }
+    }
 
-            logger.info("Successfully extracted text from {} pages in {}", pages.size(), pdfFile.getName());
+    private int extractRange(PDDocument document, int firstPage, int lastPage, PageConsumer consumer)
+            throws IOException, InterruptedException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        int extractedPages = 0;
 
-        } catch (IOException e) {
-            logger.error("Failed to extract text from PDF: {}", pdfFile.getName(), e);
-            throw new RuntimeException("PDF text extraction failed", e);
+        // Extract text page by page
+        for (int pageNum = firstPage; pageNum <= lastPage; pageNum++) {
+            stripper.setStartPage(pageNum);
+            stripper.setEndPage(pageNum);
+
+            String pageText = stripper.getText(document);
+
+            if (pageText != null && !pageText.trim().isEmpty()) {
+                consumer.accept(new PageText(pageNum, pageText.trim()));
+                extractedPages++;
+                logger.debug("Extracted text from page {}: {} characters", pageNum, pageText.length());
+            } else {
+                logger.debug("Page {} is empty or contains no text", pageNum);
+            }
         }
+        return extractedPages;
+    }
 
-        return pages;
+    private PDDocument load(File pdfFile) throws IOException {
+        boolean large = pdfFile.length() > tempFileThresholdMb * 1024 * 1024;
+        PDDocument document = PDDocument.load(pdfFile,
+                large ? MemoryUsageSetting.setupTempFileOnly() : MemoryUsageSetting.setupMainMemoryOnly());
+        // Text extraction never draws images, so decoded XObjects (scans) are not worth caching
+        document.setResourceCache(new DefaultResourceCache() {
+            @Override
+            public void put(COSObject indirect, PDXObject xobject) {
+            }
+        });
+        return document;
+    }
+
+    public interface PageConsumer {
+        void accept(PageText page) throws InterruptedException;
     }
 
     public static class PageText {
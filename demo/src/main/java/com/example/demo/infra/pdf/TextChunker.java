@@ -1,116 +1,265 @@
 package com.example.demo.infra.pdf;
 
+import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PostConstruct;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Pattern;
 
+/**
+ * Sentence-packing chunker that works on character offsets.
+ *
+ * The page is scanned once: sentence boundaries (terminal punctuation followed
+ * by whitespace, or a blank-line paragraph break) are recorded as int offsets,
+ * sentences are packed greedily up to {@code rag.pdf.chunk.size} tokens, and
+ * each chunk restarts with the trailing sentences of the previous one that fit
+ * in {@code rag.pdf.chunk.overlap} tokens. A chunk is a contiguous span of the
+ * page text, so no sentence strings are built; the chunk's own string is
+ * created only when it is first asked for.
+ *
+ * Tokens are counted by the configured {@link TokenCounter}. A sentence longer
+ * than the chunk size is split at word boundaries, and the overlap is trimmed
+ * when it would push a chunk over the limit, so no chunk exceeds the size
+ * unless a single word does.
+ */
 @Service
+@RequiredArgsConstructor
 public class TextChunker {
 
     private static final Logger logger = LoggerFactory.getLogger(TextChunker.class);
 
-    private static final int MAX_CHUNK_TOKENS = 512;
-    private static final int OVERLAP_TOKENS = 50;
-    private static final Pattern SENTENCE_ENDINGS = Pattern.compile("[.!?]+\\s+");
-    private static final Pattern PARAGRAPH_BREAKS = Pattern.compile("\\n\\s*\\n");
+    @Value("${rag.pdf.chunk.size:512}")
+    private int maxChunkTokens;
 
-    public List<TextChunk> chunkText(String text, String sourcePath, int pageNumber) {
-        List<TextChunk> chunks = new ArrayList<>();
+    @Value("${rag.pdf.chunk.overlap:50}")
+    private int overlapTokens;
 
-        if (text == null || text.trim().isEmpty()) {
-            return chunks;
-        }
+    private final TokenCounter tokenCounter;
 
-        // Split by paragraphs first
-        String[] paragraphs = PARAGRAPH_BREAKS.split(text);
-        List<String> sentences = new ArrayList<>();
+    // Outside Spring, e.g. benchmarks
+    static TextChunker create(TokenCounter tokenCounter, int maxChunkTokens, int overlapTokens) {
+        TextChunker chunker = new TextChunker(tokenCounter);
+        chunker.maxChunkTokens = maxChunkTokens;
+        chunker.overlapTokens = overlapTokens;
+        chunker.validate();
+        return chunker;
+    }
 
-        // Split paragraphs into sentences
-        for (String paragraph : paragraphs) {
-            if (paragraph.trim().isEmpty())
-                continue;
+    @PostConstruct
+    public void validate() {
+        if (maxChunkTokens <= 0) {
+            throw new IllegalStateException("rag.pdf.chunk.size must be positive: " + maxChunkTokens);
+        }
+        if (overlapTokens < 0 || overlapTokens >= maxChunkTokens) {
+            int clamped = Math.max(0, Math.min(overlapTokens, maxChunkTokens / 2));
+            logger.warn("rag.pdf.chunk.overlap {} must be below the chunk size {}, using {}",
+                    overlapTokens, maxChunkTokens, clamped);
+            overlapTokens = clamped;
+        }
+    }
 
-            String[] paragraphSentences = SENTENCE_ENDINGS.split(paragraph);
-            for (String sentence : paragraphSentences) {
-                if (sentence.trim().isEmpty())
-                    continue;
-                sentences.add(sentence.trim());
-            }
+    public List<TextChunk> chunkText(String text, String sourcePath, int pageNumber) {
+        List<TextChunk> chunks = new ArrayList<>();
+
+        if (text == null || text.isBlank()) {
+            return chunks;
         }
 
-        // Create chunks with overlap
-        List<String> currentChunk = new ArrayList<>();
-        int currentTokens = 0;
+        Sentences sentences = Sentences.scan(text, tokenCounter, maxChunkTokens);
         int chunkIndex = 0;
+        int first = 0;
+        int currentTokens = 0;
 
-        for (String sentence : sentences) {
-            int sentenceTokens = estimateTokenCount(sentence);
+        for (int i = 0; i < sentences.count; i++) {
+            int sentenceTokens = sentences.tokens[i];
 
             // If adding this sentence would exceed max tokens, finalize current chunk
-            if (currentTokens + sentenceTokens > MAX_CHUNK_TOKENS && !currentChunk.isEmpty()) {
-                String chunkText = String.join(" ", currentChunk);
-                chunks.add(new TextChunk(sourcePath, pageNumber, chunkIndex++, chunkText));
+            if (currentTokens + sentenceTokens > maxChunkTokens && i > first) {
+                chunks.add(new TextChunk(sourcePath, pageNumber, chunkIndex++, text,
+                        sentences.starts[first], sentences.ends[i - 1]));
 
-                // Start new chunk with overlap
-                currentChunk = createOverlapChunk(currentChunk);
-                currentTokens = estimateTokenCount(String.join(" ", currentChunk));
+                // Start the next chunk with the trailing sentences that fit in the overlap budget
+                int overlapStart = i;
+                int overlap = 0;
+                while (overlapStart > first && overlap + sentences.tokens[overlapStart - 1] <= overlapTokens) {
+                    overlap += sentences.tokens[--overlapStart];
+                }
+                // Drop overlap sentences the next sentence leaves no room for
+                while (overlapStart < i && overlap + sentenceTokens > maxChunkTokens) {
+                    overlap -= sentences.tokens[overlapStart++];
+                }
+                first = overlapStart;
+                currentTokens = overlap;
             }
 
-            currentChunk.add(sentence);
             currentTokens += sentenceTokens;
         }
 
         // Add final chunk if not empty
-        if (!currentChunk.isEmpty()) {
-            String chunkText = String.join(" ", currentChunk);
-            chunks.add(new TextChunk(sourcePath, pageNumber, chunkIndex, chunkText));
+        if (sentences.count > first) {
+            chunks.add(new TextChunk(sourcePath, pageNumber, chunkIndex, text,
+                    sentences.starts[first], sentences.ends[sentences.count - 1]));
         }
 
-        // logger.debug("Created {} chunks from page {} of {}", chunks.size(),
-        // pageNumber, sourcePath);
         return chunks;
     }
 
-    private List<String> createOverlapChunk(List<String> previousChunk) {
-        List<String> overlap = new ArrayList<>();
-        int overlapTokens = 0;
+    /**
+     * Identifies the chunking rules; chunks produced under a different key
+     * must be regenerated
+     */
+    public String settingsKey() {
+        return "span:" + tokenCounter.name() + ":" + maxChunkTokens + ":" + overlapTokens;
+    }
+
+    /**
+     * Sentence spans of one page as parallel offset/token arrays; ends are
+     * exclusive and exclude trailing whitespace.
+     */
+    private static final class Sentences {
+        private int[] starts = new int[32];
+        private int[] ends = new int[32];
+        private int[] tokens = new int[32];
+        private int count;
+        private final TokenCounter counter;
+        private final int maxTokens;
+
+        private Sentences(TokenCounter counter, int maxTokens) {
+            this.counter = counter;
+            this.maxTokens = maxTokens;
+        }
+
+        static Sentences scan(CharSequence text, TokenCounter counter, int maxTokens) {
+            Sentences sentences = new Sentences(counter, maxTokens);
+            int length = text.length();
+            int pos = 0;
 
-        // Take last sentences that fit within overlap token limit
-        for (int i = previousChunk.size() - 1; i >= 0 && overlapTokens < OVERLAP_TOKENS; i--) {
-            String sentence = previousChunk.get(i);
-            int sentenceTokens = estimateTokenCount(sentence);
+            while (pos < length) {
+                while (pos < length && Character.isWhitespace(text.charAt(pos))) {
+                    pos++;
+                }
+                if (pos == length) {
+                    break;
+                }
 
-            if (overlapTokens + sentenceTokens <= OVERLAP_TOKENS) {
-                overlap.add(0, sentence); // Add to beginning to maintain order
-                overlapTokens += sentenceTokens;
-            } else {
-                break;
+                int start = pos;
+                int end = length;
+                while (pos < length) {
+                    char c = text.charAt(pos);
+                    if (isTerminator(c)) {
+                        int after = pos + 1;
+                        while (after < length && isTerminator(text.charAt(after))) {
+                            after++;
+                        }
+                        pos = after;
+                        if (after == length || Character.isWhitespace(text.charAt(after))) {
+                            end = after;
+                            break;
+                        }
+                    } else if (c == '\n' && isParagraphBreak(text, pos)) {
+                        end = pos;
+                        break;
+                    } else {
+                        pos++;
+                    }
+                }
+
+                while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+                    end--;
+                }
+                sentences.addSentence(text, start, end);
             }
+            return sentences;
         }
 
-        return overlap;
-    }
+        private void addSentence(CharSequence text, int start, int end) {
+            int sentenceTokens = counter.count(text, start, end);
+            if (sentenceTokens <= maxTokens) {
+                add(start, end, sentenceTokens);
+                return;
+            }
+
+            // Too long for one chunk: split into runs of whole words that fit
+            int pieceStart = start;
+            int pieceEnd = start;
+            int pieceTokens = 0;
+            int pos = start;
+            while (pos < end) {
+                int wordStart = pos;
+                while (pos < end && !Character.isWhitespace(text.charAt(pos))) {
+                    pos++;
+                }
+                int wordTokens = counter.count(text, wordStart, pos);
+                if (pieceTokens > 0 && pieceTokens + wordTokens > maxTokens) {
+                    add(pieceStart, pieceEnd, pieceTokens);
+                    pieceStart = wordStart;
+                    pieceTokens = 0;
+                }
+                pieceTokens += wordTokens;
+                pieceEnd = pos;
+                while (pos < end && Character.isWhitespace(text.charAt(pos))) {
+                    pos++;
+                }
+            }
+            add(pieceStart, pieceEnd, pieceTokens);
+        }
+
+        private static boolean isTerminator(char c) {
+            return c == '.' || c == '!' || c == '?';
+        }
+
+        // A newline followed, after optional whitespace, by another newline
+        private static boolean isParagraphBreak(CharSequence text, int newline) {
+            for (int pos = newline + 1; pos < text.length(); pos++) {
+                char c = text.charAt(pos);
+                if (c == '\n') {
+                    return true;
+                }
+                if (!Character.isWhitespace(c)) {
+                    return false;
+                }
+            }
+            return false;
+        }
 
-    private int estimateTokenCount(String text) {
-        // Rough estimation: 1 token ≈ 4 characters for English text
-        return Math.max(1, text.length() / 4);
+        private void add(int start, int end, int sentenceTokens) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+                tokens = Arrays.copyOf(tokens, count * 2);
+            }
+            starts[count] = start;
+            ends[count] = end;
+            tokens[count] = sentenceTokens;
+            count++;
+        }
     }
 
+    /**
+     * A chunk as a {@code [start, end)} span of its page text.
+     */
     public static class TextChunk {
         private final String sourcePath;
         private final int pageNumber;
         private final int chunkIndex;
-        private final String text;
+        private final String pageText;
+        private final int start;
+        private final int end;
+        private String text;
 
-        public TextChunk(String sourcePath, int pageNumber, int chunkIndex, String text) {
+        public TextChunk(String sourcePath, int pageNumber, int chunkIndex, String pageText, int start, int end) {
             this.sourcePath = sourcePath;
             this.pageNumber = pageNumber;
             this.chunkIndex = chunkIndex;
-            this.text = text;
+            this.pageText = pageText;
+            this.start = start;
+            this.end = end;
         }
 
         public String getSourcePath() {
@@ -125,8 +274,29 @@ public class TextChunker {
             return chunkIndex;
         }
 
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        /**
+         * View of the chunk text that does not copy the characters.
+         */
+        public CharSequence asCharSequence() {
+            return CharBuffer.wrap(pageText, start, end);
+        }
+
+        /**
+         * Chunk text, materialized on first use.
+         */
         public String getText() {
+            if (text == null) {
+                text = pageText.substring(start, end);
+            }
             return text;
         }
     }
-}
\ No newline at end of file
+}
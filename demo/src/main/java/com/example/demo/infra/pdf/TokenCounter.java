@@ -0,0 +1,26 @@
+package com.example.demo.infra.pdf;
+
+/**
+ * Counts the tokens the embedding model will see for a piece of text.
+ */
+public interface TokenCounter {
+
+    /**
+     * Count the tokens of {@code text[start, end)} without the model's special
+     * tokens
+     *
+     * @param text  Page text
+     * @param start First character, inclusive
+     * @param end   Last character, exclusive
+     * @return Token count
+     */
+    int count(CharSequence text, int start, int end);
+
+    /**
+     * Identify the tokenization, so chunks sized by another counter are
+     * regenerated
+     *
+     * @return Short stable name
+     */
+    String name();
+}
@@ -0,0 +1,183 @@
+package com.example.demo.infra.pdf;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * BERT-style WordPiece token counter (the tokenizer of nomic-embed-text).
+ *
+ * Text is split on whitespace, punctuation and CJK characters as in BERT's
+ * basic tokenizer (optionally lowercased with accents stripped), and each word
+ * is split greedily into the longest vocabulary pieces, continuation pieces
+ * carrying a {@code ##} prefix. A word that cannot be split counts as one
+ * {@code [UNK]}. Only counts are produced, never ids.
+ *
+ * Per-word counts are memoized: running text repeats a small set of words, so
+ * after warm-up most words cost one map lookup. The cache stops growing at
+ * {@code cacheSize} entries; later words are counted uncached.
+ */
+public class WordPieceTokenCounter implements TokenCounter {
+
+    // BERT's max_input_chars_per_word; longer words become [UNK]
+    private static final int MAX_WORD_CHARS = 100;
+
+    private final Set<String> vocabulary;
+    private final boolean lowercase;
+    private final int cacheSize;
+    private final Map<String, Integer> wordCounts = new ConcurrentHashMap<>();
+
+    public WordPieceTokenCounter(Set<String> vocabulary, boolean lowercase, int cacheSize) {
+        this.vocabulary = vocabulary;
+        this.lowercase = lowercase;
+        this.cacheSize = Math.max(cacheSize, 0);
+    }
+
+    /**
+     * Read a {@code vocab.txt} with one token per line.
+     */
+    public static WordPieceTokenCounter load(InputStream vocab, boolean lowercase, int cacheSize)
+            throws IOException {
+        Set<String> vocabulary = new HashSet<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(vocab, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    vocabulary.add(line);
+                }
+            }
+        }
+        if (vocabulary.isEmpty()) {
+            throw new IOException("Empty WordPiece vocabulary");
+        }
+        return new WordPieceTokenCounter(vocabulary, lowercase, cacheSize);
+    }
+
+    @Override
+    public int count(CharSequence text, int start, int end) {
+        int tokens = 0;
+        int wordStart = -1;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            boolean separator = Character.isWhitespace(c) || Character.isISOControl(c);
+            boolean single = !separator && (isPunctuation(c) || isCjk(c));
+            if (separator || single) {
+                if (wordStart >= 0) {
+                    tokens += countWord(text, wordStart, i);
+                    wordStart = -1;
+                }
+                if (single) {
+                    // A lone punctuation mark or ideograph is one piece (or [UNK])
+                    tokens++;
+                }
+            } else if (wordStart < 0) {
+                wordStart = i;
+            }
+        }
+        if (wordStart >= 0) {
+            tokens += countWord(text, wordStart, end);
+        }
+        return tokens;
+    }
+
+    @Override
+    public String name() {
+        return "wordpiece" + vocabulary.size() + (lowercase ? "u" : "c");
+    }
+
+    /**
+     * Cached words, for diagnostics.
+     */
+    public int cachedWords() {
+        return wordCounts.size();
+    }
+
+    private int countWord(CharSequence text, int start, int end) {
+        String word = text.subSequence(start, end).toString();
+        Integer cached = wordCounts.get(word);
+        if (cached != null) {
+            return cached;
+        }
+
+        int count = wordPieces(normalize(word));
+        if (wordCounts.size() < cacheSize) {
+            wordCounts.put(word, count);
+        }
+        return count;
+    }
+
+    private String normalize(String word) {
+        if (!lowercase) {
+            return word;
+        }
+        String lower = word.toLowerCase();
+        for (int i = 0; i < lower.length(); i++) {
+            if (lower.charAt(i) > 0x7F) {
+                // Strip accents: decompose, then drop combining marks
+                String decomposed = Normalizer.normalize(lower, Normalizer.Form.NFD);
+                StringBuilder stripped = new StringBuilder(decomposed.length());
+                for (int j = 0; j < decomposed.length(); j++) {
+                    char c = decomposed.charAt(j);
+                    if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                        stripped.append(c);
+                    }
+                }
+                return stripped.toString();
+            }
+        }
+        return lower;
+    }
+
+    // Greedy longest-match-first split into vocabulary pieces
+    private int wordPieces(String word) {
+        int length = word.length();
+        if (length == 0) {
+            return 0;
+        }
+        if (length > MAX_WORD_CHARS) {
+            return 1;
+        }
+
+        int pieces = 0;
+        int start = 0;
+        while (start < length) {
+            int end = length;
+            while (end > start) {
+                String piece = start == 0 ? word.substring(0, end) : "##" + word.substring(start, end);
+                if (vocabulary.contains(piece)) {
+                    break;
+                }
+                end--;
+            }
+            if (end == start) {
+                return 1;
+            }
+            pieces++;
+            start = end;
+        }
+        return pieces;
+    }
+
+    private static boolean isPunctuation(char c) {
+        if ((c >= 33 && c <= 47) || (c >= 58 && c <= 64) || (c >= 91 && c <= 96) || (c >= 123 && c <= 126)) {
+            return true;
+        }
+        int type = Character.getType(c);
+        return type == Character.CONNECTOR_PUNCTUATION || type == Character.DASH_PUNCTUATION
+                || type == Character.START_PUNCTUATION || type == Character.END_PUNCTUATION
+                || type == Character.INITIAL_QUOTE_PUNCTUATION || type == Character.FINAL_QUOTE_PUNCTUATION
+                || type == Character.OTHER_PUNCTUATION;
+    }
+
+    private static boolean isCjk(char c) {
+        return (c >= 0x4E00 && c <= 0x9FFF) || (c >= 0x3400 && c <= 0x4DBF)
+                || (c >= 0xF900 && c <= 0xFAFF);
+    }
+}
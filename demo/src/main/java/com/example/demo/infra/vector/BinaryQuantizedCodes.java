@@ -0,0 +1,65 @@
+package com.example.demo.infra.vector;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * One sign bit per dimension packed into longs. Similarity is
+ * {@code dimension - 2 * hamming(q, v)}, i.e. agreeing minus disagreeing signs,
+ * counted with {@link Long#bitCount}.
+ */
+public class BinaryQuantizedCodes implements QuantizedCodes {
+
+    private final int dimension;
+    private final int words;
+    private long[] bits;
+    private int rows;
+
+    public BinaryQuantizedCodes(int dimension) {
+        this.dimension = dimension;
+        this.words = (dimension + Long.SIZE - 1) / Long.SIZE;
+        this.bits = new long[64 * words];
+    }
+
+    @Override
+    public void append(float[] normalizedVector) {
+        if ((rows + 1) * words > bits.length) {
+            bits = Arrays.copyOf(bits, Math.multiplyExact(bits.length, 2));
+        }
+        encode(normalizedVector, bits, rows * words);
+        rows++;
+    }
+
+    @Override
+    public TopKHeap scan(float[] normalizedQuery, int topK, BitSet deleted) {
+        long[] query = new long[words];
+        encode(normalizedQuery, query, 0);
+
+        TopKHeap heap = new TopKHeap(topK);
+        for (int row = 0; row < rows; row++) {
+            if (deleted.get(row)) {
+                continue;
+            }
+            int offset = row * words;
+            int hamming = 0;
+            for (int w = 0; w < words; w++) {
+                hamming += Long.bitCount(query[w] ^ bits[offset + w]);
+            }
+            heap.offer(row, dimension - 2 * hamming);
+        }
+        return heap;
+    }
+
+    @Override
+    public long bytes() {
+        return (long) rows * words * Long.BYTES;
+    }
+
+    private void encode(float[] vector, long[] target, int offset) {
+        for (int i = 0; i < dimension; i++) {
+            if (vector[i] > 0.0f) {
+                target[offset + i / Long.SIZE] |= 1L << (i % Long.SIZE);
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.demo.infra.vector;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Binary embedding format stored in {@code doc_chunks.embedding_bin}:
+ *
+ * <pre>
+ * byte    version (1)
+ * byte[3] reserved
+ * int32   dimension
+ * float32[dimension] values
+ * </pre>
+ *
+ * All values are little-endian.
+ */
+public final class EmbeddingCodec {
+
+    private static final byte VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+
+    private EmbeddingCodec() {
+    }
+
+    public static byte[] encode(float[] embedding) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + embedding.length * Float.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(VERSION).put((byte) 0).put((byte) 0).put((byte) 0);
+        buffer.putInt(embedding.length);
+        buffer.asFloatBuffer().put(embedding);
+        return buffer.array();
+    }
+
+    public static float[] decode(byte[] bytes) {
+        if (bytes.length < HEADER_BYTES) {
+            throw new IllegalArgumentException("Embedding blob too short: " + bytes.length + " bytes");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        byte version = buffer.get(0);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported embedding blob version: " + version);
+        }
+
+        int dimension = buffer.getInt(4);
+        if (dimension < 0 || bytes.length != HEADER_BYTES + dimension * Float.BYTES) {
+            throw new IllegalArgumentException(
+                    "Embedding blob size " + bytes.length + " does not match dimension " + dimension);
+        }
+
+        float[] embedding = new float[dimension];
+        buffer.position(HEADER_BYTES);
+        buffer.asFloatBuffer().get(embedding);
+        return embedding;
+    }
+}
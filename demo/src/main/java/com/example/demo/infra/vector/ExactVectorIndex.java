@@ -0,0 +1,452 @@
+package com.example.demo.infra.vector;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Brute-force index: scores the query against every stored vector.
+ *
+ * Vectors are kept pre-normalized in contiguous {@link VectorMatrix} rows, so
+ * each comparison is a single dot product and top-K selection uses a bounded
+ * heap instead of sorting every score. Large segments can be scanned
+ * shard-wise through a {@link ParallelScan}. With a {@link Quantization} other
+ * than NONE, a first pass over the compact codes picks
+ * {@code topK * rescoreFactor} candidates, which are then rescored against the
+ * float rows. The dimension is fixed by the first insert.
+ *
+ * Storage is copy-on-write: every change builds immutable
+ * {@link VectorSegment}s and publishes a new {@link View} through a single
+ * volatile field. Searches read that field once and scan the view without any
+ * lock, so ingestion never stalls queries and a query never sees half of a
+ * {@link #replace} call. Writers are serialized among themselves. Each write
+ * adds a segment, so a background merger folds small segments together
+ * (tiered by size, {@value #MERGE_FACTOR} at a time) and rewrites segments
+ * that are mostly tombstones, keeping the segment count low.
+ *
+ * An id is resolved to its row through the segment matrices' own id maps,
+ * so adopting a mapped snapshot through {@link #addRows} does not build a
+ * second per-id structure; a mapped segment builds its map on the first
+ * write that looks an id up.
+ */
+public class ExactVectorIndex implements VectorIndex, AutoCloseable {
+
+    // Segments of a similar size merged at once
+    private static final int MERGE_FACTOR = 4;
+
+    private final SimilarityKernel kernel;
+    private final ParallelScan parallelScan;
+    private final Quantization quantization;
+    private final int rescoreFactor;
+    private final int maxSegments;
+
+    private volatile View view = View.EMPTY;
+
+    // Serializes writers
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final ExecutorService merger;
+    private final AtomicBoolean mergeScheduled = new AtomicBoolean(false);
+
+    public ExactVectorIndex(SimilarityKernel kernel) {
+        this(kernel, null, Quantization.NONE, 1, 16);
+    }
+
+    public ExactVectorIndex(SimilarityKernel kernel, ParallelScan parallelScan, Quantization quantization,
+            int rescoreFactor, int maxSegments) {
+        this.kernel = kernel;
+        this.parallelScan = parallelScan;
+        this.quantization = quantization;
+        this.rescoreFactor = Math.max(rescoreFactor, 1);
+        this.maxSegments = Math.max(maxSegments, 2);
+        this.merger = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "vector-segment-merge");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void add(long id, float[] vector) {
+        replace(Collections.emptyList(), List.of(id), List.of(vector));
+    }
+
+    @Override
+    public boolean remove(long id) {
+        writeLock.lock();
+        try {
+            Map<VectorMatrix, BitSet> tombstones = new IdentityHashMap<>();
+            if (!tombstone(view, id, tombstones)) {
+                return false;
+            }
+            publish(tombstones, Collections.emptyList(), null);
+        } finally {
+            writeLock.unlock();
+        }
+        scheduleMerge();
+        return true;
+    }
+
+    @Override
+    public void replace(Collection<Long> removeIds, List<Long> addIds, List<float[]> vectors) {
+        // Build the new segment before taking the lock; only publishing is serialized
+        VectorSegment added = addIds.isEmpty() ? null : VectorSegment.build(addIds, vectors, kernel, quantization);
+
+        writeLock.lock();
+        try {
+            int dimension = view.dimension;
+            if (added != null && dimension != 0 && added.matrix().dimension() != dimension) {
+                throw new IllegalArgumentException(
+                        "Embedding dimension mismatch: " + added.matrix().dimension() + " vs " + dimension);
+            }
+            apply(removeIds, added);
+        } finally {
+            writeLock.unlock();
+        }
+        scheduleMerge();
+    }
+
+    /**
+     * The matrix becomes a segment as is, so mapped rows are scanned in place.
+     */
+    @Override
+    public void addRows(VectorMatrix rows) {
+        if (rows.liveRows() == 0) {
+            return;
+        }
+        VectorSegment added = VectorSegment.freeze(rows, quantization);
+
+        writeLock.lock();
+        try {
+            int dimension = view.dimension;
+            if (dimension != 0 && rows.dimension() != dimension) {
+                throw new IllegalArgumentException(
+                        "Embedding dimension mismatch: " + rows.dimension() + " vs " + dimension);
+            }
+            apply(Collections.emptyList(), added);
+        } finally {
+            writeLock.unlock();
+        }
+        scheduleMerge();
+    }
+
+    @Override
+    public List<VectorHit> search(float[] query, int topK) {
+        View current = view;
+        if (current.liveRows == 0 || query.length != current.dimension || topK <= 0) {
+            return Collections.emptyList();
+        }
+
+        float[] q = VectorMatrix.normalize(query);
+        TopKHeap heap = new TopKHeap(topK);
+        for (int i = 0; i < current.segments.length; i++) {
+            heap.merge(scan(current.segments[i], q, topK), current.bases[i]);
+        }
+        TopKHeap.Sorted top = heap.drainDescending();
+
+        List<VectorHit> hits = new ArrayList<>(top.size());
+        for (int i = 0; i < top.size(); i++) {
+            hits.add(new VectorHit(current.id(top.row(i)), top.score(i)));
+        }
+        return hits;
+    }
+
+    @Override
+    public QuantizationReport evaluateQuantization(int k, int samples, int rescoreFactor) {
+        View current = view;
+        if (current.liveRows == 0) {
+            return null;
+        }
+
+        // Copy the live rows into one matrix; the evaluator works on row numbers
+        VectorMatrix combined = new VectorMatrix(current.dimension, kernel);
+        for (VectorSegment segment : current.segments) {
+            for (int row = 0; row < segment.rows(); row++) {
+                if (!segment.isDeleted(row)) {
+                    combined.append(segment.matrix().id(row), segment.matrix().row(row));
+                }
+            }
+        }
+        return QuantizationEvaluator.evaluate(combined, k, samples, rescoreFactor);
+    }
+
+    @Override
+    public void export(VectorSink sink) throws IOException {
+        View current = view;
+        sink.begin(current.liveRows, current.dimension);
+        for (VectorSegment segment : current.segments) {
+            segment.matrix().exportRows(sink, segment.deleted());
+        }
+    }
+
+    @Override
+    public int size() {
+        return view.liveRows;
+    }
+
+    /**
+     * Number of segments in the current view.
+     */
+    public int segmentCount() {
+        return view.segments.length;
+    }
+
+    @Override
+    public void close() {
+        merger.shutdownNow();
+        try {
+            merger.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private TopKHeap scan(VectorSegment segment, float[] q, int topK) {
+        VectorMatrix matrix = segment.matrix();
+        if (segment.codes() != null) {
+            TopKHeap.Sorted coarse = segment.codes().scan(q, topK * rescoreFactor, segment.deleted())
+                    .drainDescending();
+            TopKHeap heap = new TopKHeap(topK);
+            for (int i = 0; i < coarse.size(); i++) {
+                heap.offer(coarse.row(i), matrix.dot(q, coarse.row(i)));
+            }
+            return heap;
+        }
+        if (parallelScan != null) {
+            return parallelScan.scan(matrix, segment.deleted(), q, topK);
+        }
+        return matrix.scan(q, topK, 0, matrix.rows(), segment.deleted());
+    }
+
+    /**
+     * Tombstone the removed ids and any ids the new segment supersedes, then
+     * publish the result as one view. Caller holds writeLock.
+     */
+    private void apply(Collection<Long> removeIds, VectorSegment added) {
+        View current = view;
+        Map<VectorMatrix, BitSet> tombstones = new IdentityHashMap<>();
+        for (Long id : removeIds) {
+            tombstone(current, id, tombstones);
+        }
+        // Ids of the new segment supersede their old rows; nothing to look up in an empty index
+        if (added != null && current.segments.length > 0) {
+            VectorMatrix matrix = added.matrix();
+            for (int row = 0; row < matrix.rows(); row++) {
+                if (!added.isDeleted(row)) {
+                    tombstone(current, matrix.id(row), tombstones);
+                }
+            }
+        }
+
+        publish(tombstones, Collections.emptyList(), added);
+    }
+
+    /**
+     * Mark the live row holding the id for deletion. Ids are live in at most
+     * one segment, so the search stops at the first hit. Caller holds
+     * writeLock.
+     *
+     * @return true if the id had a live row
+     */
+    private static boolean tombstone(View current, long id, Map<VectorMatrix, BitSet> tombstones) {
+        for (VectorSegment segment : current.segments) {
+            VectorMatrix matrix = segment.matrix();
+            int row = matrix.rowOf(id);
+            if (row >= 0 && !segment.isDeleted(row)) {
+                tombstones.computeIfAbsent(matrix, m -> new BitSet()).set(row);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Build and publish the next view. Caller holds writeLock.
+     *
+     * @param tombstones Rows to delete, per segment matrix
+     * @param replaced   Segments to drop (merged away)
+     * @param added      Segment to add, or null
+     */
+    private void publish(Map<VectorMatrix, BitSet> tombstones, List<VectorSegment> replaced, VectorSegment added) {
+        View current = view;
+        Set<VectorMatrix> dropped = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (VectorSegment segment : replaced) {
+            dropped.add(segment.matrix());
+        }
+
+        List<VectorSegment> segments = new ArrayList<>(current.segments.length + 1);
+        for (VectorSegment segment : current.segments) {
+            if (dropped.contains(segment.matrix())) {
+                continue;
+            }
+            BitSet rows = tombstones.get(segment.matrix());
+            VectorSegment next = rows != null ? segment.withDeleted(rows) : segment;
+            if (next.liveRows() > 0) {
+                segments.add(next);
+            }
+        }
+        if (added != null && added.liveRows() > 0) {
+            segments.add(added);
+        }
+
+        int dimension = current.dimension != 0 || added == null ? current.dimension : added.matrix().dimension();
+        view = new View(segments.toArray(new VectorSegment[0]), dimension);
+    }
+
+    private void scheduleMerge() {
+        if (!mergeScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            merger.execute(() -> {
+                try {
+                    List<VectorSegment> sources;
+                    while (!(sources = pickMerge(view)).isEmpty()) {
+                        merge(sources);
+                    }
+                } finally {
+                    mergeScheduled.set(false);
+                }
+                // A write that arrived after the last pick still gets its merge
+                if (!pickMerge(view).isEmpty()) {
+                    scheduleMerge();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Closed
+            mergeScheduled.set(false);
+        }
+    }
+
+    /**
+     * Choose the next segments to merge: a segment that is mostly tombstones,
+     * else {@value #MERGE_FACTOR} segments of the same size tier, else the
+     * smallest segments once there are more than {@code maxSegments}.
+     */
+    private List<VectorSegment> pickMerge(View current) {
+        for (VectorSegment segment : current.segments) {
+            if (segment.liveRows() * 2 < segment.rows()) {
+                return List.of(segment);
+            }
+        }
+
+        Map<Integer, List<VectorSegment>> tiers = new TreeMap<>();
+        for (VectorSegment segment : current.segments) {
+            List<VectorSegment> tier = tiers.computeIfAbsent(tier(segment.liveRows()), t -> new ArrayList<>());
+            tier.add(segment);
+            if (tier.size() == MERGE_FACTOR) {
+                return tier;
+            }
+        }
+
+        if (current.segments.length > maxSegments) {
+            VectorSegment[] bySize = current.segments.clone();
+            Arrays.sort(bySize, Comparator.comparingInt(VectorSegment::liveRows));
+            return Arrays.asList(bySize).subList(0, current.segments.length - maxSegments + 1);
+        }
+        return Collections.emptyList();
+    }
+
+    private static int tier(int liveRows) {
+        int tier = 0;
+        for (long size = MERGE_FACTOR; size <= liveRows; size *= MERGE_FACTOR) {
+            tier++;
+        }
+        return tier;
+    }
+
+    /**
+     * Copy the live rows of the sources into one new segment outside the write
+     * lock, then swap it in, carrying over rows deleted while copying.
+     */
+    private void merge(List<VectorSegment> sources) {
+        int dimension = sources.get(0).matrix().dimension();
+        VectorMatrix merged = new VectorMatrix(dimension, kernel);
+        List<VectorMatrix> sourceMatrices = new ArrayList<>();
+        List<Integer> sourceRows = new ArrayList<>();
+        for (VectorSegment source : sources) {
+            VectorMatrix matrix = source.matrix();
+            for (int row = 0; row < matrix.rows(); row++) {
+                if (!source.isDeleted(row)) {
+                    merged.append(matrix.id(row), matrix.row(row));
+                    sourceMatrices.add(matrix);
+                    sourceRows.add(row);
+                }
+            }
+        }
+        VectorSegment segment = VectorSegment.freeze(merged, quantization);
+
+        writeLock.lock();
+        try {
+            Map<VectorMatrix, VectorSegment> latest = new IdentityHashMap<>();
+            for (VectorSegment current : view.segments) {
+                latest.put(current.matrix(), current);
+            }
+
+            BitSet deletedSince = new BitSet();
+            for (int row = 0; row < merged.rows(); row++) {
+                VectorSegment current = latest.get(sourceMatrices.get(row));
+                if (current == null || current.isDeleted(sourceRows.get(row))) {
+                    deletedSince.set(row);
+                }
+            }
+
+            publish(Collections.emptyMap(), sources,
+                    deletedSince.isEmpty() ? segment : segment.withDeleted(deletedSince));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Immutable set of segments; rows are numbered across segments through
+     * {@code bases} so per-segment heaps can share one top-K heap.
+     */
+    private static final class View {
+
+        static final View EMPTY = new View(new VectorSegment[0], 0);
+
+        final VectorSegment[] segments;
+        final int[] bases;
+        final int liveRows;
+        final int dimension;
+
+        View(VectorSegment[] segments, int dimension) {
+            this.segments = segments;
+            this.bases = new int[segments.length];
+            this.dimension = dimension;
+            int base = 0;
+            int live = 0;
+            for (int i = 0; i < segments.length; i++) {
+                bases[i] = base;
+                base = Math.addExact(base, segments[i].rows());
+                live += segments[i].liveRows();
+            }
+            this.liveRows = live;
+        }
+
+        long id(int row) {
+            int index = Arrays.binarySearch(bases, row);
+            if (index < 0) {
+                index = -index - 2;
+            }
+            // Empty segments are never published, so bases are strictly increasing
+            return segments[index].matrix().id(row - bases[index]);
+        }
+    }
+}
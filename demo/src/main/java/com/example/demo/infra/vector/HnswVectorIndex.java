@@ -0,0 +1,595 @@
+package com.example.demo.infra.vector;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Approximate nearest-neighbour index based on a Hierarchical Navigable Small
+ * World graph (Malkov & Yashunin, 2016).
+ *
+ * Nodes are rows of a {@link VectorMatrix}, so vectors are L2-normalized on
+ * insert and cosine similarity becomes a plain dot product. Inserts are
+ * incremental and take the write lock; searches share the read lock. While the
+ * index holds no more than {@code exactThreshold} vectors, searches fall back
+ * to an exact scan, which is both faster and lossless there. Re-adding an
+ * existing id, or removing it, tombstones the old node instead of rewiring the
+ * graph; tombstoned nodes are still traversed but never returned.
+ *
+ * Once tombstones exceed {@code compactRatio} of all nodes, a background
+ * thread re-inserts the live vectors into a fresh graph without holding any
+ * lock, so neither searches nor mutations wait for the rebuild. It then takes
+ * the mutation lock, replays the removals and additions made since it copied
+ * the rows, and swaps the new graph in under the write lock.
+ */
+public class HnswVectorIndex implements VectorIndex, AutoCloseable {
+
+    private static final int[] NO_NEIGHBORS = new int[0];
+    private static final int ADD_ROWS_BATCH = 1024;
+
+    private static final Comparator<Candidate> MOST_SIMILAR_FIRST = (a, b) -> Float.compare(b.similarity,
+            a.similarity);
+    private static final Comparator<Candidate> LEAST_SIMILAR_FIRST = (a, b) -> Float.compare(a.similarity,
+            b.similarity);
+
+    private final int m;
+    private final int maxConnectionsLayer0;
+    private final int efConstruction;
+    private final int efSearch;
+    private final int exactThreshold;
+    private final double compactRatio;
+    private final double levelMultiplier;
+    private final Random random = new Random(42);
+    private final SimilarityKernel kernel;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Held for a whole mutation (and a compaction's catch-up and swap), so the graph only changes on one thread
+    private final Lock mutationLock = new ReentrantLock();
+
+    // Null when compaction is disabled
+    private final ExecutorService compactor;
+    private final AtomicBoolean compactScheduled = new AtomicBoolean(false);
+
+    private VectorMatrix matrix;
+    // neighbors[node][level] -> adjacent nodes on that level
+    private int[][][] neighbors = new int[64][][];
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    public HnswVectorIndex(int m, int efConstruction, int efSearch, int exactThreshold, SimilarityKernel kernel) {
+        this(m, efConstruction, efSearch, exactThreshold, 0.0, kernel);
+    }
+
+    /**
+     * @param compactRatio Share of tombstoned nodes that triggers a rebuild; 0 disables it
+     */
+    public HnswVectorIndex(int m, int efConstruction, int efSearch, int exactThreshold, double compactRatio,
+            SimilarityKernel kernel) {
+        if (m < 2) {
+            throw new IllegalArgumentException("HNSW M must be at least 2: " + m);
+        }
+        this.m = m;
+        this.maxConnectionsLayer0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.efSearch = Math.max(efSearch, 1);
+        this.exactThreshold = Math.max(exactThreshold, 0);
+        this.compactRatio = compactRatio;
+        this.levelMultiplier = 1.0 / Math.log(m);
+        this.kernel = kernel;
+        this.compactor = compactRatio > 0.0 ? Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hnsw-compact");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    @Override
+    public void add(long id, float[] vector) {
+        mutationLock.lock();
+        try {
+            lock.writeLock().lock();
+            try {
+                if (matrix == null) {
+                    matrix = new VectorMatrix(vector.length, kernel);
+                }
+
+                int node = matrix.append(id, vector);
+                allocateLinks(node);
+                insertIntoGraph(node);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            mutationLock.unlock();
+        }
+        scheduleCompaction();
+    }
+
+    @Override
+    public boolean remove(long id) {
+        mutationLock.lock();
+        try {
+            boolean removed;
+            lock.writeLock().lock();
+            try {
+                removed = matrix != null && matrix.remove(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (!removed) {
+                return false;
+            }
+        } finally {
+            mutationLock.unlock();
+        }
+        scheduleCompaction();
+        return true;
+    }
+
+    /**
+     * New nodes are linked into the graph one at a time as hidden rows, so
+     * searches only wait for single inserts; they become visible, and the
+     * removed ids disappear, in one final step.
+     */
+    @Override
+    public void replace(Collection<Long> removeIds, List<Long> addIds, List<float[]> vectors) {
+        mutationLock.lock();
+        try {
+            int[] staged = new int[addIds.size()];
+            for (int i = 0; i < addIds.size(); i++) {
+                lock.writeLock().lock();
+                try {
+                    if (matrix == null) {
+                        matrix = new VectorMatrix(vectors.get(i).length, kernel);
+                    }
+                    staged[i] = matrix.appendHidden(addIds.get(i), vectors.get(i));
+                    allocateLinks(staged[i]);
+                    insertIntoGraph(staged[i]);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+
+            lock.writeLock().lock();
+            try {
+                if (matrix == null) {
+                    return;
+                }
+                for (Long id : removeIds) {
+                    matrix.remove(id);
+                }
+                for (int node : staged) {
+                    matrix.reveal(node);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            mutationLock.unlock();
+        }
+        scheduleCompaction();
+    }
+
+    /**
+     * Get the number of tombstoned nodes still linked into the graph
+     *
+     * @return Tombstone count
+     */
+    public int tombstones() {
+        lock.readLock().lock();
+        try {
+            return matrix == null ? 0 : matrix.rows() - matrix.liveRows();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (compactor == null) {
+            return;
+        }
+        compactor.shutdownNow();
+        try {
+            compactor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean needsCompaction() {
+        lock.readLock().lock();
+        try {
+            if (compactor == null || matrix == null) {
+                return false;
+            }
+            int rows = matrix.rows();
+            return rows > 0 && rows - matrix.liveRows() > compactRatio * rows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void scheduleCompaction() {
+        if (!needsCompaction() || !compactScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            compactor.execute(() -> {
+                try {
+                    compact();
+                } finally {
+                    compactScheduled.set(false);
+                }
+                // Tombstones left by mutations during the rebuild still get their compaction
+                scheduleCompaction();
+            });
+        } catch (RejectedExecutionException e) {
+            // Closed
+            compactScheduled.set(false);
+        }
+    }
+
+    /**
+     * Rebuild the graph from the live vectors. Rows below the captured count
+     * never change, so they are copied in batches under the read lock and
+     * inserted into the new graph without any lock; only the catch-up with
+     * later mutations and the swap hold the mutation lock.
+     */
+    private void compact() {
+        VectorMatrix source;
+        int copiedRows;
+        BitSet copiedDeleted;
+        lock.readLock().lock();
+        try {
+            source = matrix;
+            copiedRows = source.rows();
+            copiedDeleted = source.deletedRows();
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        HnswVectorIndex rebuilt = new HnswVectorIndex(m, efConstruction, efSearch, exactThreshold, kernel);
+        List<Long> ids = new ArrayList<>(ADD_ROWS_BATCH);
+        List<float[]> vectors = new ArrayList<>(ADD_ROWS_BATCH);
+        for (int from = 0; from < copiedRows; from += ADD_ROWS_BATCH) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            ids.clear();
+            vectors.clear();
+            lock.readLock().lock();
+            try {
+                for (int row = from; row < Math.min(from + ADD_ROWS_BATCH, copiedRows); row++) {
+                    if (!copiedDeleted.get(row)) {
+                        ids.add(source.id(row));
+                        vectors.add(source.row(row));
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            for (int i = 0; i < ids.size(); i++) {
+                rebuilt.add(ids.get(i), vectors.get(i));
+            }
+        }
+
+        mutationLock.lock();
+        try {
+            // No mutation is in flight, so every row is either live or deleted
+            BitSet deleted = source.deletedRows();
+            for (int row = 0; row < copiedRows; row++) {
+                if (!copiedDeleted.get(row) && deleted.get(row)) {
+                    rebuilt.remove(source.id(row));
+                }
+            }
+            for (int row = 0; row < source.rows(); row++) {
+                if (!deleted.get(row) && (row >= copiedRows || copiedDeleted.get(row))) {
+                    rebuilt.add(source.id(row), source.row(row));
+                }
+            }
+
+            lock.writeLock().lock();
+            try {
+                matrix = rebuilt.matrix;
+                neighbors = rebuilt.neighbors;
+                entryPoint = rebuilt.entryPoint;
+                maxLevel = rebuilt.maxLevel;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            mutationLock.unlock();
+        }
+    }
+
+    /**
+     * Rows are copied into the graph's own matrix in batches.
+     */
+    @Override
+    public void addRows(VectorMatrix rows) {
+        List<Long> ids = new ArrayList<>(ADD_ROWS_BATCH);
+        List<float[]> vectors = new ArrayList<>(ADD_ROWS_BATCH);
+        for (int row = 0; row < rows.rows(); row++) {
+            if (rows.isDeleted(row)) {
+                continue;
+            }
+            ids.add(rows.id(row));
+            vectors.add(rows.row(row));
+            if (ids.size() == ADD_ROWS_BATCH) {
+                replace(Collections.emptyList(), ids, vectors);
+                ids.clear();
+                vectors.clear();
+            }
+        }
+        if (!ids.isEmpty()) {
+            replace(Collections.emptyList(), ids, vectors);
+        }
+    }
+
+    @Override
+    public List<VectorHit> search(float[] query, int topK) {
+        lock.readLock().lock();
+        try {
+            if (matrix == null || matrix.liveRows() == 0 || query.length != matrix.dimension() || topK <= 0) {
+                return Collections.emptyList();
+            }
+
+            float[] q = VectorMatrix.normalize(query);
+            if (matrix.liveRows() <= exactThreshold) {
+                TopKHeap.Sorted top = matrix.scan(q, topK).drainDescending();
+                List<VectorHit> hits = new ArrayList<>(top.size());
+                for (int i = 0; i < top.size(); i++) {
+                    hits.add(new VectorHit(matrix.id(top.row(i)), top.score(i)));
+                }
+                return hits;
+            }
+
+            List<Candidate> found = graphSearch(q, topK);
+            List<VectorHit> hits = new ArrayList<>(found.size());
+            for (Candidate c : found) {
+                hits.add(new VectorHit(matrix.id(c.node), c.similarity));
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public QuantizationReport evaluateQuantization(int k, int samples, int rescoreFactor) {
+        lock.readLock().lock();
+        try {
+            return matrix == null ? null : QuantizationEvaluator.evaluate(matrix, k, samples, rescoreFactor);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void export(VectorSink sink) throws IOException {
+        lock.readLock().lock();
+        try {
+            if (matrix == null) {
+                sink.begin(0, 0);
+            } else {
+                matrix.export(sink);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return matrix == null ? 0 : matrix.liveRows();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void allocateLinks(int node) {
+        if (node == neighbors.length) {
+            neighbors = Arrays.copyOf(neighbors, neighbors.length * 2);
+        }
+
+        int level = randomLevel();
+        neighbors[node] = new int[level + 1][];
+        Arrays.fill(neighbors[node], NO_NEIGHBORS);
+    }
+
+    private void insertIntoGraph(int node) {
+        int level = neighbors[node].length - 1;
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        float[] q = matrix.row(node);
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(q, current, l);
+        }
+
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<Candidate> candidates = searchLayer(q, current, efConstruction, l, false);
+            int[] selected = selectNeighbors(candidates, m);
+            neighbors[node][l] = selected;
+
+            int maxConnections = l == 0 ? maxConnectionsLayer0 : m;
+            for (int neighbor : selected) {
+                connect(neighbor, node, l, maxConnections);
+            }
+            current = candidates.get(0).node;
+        }
+
+        if (level > maxLevel) {
+            entryPoint = node;
+            maxLevel = level;
+        }
+    }
+
+    private void connect(int from, int to, int level, int maxConnections) {
+        int[] existing = neighbors[from][level];
+        if (existing.length < maxConnections) {
+            int[] grown = Arrays.copyOf(existing, existing.length + 1);
+            grown[existing.length] = to;
+            neighbors[from][level] = grown;
+            return;
+        }
+
+        // Over capacity: re-run neighbour selection over the old links plus the new one
+        List<Candidate> candidates = new ArrayList<>(existing.length + 1);
+        for (int n : existing) {
+            candidates.add(new Candidate(n, matrix.dot(from, n)));
+        }
+        candidates.add(new Candidate(to, matrix.dot(from, to)));
+        candidates.sort(MOST_SIMILAR_FIRST);
+        neighbors[from][level] = selectNeighbors(candidates, maxConnections);
+    }
+
+    /**
+     * Neighbour selection heuristic (Algorithm 4 in the HNSW paper): prefer
+     * candidates that are closer to the base than to any already selected
+     * neighbour, then top up with the closest pruned ones.
+     */
+    private int[] selectNeighbors(List<Candidate> candidatesMostSimilarFirst, int limit) {
+        int[] selected = new int[Math.min(limit, candidatesMostSimilarFirst.size())];
+        int count = 0;
+        List<Candidate> pruned = new ArrayList<>();
+
+        for (Candidate candidate : candidatesMostSimilarFirst) {
+            if (count == selected.length) {
+                break;
+            }
+            boolean diverse = true;
+            for (int i = 0; i < count; i++) {
+                if (matrix.dot(candidate.node, selected[i]) > candidate.similarity) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[count++] = candidate.node;
+            } else {
+                pruned.add(candidate);
+            }
+        }
+
+        for (int i = 0; i < pruned.size() && count < selected.length; i++) {
+            selected[count++] = pruned.get(i).node;
+        }
+        return count == selected.length ? selected : Arrays.copyOf(selected, count);
+    }
+
+    private int greedyClosest(float[] q, int start, int level) {
+        int current = start;
+        float best = matrix.dot(q, current);
+        boolean improved = true;
+
+        while (improved) {
+            improved = false;
+            for (int n : neighbors[current][level]) {
+                float similarity = matrix.dot(q, n);
+                if (similarity > best) {
+                    best = similarity;
+                    current = n;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    private List<Candidate> graphSearch(float[] q, int topK) {
+        int current = entryPoint;
+        for (int l = maxLevel; l > 0; l--) {
+            current = greedyClosest(q, current, l);
+        }
+
+        List<Candidate> found = searchLayer(q, current, Math.max(efSearch, topK), 0, true);
+        return found.size() > topK ? found.subList(0, topK) : found;
+    }
+
+    /**
+     * Best-first beam search on one layer.
+     *
+     * @return Up to {@code ef} nodes, most similar first
+     */
+    private List<Candidate> searchLayer(float[] q, int start, int ef, int level, boolean skipDeleted) {
+        BitSet visited = new BitSet(matrix.rows());
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(MOST_SIMILAR_FIRST);
+        PriorityQueue<Candidate> results = new PriorityQueue<>(LEAST_SIMILAR_FIRST);
+
+        Candidate first = new Candidate(start, matrix.dot(q, start));
+        visited.set(start);
+        candidates.add(first);
+        if (!skipDeleted || !matrix.isDeleted(start)) {
+            results.add(first);
+        }
+
+        while (!candidates.isEmpty()) {
+            Candidate closest = candidates.poll();
+            if (results.size() >= ef && closest.similarity < results.peek().similarity) {
+                break;
+            }
+
+            for (int n : neighbors[closest.node][level]) {
+                if (visited.get(n)) {
+                    continue;
+                }
+                visited.set(n);
+
+                float similarity = matrix.dot(q, n);
+                if (results.size() < ef || similarity > results.peek().similarity) {
+                    Candidate candidate = new Candidate(n, similarity);
+                    candidates.add(candidate);
+                    if (!skipDeleted || !matrix.isDeleted(n)) {
+                        results.add(candidate);
+                        if (results.size() > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+        }
+
+        List<Candidate> ordered = new ArrayList<>(results);
+        ordered.sort(MOST_SIMILAR_FIRST);
+        return ordered;
+    }
+
+    private int randomLevel() {
+        return (int) Math.floor(-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+    }
+
+    private static class Candidate {
+        final int node;
+        final float similarity;
+
+        Candidate(int node, float similarity) {
+            this.node = node;
+            this.similarity = similarity;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.demo.infra.vector;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Scalar quantization with a per-vector absmax scale: each component is stored
+ * as {@code round(v / scale)} in [-127, 127]. The query stays in float, so a
+ * score is {@code scale * sum(q[i] * code[i])} (asymmetric distance).
+ */
+public class Int8QuantizedCodes implements QuantizedCodes {
+
+    private final int dimension;
+    private byte[] codes;
+    private float[] scales;
+    private int rows;
+
+    public Int8QuantizedCodes(int dimension) {
+        this.dimension = dimension;
+        this.codes = new byte[64 * dimension];
+        this.scales = new float[64];
+    }
+
+    @Override
+    public void append(float[] normalizedVector) {
+        if (rows == scales.length) {
+            scales = Arrays.copyOf(scales, scales.length * 2);
+            codes = Arrays.copyOf(codes, Math.multiplyExact(scales.length, dimension));
+        }
+
+        float maxAbs = 0.0f;
+        for (float v : normalizedVector) {
+            maxAbs = Math.max(maxAbs, Math.abs(v));
+        }
+
+        int offset = rows * dimension;
+        float scale = maxAbs / 127.0f;
+        scales[rows] = scale;
+        if (scale > 0.0f) {
+            for (int i = 0; i < dimension; i++) {
+                codes[offset + i] = (byte) Math.round(normalizedVector[i] / scale);
+            }
+        }
+        rows++;
+    }
+
+    @Override
+    public TopKHeap scan(float[] normalizedQuery, int topK, BitSet deleted) {
+        TopKHeap heap = new TopKHeap(topK);
+        for (int row = 0; row < rows; row++) {
+            if (deleted.get(row)) {
+                continue;
+            }
+            int offset = row * dimension;
+            float sum = 0.0f;
+            for (int i = 0; i < dimension; i++) {
+                sum += normalizedQuery[i] * codes[offset + i];
+            }
+            heap.offer(row, sum * scales[row]);
+        }
+        return heap;
+    }
+
+    @Override
+    public long bytes() {
+        return (long) rows * dimension + (long) rows * Float.BYTES;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.demo.infra.vector;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from {@code long} keys to non-negative {@code int}
+ * values, used to find the row of a chunk id without boxing either side.
+ *
+ * Linear probing over two parallel arrays kept at most half full; removals
+ * shift the following entries back instead of leaving markers, so lookups
+ * stay short after heavy churn. Not thread-safe.
+ */
+final class LongIntMap {
+
+    private static final int MISSING = -1;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    LongIntMap(int expected) {
+        allocate(capacityFor(expected));
+    }
+
+    /**
+     * @return Value stored under the key, or -1
+     */
+    int get(long key) {
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            int value = values[slot];
+            if (value == MISSING || keys[slot] == key) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * @return Previous value stored under the key, or -1
+     */
+    int put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+        if ((size + 1) * 2 > values.length) {
+            resize(values.length * 2);
+        }
+
+        int slot = slot(key);
+        while (values[slot] != MISSING) {
+            if (keys[slot] == key) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        return MISSING;
+    }
+
+    /**
+     * @return Value that was stored under the key, or -1
+     */
+    int remove(long key) {
+        int hole = slot(key);
+        while (values[hole] != MISSING && keys[hole] != key) {
+            hole = (hole + 1) & mask;
+        }
+        int previous = values[hole];
+        if (previous == MISSING) {
+            return MISSING;
+        }
+
+        // Pull back later entries of the probe run that may not sit past the hole
+        for (int next = (hole + 1) & mask; values[next] != MISSING; next = (next + 1) & mask) {
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        values[hole] = MISSING;
+        size--;
+        return previous;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != MISSING) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+        mask = capacity - 1;
+    }
+
+    private static int capacityFor(int expected) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < 2L * expected) {
+            capacity = Math.multiplyExact(capacity, 2);
+        }
+        return capacity;
+    }
+}
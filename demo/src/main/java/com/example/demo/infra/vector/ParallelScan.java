@@ -0,0 +1,87 @@
+package com.example.demo.infra.vector;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Partitioned exact scan: splits the matrix rows into shards, computes a local
+ * top-K per shard on a dedicated pool and merges the shard heaps.
+ *
+ * The pool is sized independently of the servlet container, and at most
+ * {@code maxConcurrentSearches} searches fan out at once; any other search
+ * (and any matrix below {@code threshold} rows) scans sequentially on the
+ * calling thread, so parallel search cannot starve request threads.
+ */
+public class ParallelScan implements AutoCloseable {
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final int threshold;
+    private final Semaphore permits;
+
+    public ParallelScan(int parallelism, int threshold, int maxConcurrentSearches) {
+        this.parallelism = Math.max(parallelism, 1);
+        this.threshold = Math.max(threshold, 0);
+        this.permits = new Semaphore(Math.max(maxConcurrentSearches, 1));
+        this.pool = new ForkJoinPool(this.parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("vector-search-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Exact top-K over the rows not set in {@code deleted}. The caller must keep
+     * the matrix and the tombstones stable until this returns.
+     */
+    public TopKHeap scan(VectorMatrix matrix, BitSet deleted, float[] normalizedQuery, int topK) {
+        int rows = matrix.rows();
+        if (rows < threshold || parallelism == 1 || !permits.tryAcquire()) {
+            return matrix.scan(normalizedQuery, topK, 0, rows, deleted);
+        }
+
+        try {
+            int shards = Math.min(parallelism, rows);
+            int shardRows = (rows + shards - 1) / shards;
+
+            // The calling thread scans the first shard itself
+            List<Future<TopKHeap>> futures = new ArrayList<>(shards - 1);
+            for (int from = shardRows; from < rows; from += shardRows) {
+                int start = from;
+                int end = Math.min(from + shardRows, rows);
+                futures.add(pool.submit(() -> matrix.scan(normalizedQuery, topK, start, end, deleted)));
+            }
+
+            TopKHeap merged = matrix.scan(normalizedQuery, topK, 0, Math.min(shardRows, rows), deleted);
+            for (Future<TopKHeap> future : futures) {
+                merged.merge(future.get());
+            }
+            return merged;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Vector search interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Vector search shard failed", e.getCause());
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
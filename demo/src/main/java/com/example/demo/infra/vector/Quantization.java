@@ -0,0 +1,34 @@
+package com.example.demo.infra.vector;
+
+/**
+ * Compressed representation used for the first, approximate pass of an exact
+ * index. Candidates are always rescored against the full-precision rows.
+ */
+public enum Quantization {
+    NONE,
+    // One signed byte per dimension plus a per-vector scale
+    INT8,
+    // One sign bit per dimension, scored by Hamming distance
+    BINARY;
+
+    public QuantizedCodes newCodes(int dimension) {
+        switch (this) {
+            case INT8:
+                return new Int8QuantizedCodes(dimension);
+            case BINARY:
+                return new BinaryQuantizedCodes(dimension);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value names no quantization
+     */
+    public static Quantization from(String value) {
+        if (value == null || value.isBlank()) {
+            return NONE;
+        }
+        return valueOf(value.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.demo.infra.vector;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Measures recall@k of every quantization against the exact scan.
+ *
+ * Stored vectors double as queries (leave-one-out: the query row itself is
+ * excluded from both result lists), since no query log is kept.
+ */
+public final class QuantizationEvaluator {
+
+    private QuantizationEvaluator() {
+    }
+
+    /**
+     * The matrix must not change during the call: ExactVectorIndex passes a
+     * private copy of the live rows of one published View (a stable segment
+     * snapshot), HnswVectorIndex its matrix under the index read lock.
+     */
+    public static QuantizationReport evaluate(VectorMatrix matrix, int k, int samples, int rescoreFactor) {
+        int rows = matrix.rows();
+        BitSet deleted = matrix.deletedRows();
+        List<Integer> liveRows = new ArrayList<>(matrix.liveRows());
+        for (int row = 0; row < rows; row++) {
+            if (!matrix.isDeleted(row)) {
+                liveRows.add(row);
+            }
+        }
+
+        Random random = new Random(17);
+        int sampleCount = Math.min(samples, liveRows.size());
+        int[] queryRows = new int[sampleCount];
+        for (int i = 0; i < sampleCount; i++) {
+            queryRows[i] = liveRows.get(random.nextInt(liveRows.size()));
+        }
+
+        // Deleted rows stay resident until the segment is merged, so count every row
+        long floatBytes = (long) rows * matrix.dimension() * Float.BYTES;
+        List<QuantizationReport.Entry> entries = new ArrayList<>();
+
+        for (Quantization quantization : Quantization.values()) {
+            if (quantization == Quantization.NONE) {
+                continue;
+            }
+
+            QuantizedCodes codes = quantization.newCodes(matrix.dimension());
+            for (int row = 0; row < rows; row++) {
+                codes.append(matrix.row(row));
+            }
+
+            double recall = 0.0;
+            double rescoredRecall = 0.0;
+            for (int queryRow : queryRows) {
+                float[] q = matrix.row(queryRow);
+                Set<Integer> exact = topRows(matrix.scan(q, k + 1), queryRow, k);
+
+                TopKHeap.Sorted coarse = codes.scan(q, k * Math.max(rescoreFactor, 1) + 1, deleted)
+                        .drainDescending();
+                TopKHeap rescored = new TopKHeap(k + 1);
+                for (int i = 0; i < coarse.size(); i++) {
+                    rescored.offer(coarse.row(i), matrix.dot(q, coarse.row(i)));
+                }
+
+                recall += overlap(exact, topRows(codes.scan(q, k + 1, deleted), queryRow, k));
+                rescoredRecall += overlap(exact, topRows(rescored, queryRow, k));
+            }
+
+            double divisor = Math.max(sampleCount, 1);
+            long codeBytes = codes.bytes();
+            entries.add(new QuantizationReport.Entry(
+                    quantization,
+                    codeBytes,
+                    floatBytes + codeBytes,
+                    floatBytes == 0 ? 0.0 : (double) codeBytes / floatBytes,
+                    recall / divisor,
+                    rescoredRecall / divisor));
+        }
+
+        return new QuantizationReport(liveRows.size(), matrix.dimension(), k, sampleCount,
+                rescoreFactor, floatBytes, entries);
+    }
+
+    private static Set<Integer> topRows(TopKHeap heap, int excludedRow, int k) {
+        TopKHeap.Sorted sorted = heap.drainDescending();
+        Set<Integer> rows = new HashSet<>();
+        for (int i = 0; i < sorted.size() && rows.size() < k; i++) {
+            if (sorted.row(i) != excludedRow) {
+                rows.add(sorted.row(i));
+            }
+        }
+        return rows;
+    }
+
+    private static double overlap(Set<Integer> exact, Set<Integer> approximate) {
+        if (exact.isEmpty()) {
+            return 1.0;
+        }
+        int hits = 0;
+        for (Integer row : approximate) {
+            if (exact.contains(row)) {
+                hits++;
+            }
+        }
+        return (double) hits / exact.size();
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.demo.infra.vector;
+
+import java.util.List;
+
+/**
+ * Memory and recall of each quantization compared with exact search.
+ *
+ * Codes are held in addition to the float rows, which stay resident for
+ * rescoring, so quantization costs memory rather than saving it: int8 adds
+ * about a quarter of the float size and binary about 3%. What it buys is a
+ * first pass that reads codeBytes instead of floatBytes per query.
+ */
+public class QuantizationReport {
+    private final int vectors;
+    private final int dimension;
+    private final int k;
+    private final int sampledQueries;
+    private final int rescoreFactor;
+    private final long floatBytes;
+    private final List<Entry> entries;
+
+    public QuantizationReport(int vectors, int dimension, int k, int sampledQueries, int rescoreFactor,
+            long floatBytes, List<Entry> entries) {
+        this.vectors = vectors;
+        this.dimension = dimension;
+        this.k = k;
+        this.sampledQueries = sampledQueries;
+        this.rescoreFactor = rescoreFactor;
+        this.floatBytes = floatBytes;
+        this.entries = entries;
+    }
+
+    public int getVectors() {
+        return vectors;
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    public int getSampledQueries() {
+        return sampledQueries;
+    }
+
+    public int getRescoreFactor() {
+        return rescoreFactor;
+    }
+
+    public long getFloatBytes() {
+        return floatBytes;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public static class Entry {
+        private final Quantization quantization;
+        private final long codeBytes;
+        private final long residentBytes;
+        private final double memoryOverhead;
+        private final double recallAtK;
+        private final double rescoredRecallAtK;
+
+        public Entry(Quantization quantization, long codeBytes, long residentBytes, double memoryOverhead,
+                double recallAtK, double rescoredRecallAtK) {
+            this.quantization = quantization;
+            this.codeBytes = codeBytes;
+            this.residentBytes = residentBytes;
+            this.memoryOverhead = memoryOverhead;
+            this.recallAtK = recallAtK;
+            this.rescoredRecallAtK = rescoredRecallAtK;
+        }
+
+        public Quantization getQuantization() {
+            return quantization;
+        }
+
+        public long getCodeBytes() {
+            return codeBytes;
+        }
+
+        // Float rows plus codes, i.e. what the index actually keeps in memory
+        public long getResidentBytes() {
+            return residentBytes;
+        }
+
+        // Extra memory relative to the float rows alone (0.25 = +25%)
+        public double getMemoryOverhead() {
+            return memoryOverhead;
+        }
+
+        // Overlap with the exact top-K using quantized scores only
+        public double getRecallAtK() {
+            return recallAtK;
+        }
+
+        // Overlap with the exact top-K after rescoring the candidates in float
+        public double getRescoredRecallAtK() {
+            return rescoredRecallAtK;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.demo.infra.vector;
+
+import java.util.BitSet;
+
+public interface QuantizedCodes {
+
+    /**
+     * Encode the next row; rows must be appended in the same order as the
+     * backing {@link VectorMatrix}
+     *
+     * @param normalizedVector L2-normalized vector
+     */
+    void append(float[] normalizedVector);
+
+    /**
+     * Approximate top-K over the encoded rows, skipping deleted rows
+     *
+     * @param normalizedQuery L2-normalized query
+     * @param topK            Number of candidates to keep
+     * @param deleted         Tombstoned rows of the matrix the codes were built from
+     * @return Candidates keyed by row, scored on the quantized representation
+     */
+    TopKHeap scan(float[] normalizedQuery, int topK, BitSet deleted);
+
+    /**
+     * Get the memory held by the codes
+     *
+     * @return Size in bytes
+     */
+    long bytes();
+}
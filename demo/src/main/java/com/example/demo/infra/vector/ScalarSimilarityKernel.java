@@ -0,0 +1,21 @@
+package com.example.demo.infra.vector;
+
+/**
+ * Plain Java loop; used when the Vector API module is not available.
+ */
+public class ScalarSimilarityKernel implements SimilarityKernel {
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float sum = 0.0f;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return "ScalarSimilarityKernel";
+    }
+}
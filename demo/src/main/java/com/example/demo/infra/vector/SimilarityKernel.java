@@ -0,0 +1,37 @@
+package com.example.demo.infra.vector;
+
+import java.nio.FloatBuffer;
+
+public interface SimilarityKernel {
+
+    /**
+     * Dot product of two equally long slices of float arrays
+     *
+     * @param a       First array
+     * @param aOffset Start of the slice in {@code a}
+     * @param b       Second array
+     * @param bOffset Start of the slice in {@code b}
+     * @param length  Number of elements to multiply
+     * @return Sum of element-wise products
+     */
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * Dot product of an array slice and a buffer slice, e.g. a memory-mapped
+     * row; read with absolute gets, so the buffer position is not changed
+     *
+     * @param a       Array
+     * @param aOffset Start of the slice in {@code a}
+     * @param b       Buffer
+     * @param bOffset Start of the slice in {@code b}
+     * @param length  Number of elements to multiply
+     * @return Sum of element-wise products
+     */
+    default float dot(float[] a, int aOffset, FloatBuffer b, int bOffset, int length) {
+        float sum = 0.0f;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b.get(bOffset + i);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.demo.infra.vector;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public final class SimilarityKernels {
+
+    private static final Logger logger = LoggerFactory.getLogger(SimilarityKernels.class);
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private SimilarityKernels() {
+    }
+
+    /**
+     * Pick the SIMD kernel when requested and the Vector API module is present
+     * in the boot layer, otherwise the scalar loop.
+     */
+    public static SimilarityKernel select(boolean simdEnabled) {
+        if (!simdEnabled) {
+            return new ScalarSimilarityKernel();
+        }
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            logger.info("{} is not enabled (--add-modules {}), using scalar similarity kernel",
+                    VECTOR_MODULE, VECTOR_MODULE);
+            return new ScalarSimilarityKernel();
+        }
+
+        try {
+            // Loaded reflectively so this class never links against the incubator module
+            return (SimilarityKernel) Class.forName(SimilarityKernels.class.getPackageName()
+                    + ".VectorApiSimilarityKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            logger.warn("Vector API kernel unavailable, using scalar similarity kernel: {}", e.toString());
+            return new ScalarSimilarityKernel();
+        }
+    }
+}
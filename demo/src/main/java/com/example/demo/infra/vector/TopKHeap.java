@@ -0,0 +1,142 @@
+package com.example.demo.infra.vector;
+
+/**
+ * Bounded min-heap of (row, score) pairs backed by primitive arrays. The root
+ * is the weakest retained score, so a candidate only costs a comparison unless
+ * it beats it.
+ */
+public class TopKHeap {
+
+    private final int[] rows;
+    private final float[] scores;
+    private int size;
+
+    public TopKHeap(int capacity) {
+        this.rows = new int[Math.max(capacity, 0)];
+        this.scores = new float[Math.max(capacity, 0)];
+    }
+
+    public void offer(int row, float score) {
+        if (size < rows.length) {
+            rows[size] = row;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (size > 0 && score > scores[0]) {
+            rows[0] = row;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == rows.length;
+    }
+
+    /**
+     * Weakest retained score, or negative infinity while the heap is not full.
+     */
+    public float threshold() {
+        return isFull() && size > 0 ? scores[0] : Float.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Add every entry of another heap, keeping the overall top K.
+     */
+    public void merge(TopKHeap other) {
+        merge(other, 0);
+    }
+
+    /**
+     * Add every entry of another heap with its rows shifted by {@code rowOffset},
+     * e.g. to combine per-segment heaps into one row space.
+     */
+    public void merge(TopKHeap other, int rowOffset) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.rows[i] + rowOffset, other.scores[i]);
+        }
+    }
+
+    /**
+     * Drain the heap into parallel arrays ordered by descending score. The heap
+     * is empty afterwards.
+     */
+    public Sorted drainDescending() {
+        int count = size;
+        int[] sortedRows = new int[count];
+        float[] sortedScores = new float[count];
+        for (int i = count - 1; i >= 0; i--) {
+            sortedRows[i] = rows[0];
+            sortedScores[i] = scores[0];
+            size--;
+            if (size > 0) {
+                rows[0] = rows[size];
+                scores[0] = scores[size];
+                siftDown(0);
+            }
+        }
+        return new Sorted(sortedRows, sortedScores);
+    }
+
+    private void siftUp(int index) {
+        int row = rows[index];
+        float score = scores[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (scores[parent] <= score) {
+                break;
+            }
+            rows[index] = rows[parent];
+            scores[index] = scores[parent];
+            index = parent;
+        }
+        rows[index] = row;
+        scores[index] = score;
+    }
+
+    private void siftDown(int index) {
+        int row = rows[index];
+        float score = scores[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && scores[right] < scores[child]) {
+                child = right;
+            }
+            if (score <= scores[child]) {
+                break;
+            }
+            rows[index] = rows[child];
+            scores[index] = scores[child];
+            index = child;
+        }
+        rows[index] = row;
+        scores[index] = score;
+    }
+
+    public static class Sorted {
+        private final int[] rows;
+        private final float[] scores;
+
+        Sorted(int[] rows, float[] scores) {
+            this.rows = rows;
+            this.scores = scores;
+        }
+
+        public int size() {
+            return rows.length;
+        }
+
+        public int row(int i) {
+            return rows[i];
+        }
+
+        public float score(int i) {
+            return scores[i];
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.demo.infra.vector;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.FloatBuffer;
+
+/**
+ * SIMD dot product on the JDK Vector API using the widest species the CPU
+ * supports. Requires {@code --add-modules jdk.incubator.vector}; only load it
+ * through {@link SimilarityKernels}.
+ *
+ * Buffer-backed rows (memory-mapped snapshots) are bulk-copied into a
+ * per-thread scratch array in blocks and scored with the same SIMD loop: the
+ * Vector API loads from buffers only through {@code MemorySegment}, which is
+ * still a preview API on this toolchain.
+ */
+public class VectorApiSimilarityKernel implements SimilarityKernel {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    // Floats copied out of a buffer per step; 4 KB stays in L1
+    private static final int SCRATCH_FLOATS = 1024;
+    private static final ThreadLocal<float[]> SCRATCH = ThreadLocal.withInitial(() -> new float[SCRATCH_FLOATS]);
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, aOffset + i);
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, bOffset + i);
+            acc = va.fma(vb, acc);
+        }
+
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, FloatBuffer b, int bOffset, int length) {
+        if (b.hasArray()) {
+            return dot(a, aOffset, b.array(), b.arrayOffset() + bOffset, length);
+        }
+
+        float[] scratch = SCRATCH.get();
+        float sum = 0.0f;
+        for (int done = 0; done < length; done += SCRATCH_FLOATS) {
+            int block = Math.min(SCRATCH_FLOATS, length - done);
+            b.get(bOffset + done, scratch, 0, block);
+            sum += dot(a, aOffset + done, scratch, 0, block);
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return "VectorApiSimilarityKernel(" + SPECIES + ")";
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.demo.infra.vector;
+
+public class VectorHit {
+    private final long id;
+    private final double similarity;
+
+    public VectorHit(long id, double similarity) {
+        this.id = id;
+        this.similarity = similarity;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public double getSimilarity() {
+        return similarity;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.demo.infra.vector;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+public interface VectorIndex {
+
+    /**
+     * Add (or replace) the vector stored under the given id
+     *
+     * @param id     Chunk id
+     * @param vector Embedding vector
+     */
+    void add(long id, float[] vector);
+
+    /**
+     * Remove the vector stored under the given id
+     *
+     * @param id Chunk id
+     * @return true if a vector was removed
+     */
+    boolean remove(long id);
+
+    /**
+     * Remove and add vectors as one change: a search sees either all of it or
+     * none of it
+     *
+     * @param removeIds Chunk ids to remove
+     * @param addIds    Chunk ids to add, parallel to {@code vectors}
+     * @param vectors   Embedding vectors to add
+     */
+    void replace(Collection<Long> removeIds, List<Long> addIds, List<float[]> vectors);
+
+    /**
+     * Add every live row of a read-only matrix, e.g. one mapped from a
+     * snapshot. An index may keep the matrix itself rather than copying it
+     *
+     * @param rows Normalized rows; must not change afterwards
+     */
+    void addRows(VectorMatrix rows);
+
+    /**
+     * Find the vectors most similar to the query by cosine similarity
+     *
+     * @param query Query embedding
+     * @param topK  Maximum number of hits
+     * @return Hits ordered by descending similarity
+     */
+    List<VectorHit> search(float[] query, int topK);
+
+    /**
+     * Get the number of live vectors in the index
+     *
+     * @return Vector count
+     */
+    int size();
+
+    /**
+     * Compare int8 and binary quantization with exact search on the stored
+     * vectors
+     *
+     * @param k             Recall cut-off
+     * @param samples       Number of stored vectors used as queries
+     * @param rescoreFactor Candidates kept per result before float rescoring
+     * @return Memory and recall report, or null when the index is empty
+     */
+    QuantizationReport evaluateQuantization(int k, int samples, int rescoreFactor);
+
+    /**
+     * Stream every live vector to the sink from one consistent view of the
+     * index
+     *
+     * @param sink Receiver of the vectors
+     */
+    void export(VectorSink sink) throws IOException;
+}
@@ -0,0 +1,334 @@
+package com.example.demo.infra.vector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Flat on-disk copy of the vector index, read back through memory mapping.
+ *
+ * <pre>
+ * header (256 bytes)
+ *   int32   magic "HVIX"
+ *   int32   version (1)
+ *   int32   dimension
+ *   int32   count
+ *   int64   source chunk count when written
+ *   int64   source max chunk id when written
+ *   int32   embedding model name length, followed by UTF-8 bytes
+ * int64[count]             chunk ids
+ * float32[count*dimension] normalized vectors, row-major
+ * int64                    CRC32 of everything above
+ * </pre>
+ *
+ * All values are little-endian. Files are written to a temporary sibling and
+ * moved into place, so readers never observe a partial snapshot.
+ *
+ * {@link #map} only reads the header; ids and vectors are served from the
+ * mapping itself through read-only {@link VectorMatrix} views, so opening a
+ * snapshot copies nothing onto the heap. The checksum is checked
+ * separately by {@link Mapped#verify()}, which callers can run in the
+ * background.
+ */
+public final class VectorIndexSnapshot {
+
+    private static final int MAGIC = 0x48564958; // "HVIX"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 256;
+    private static final int MAX_MODEL_BYTES = HEADER_BYTES - 36;
+    private static final int IO_BUFFER_BYTES = 1 << 20;
+    // Largest region mapped at once; MappedByteBuffer is int-indexed
+    private static final long MAX_MAPPING_BYTES = 1L << 30;
+
+    private VectorIndexSnapshot() {
+    }
+
+    public static class Header {
+        private final int dimension;
+        private final int count;
+        private final long sourceCount;
+        private final long sourceMaxId;
+        private final String model;
+
+        Header(int dimension, int count, long sourceCount, long sourceMaxId, String model) {
+            this.dimension = dimension;
+            this.count = count;
+            this.sourceCount = sourceCount;
+            this.sourceMaxId = sourceMaxId;
+            this.model = model;
+        }
+
+        public int getDimension() {
+            return dimension;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public long getSourceCount() {
+            return sourceCount;
+        }
+
+        public long getSourceMaxId() {
+            return sourceMaxId;
+        }
+
+        public String getModel() {
+            return model;
+        }
+
+        long fileSize() {
+            return HEADER_BYTES + (long) count * Long.BYTES + (long) count * dimension * Float.BYTES + Long.BYTES;
+        }
+    }
+
+    /**
+     * Write the index to {@code path}, replacing any previous snapshot.
+     */
+    public static void write(Path path, VectorIndex index, String model, long sourceCount, long sourceMaxId)
+            throws IOException {
+        byte[] modelBytes = model.getBytes(StandardCharsets.UTF_8);
+        if (modelBytes.length > MAX_MODEL_BYTES) {
+            throw new IllegalArgumentException("Embedding model name too long for snapshot header: " + model);
+        }
+
+        Path target = path.toAbsolutePath();
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer writer = new Writer(channel);
+            index.export(writer);
+            writer.finish(modelBytes, sourceCount, sourceMaxId);
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Read only the header, to decide whether the snapshot is still current.
+     */
+    public static Header readHeader(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES + Long.BYTES) {
+                throw new IOException("Snapshot too short: " + channel.size() + " bytes");
+            }
+
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a vector index snapshot: " + path);
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported snapshot version: " + header.getInt(4));
+            }
+
+            int modelLength = header.getInt(32);
+            if (modelLength < 0 || modelLength > MAX_MODEL_BYTES) {
+                throw new IOException("Corrupt snapshot header: model name length " + modelLength);
+            }
+            byte[] modelBytes = new byte[modelLength];
+            header.get(36, modelBytes);
+
+            Header parsed = new Header(header.getInt(8), header.getInt(12), header.getLong(16), header.getLong(24),
+                    new String(modelBytes, StandardCharsets.UTF_8));
+            if (parsed.getDimension() < 0 || parsed.getCount() < 0 || parsed.fileSize() != channel.size()) {
+                throw new IOException("Snapshot size " + channel.size() + " does not match its header");
+            }
+            return parsed;
+        }
+    }
+
+    /**
+     * Map the snapshot without verifying its checksum.
+     */
+    public static Mapped map(Path path) throws IOException {
+        Header header = readHeader(path);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long checksumOffset = header.fileSize() - Long.BYTES;
+            List<ByteBuffer> regions = new ArrayList<>();
+            for (long position = 0; position < checksumOffset; position += MAX_MAPPING_BYTES) {
+                long length = Math.min(MAX_MAPPING_BYTES, checksumOffset - position);
+                regions.add(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+            }
+            long checksum = channel.map(FileChannel.MapMode.READ_ONLY, checksumOffset, Long.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).getLong(0);
+
+            int count = header.getCount();
+            int dimension = header.getDimension();
+
+            // Rows are mapped in slices below MAX_MAPPING_BYTES, each one a matrix of its own
+            long rowBytes = (long) dimension * Float.BYTES;
+            int rowsPerMapping = (int) Math.max(1, MAX_MAPPING_BYTES / Math.max(rowBytes, Long.BYTES));
+            long vectorsOffset = HEADER_BYTES + (long) count * Long.BYTES;
+            List<LongBuffer> sliceIds = new ArrayList<>();
+            List<FloatBuffer> sliceRows = new ArrayList<>();
+            for (int first = 0; first < count; first += rowsPerMapping) {
+                int rows = Math.min(rowsPerMapping, count - first);
+                MappedByteBuffer ids = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_BYTES + (long) first * Long.BYTES, (long) rows * Long.BYTES);
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY,
+                        vectorsOffset + first * rowBytes, rows * rowBytes);
+                sliceIds.add(ids.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer());
+                sliceRows.add(mapped.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer());
+            }
+            return new Mapped(path, header, regions, checksum, sliceIds, sliceRows);
+        }
+    }
+
+    /**
+     * A snapshot mapped into memory. The mappings stay valid after the file is
+     * replaced or deleted, until they are garbage collected.
+     */
+    public static final class Mapped {
+        private final Path path;
+        private final Header header;
+        private final List<ByteBuffer> regions;
+        private final long checksum;
+        private final List<LongBuffer> sliceIds;
+        private final List<FloatBuffer> sliceRows;
+
+        private Mapped(Path path, Header header, List<ByteBuffer> regions, long checksum, List<LongBuffer> sliceIds,
+                List<FloatBuffer> sliceRows) {
+            this.path = path;
+            this.header = header;
+            this.regions = regions;
+            this.checksum = checksum;
+            this.sliceIds = sliceIds;
+            this.sliceRows = sliceRows;
+        }
+
+        public Header getHeader() {
+            return header;
+        }
+
+        /**
+         * Read-only matrices over the mapped rows, one per mapped slice.
+         */
+        public List<VectorMatrix> matrices(SimilarityKernel kernel) {
+            List<VectorMatrix> matrices = new ArrayList<>(sliceIds.size());
+            for (int i = 0; i < sliceIds.size(); i++) {
+                matrices.add(VectorMatrix.mapped(header.getDimension(), kernel, sliceIds.get(i).duplicate(),
+                        sliceRows.get(i).duplicate()));
+            }
+            return matrices;
+        }
+
+        /**
+         * Check the stored CRC32 against the mapped contents, reading the whole
+         * file once.
+         *
+         * @throws IOException if the checksum does not match
+         */
+        public void verify() throws IOException {
+            CRC32 crc = new CRC32();
+            for (ByteBuffer region : regions) {
+                crc.update(region.duplicate());
+            }
+            if (crc.getValue() != checksum) {
+                throw new IOException("Snapshot checksum mismatch: " + path);
+            }
+        }
+    }
+
+    private static class Writer implements VectorSink {
+        private final FileChannel channel;
+        private ByteBuffer buffer;
+        private long[] ids;
+        private int rows;
+        private int dimension;
+        private long position;
+
+        Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void begin(int count, int dimension) {
+            this.ids = new long[count];
+            this.dimension = dimension;
+            this.buffer = ByteBuffer.allocateDirect(Math.max(IO_BUFFER_BYTES, dimension * Float.BYTES))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            // Vectors are streamed first; header and ids are filled in by finish()
+            this.position = HEADER_BYTES + (long) count * Long.BYTES;
+        }
+
+        @Override
+        public void accept(long id, float[] data, int offset) throws IOException {
+            ids[rows++] = id;
+            if (buffer.remaining() < dimension * Float.BYTES) {
+                flush();
+            }
+            buffer.asFloatBuffer().put(data, offset, dimension);
+            buffer.position(buffer.position() + dimension * Float.BYTES);
+        }
+
+        void finish(byte[] modelBytes, long sourceCount, long sourceMaxId) throws IOException {
+            flush();
+            long checksumOffset = position;
+
+            position = 0;
+            buffer.put(0, new byte[HEADER_BYTES]);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(dimension).putInt(rows)
+                    .putLong(sourceCount).putLong(sourceMaxId).putInt(modelBytes.length).put(modelBytes);
+            buffer.position(HEADER_BYTES);
+            for (long id : ids) {
+                if (buffer.remaining() < Long.BYTES) {
+                    flush();
+                }
+                buffer.putLong(id);
+            }
+            flush();
+
+            CRC32 crc = new CRC32();
+            for (long offset = 0; offset < checksumOffset;) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), checksumOffset - offset));
+                int read = channel.read(buffer, offset);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of snapshot while checksumming");
+                }
+                buffer.flip();
+                crc.update(buffer);
+                offset += read;
+            }
+
+            buffer.clear();
+            buffer.putLong(crc.getValue());
+            position = checksumOffset;
+            flush();
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.example.demo.infra.vector;
+
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Growable row-major matrix of L2-normalized vectors.
+ *
+ * All rows live in a single {@code float[]} and row indices map to chunk ids
+ * through a parallel {@code long[]}, so a scan touches two primitive arrays
+ * instead of one object per chunk. Because rows are normalized on insert,
+ * cosine similarity against a normalized query is a plain dot product, which
+ * is delegated to the configured {@link SimilarityKernel}.
+ *
+ * A matrix created with {@link #mapped} reads its ids and rows from
+ * (memory-mapped) buffers instead, e.g. a loaded snapshot, and is read-only.
+ * Its id-to-row map is only built on the first {@link #rowOf} or
+ * {@link #remove}, so opening one allocates nothing per row.
+ *
+ * Not thread-safe; owners guard it with their own lock.
+ */
+public class VectorMatrix {
+
+    private static final int INITIAL_ROWS = 64;
+
+    private final int dimension;
+    private final SimilarityKernel kernel;
+    private float[] data;
+    private long[] ids;
+    // Row and id storage of a read-only matrix; null when they live in data and ids
+    private final FloatBuffer mapped;
+    private final LongBuffer mappedIds;
+    private int rows;
+    private int liveRows;
+    private final BitSet deleted = new BitSet();
+    // Live rows by id; built on first use for a mapped matrix
+    private LongIntMap rowById;
+
+    public VectorMatrix(int dimension, SimilarityKernel kernel) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("Vector dimension must be positive: " + dimension);
+        }
+        this.dimension = dimension;
+        this.kernel = kernel;
+        this.data = new float[INITIAL_ROWS * dimension];
+        this.ids = new long[INITIAL_ROWS];
+        this.mapped = null;
+        this.mappedIds = null;
+        this.rowById = new LongIntMap(INITIAL_ROWS);
+    }
+
+    private VectorMatrix(int dimension, SimilarityKernel kernel, LongBuffer ids, FloatBuffer rows) {
+        this.dimension = dimension;
+        this.kernel = kernel;
+        this.mapped = rows;
+        this.mappedIds = ids;
+        this.rows = ids.remaining();
+        this.liveRows = this.rows;
+    }
+
+    /**
+     * Wrap already normalized rows and their ids without copying them. The
+     * matrix is read-only and the ids must be unique, as in a snapshot.
+     *
+     * @param ids  Chunk id of each row
+     * @param rows {@code ids.remaining() * dimension} floats, row-major
+     */
+    public static VectorMatrix mapped(int dimension, SimilarityKernel kernel, LongBuffer ids, FloatBuffer rows) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("Vector dimension must be positive: " + dimension);
+        }
+        if (rows.remaining() != (long) ids.remaining() * dimension) {
+            throw new IllegalArgumentException("Mapped rows hold " + rows.remaining() + " floats, expected "
+                    + (long) ids.remaining() * dimension);
+        }
+        return new VectorMatrix(dimension, kernel, ids.slice(), rows.slice());
+    }
+
+    /**
+     * Append a normalized copy of the vector. An existing row with the same id
+     * is tombstoned.
+     *
+     * @return Index of the new row
+     */
+    public int append(long id, float[] vector) {
+        int row = appendHidden(id, vector);
+        reveal(row);
+        return row;
+    }
+
+    /**
+     * Append a normalized copy of the vector as a tombstoned row, invisible to
+     * scans and lookups until {@link #reveal(int)} is called.
+     *
+     * @return Index of the new row
+     */
+    public int appendHidden(long id, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException(
+                    "Embedding dimension mismatch: " + vector.length + " vs " + dimension);
+        }
+        if (mapped != null) {
+            throw new IllegalStateException("Mapped vector matrix is read-only");
+        }
+
+        if (rows == ids.length) {
+            int capacity = Math.multiplyExact(ids.length, 2);
+            ids = Arrays.copyOf(ids, capacity);
+            data = Arrays.copyOf(data, Math.multiplyExact(capacity, dimension));
+        }
+
+        int row = rows++;
+        ids[row] = id;
+        normalizeInto(vector, data, row * dimension);
+        deleted.set(row);
+        return row;
+    }
+
+    /**
+     * Make a hidden row live. An existing row with the same id is tombstoned.
+     */
+    public void reveal(int row) {
+        if (deleted.get(row)) {
+            deleted.clear(row);
+            liveRows++;
+        }
+        int previous = rowById.put(ids[row], row);
+        if (previous >= 0 && previous != row) {
+            deleted.set(previous);
+            liveRows--;
+        }
+    }
+
+    /**
+     * Tombstone the row stored under the id.
+     *
+     * @return true if the id had a live row
+     */
+    public boolean remove(long id) {
+        int row = rowById().remove(id);
+        if (row < 0) {
+            return false;
+        }
+        deleted.set(row);
+        liveRows--;
+        return true;
+    }
+
+    /**
+     * Copy of a stored (normalized) row.
+     */
+    public float[] row(int row) {
+        int offset = row * dimension;
+        if (mapped != null) {
+            float[] copy = new float[dimension];
+            mapped.get(offset, copy);
+            return copy;
+        }
+        return Arrays.copyOfRange(data, offset, offset + dimension);
+    }
+
+    public float dot(float[] normalizedQuery, int row) {
+        if (mapped != null) {
+            return kernel.dot(normalizedQuery, 0, mapped, row * dimension, dimension);
+        }
+        return kernel.dot(normalizedQuery, 0, data, row * dimension, dimension);
+    }
+
+    public float dot(int rowA, int rowB) {
+        if (mapped != null) {
+            return dot(row(rowA), rowB);
+        }
+        return kernel.dot(data, rowA * dimension, data, rowB * dimension, dimension);
+    }
+
+    /**
+     * Exact top-K over all live rows.
+     */
+    public TopKHeap scan(float[] normalizedQuery, int topK) {
+        return scan(normalizedQuery, topK, 0, rows);
+    }
+
+    /**
+     * Exact top-K over the live rows in {@code [fromRow, toRow)}.
+     */
+    public TopKHeap scan(float[] normalizedQuery, int topK, int fromRow, int toRow) {
+        return scan(normalizedQuery, topK, fromRow, toRow, deleted);
+    }
+
+    /**
+     * Exact top-K over the rows in {@code [fromRow, toRow)} that are not set in
+     * {@code deleted}, for owners that track tombstones outside the matrix.
+     */
+    public TopKHeap scan(float[] normalizedQuery, int topK, int fromRow, int toRow, BitSet deleted) {
+        TopKHeap heap = new TopKHeap(topK);
+        for (int row = fromRow; row < toRow; row++) {
+            if (!deleted.get(row)) {
+                heap.offer(row, dot(normalizedQuery, row));
+            }
+        }
+        return heap;
+    }
+
+    /**
+     * Stream all live rows, in row order, to the sink.
+     */
+    public void export(VectorSink sink) throws IOException {
+        sink.begin(liveRows(), dimension);
+        exportRows(sink, deleted);
+    }
+
+    /**
+     * Stream the rows not set in {@code deleted}, in row order, without
+     * starting the sink.
+     */
+    public void exportRows(VectorSink sink, BitSet deleted) throws IOException {
+        for (int row = 0; row < rows; row++) {
+            if (!deleted.get(row)) {
+                if (mapped != null) {
+                    sink.accept(mappedIds.get(row), row(row), 0);
+                } else {
+                    sink.accept(ids[row], data, row * dimension);
+                }
+            }
+        }
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int liveRows() {
+        return liveRows;
+    }
+
+    public long id(int row) {
+        return mappedIds != null ? mappedIds.get(row) : ids[row];
+    }
+
+    public boolean isDeleted(int row) {
+        return deleted.get(row);
+    }
+
+    /**
+     * Copy of the tombstone set.
+     */
+    public BitSet deletedRows() {
+        return (BitSet) deleted.clone();
+    }
+
+    /**
+     * Row holding the id, or -1 if the id has no live row.
+     */
+    public int rowOf(long id) {
+        return rowById().get(id);
+    }
+
+    private LongIntMap rowById() {
+        if (rowById == null) {
+            LongIntMap index = new LongIntMap(liveRows);
+            for (int row = deleted.nextClearBit(0); row < rows; row = deleted.nextClearBit(row + 1)) {
+                index.put(mappedIds.get(row), row);
+            }
+            rowById = index;
+        }
+        return rowById;
+    }
+
+    /**
+     * Return a normalized copy of the vector; a zero vector stays zero.
+     */
+    public static float[] normalize(float[] vector) {
+        float[] normalized = new float[vector.length];
+        normalizeInto(vector, normalized, 0);
+        return normalized;
+    }
+
+    private static void normalizeInto(float[] vector, float[] target, int offset) {
+        double norm = 0.0;
+        for (float v : vector) {
+            norm += (double) v * v;
+        }
+        if (norm == 0.0) {
+            Arrays.fill(target, offset, offset + vector.length, 0.0f);
+            return;
+        }
+
+        float inverse = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            target[offset + i] = vector[i] * inverse;
+        }
+    }
+}
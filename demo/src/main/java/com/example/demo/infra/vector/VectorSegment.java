@@ -0,0 +1,88 @@
+package com.example.demo.infra.vector;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Immutable slice of a segmented index: a frozen {@link VectorMatrix}, its
+ * optional quantized codes and the set of rows deleted since it was built.
+ *
+ * Neither the matrix nor the tombstones change once a segment is published;
+ * deleting rows produces a new segment that shares the matrix and codes, so a
+ * reader holding a segment always sees the same rows.
+ */
+final class VectorSegment {
+
+    private final VectorMatrix matrix;
+    private final QuantizedCodes codes;
+    private final BitSet deleted;
+    private final int liveRows;
+
+    private VectorSegment(VectorMatrix matrix, QuantizedCodes codes, BitSet deleted) {
+        this.matrix = matrix;
+        this.codes = codes;
+        this.deleted = deleted;
+        this.liveRows = matrix.rows() - deleted.cardinality();
+    }
+
+    /**
+     * Build a segment from parallel id/vector lists. A repeated id keeps its
+     * last vector.
+     *
+     * @throws IllegalArgumentException if the vectors differ in dimension
+     */
+    static VectorSegment build(List<Long> ids, List<float[]> vectors, SimilarityKernel kernel,
+            Quantization quantization) {
+        VectorMatrix matrix = new VectorMatrix(vectors.get(0).length, kernel);
+        for (int i = 0; i < ids.size(); i++) {
+            matrix.append(ids.get(i), vectors.get(i));
+        }
+        return freeze(matrix, quantization);
+    }
+
+    /**
+     * Wrap a fully written matrix; the caller must not modify it afterwards.
+     */
+    static VectorSegment freeze(VectorMatrix matrix, Quantization quantization) {
+        QuantizedCodes codes = quantization.newCodes(matrix.dimension());
+        if (codes != null) {
+            for (int row = 0; row < matrix.rows(); row++) {
+                codes.append(matrix.row(row));
+            }
+        }
+        return new VectorSegment(matrix, codes, matrix.deletedRows());
+    }
+
+    /**
+     * Copy of this segment with additional rows deleted.
+     */
+    VectorSegment withDeleted(BitSet rows) {
+        BitSet merged = (BitSet) deleted.clone();
+        merged.or(rows);
+        return new VectorSegment(matrix, codes, merged);
+    }
+
+    VectorMatrix matrix() {
+        return matrix;
+    }
+
+    QuantizedCodes codes() {
+        return codes;
+    }
+
+    BitSet deleted() {
+        return deleted;
+    }
+
+    boolean isDeleted(int row) {
+        return deleted.get(row);
+    }
+
+    int rows() {
+        return matrix.rows();
+    }
+
+    int liveRows() {
+        return liveRows;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.demo.infra.vector;
+
+import java.io.IOException;
+
+public interface VectorSink {
+
+    /**
+     * Called once before any row
+     *
+     * @param count     Number of rows that follow
+     * @param dimension Vector dimension
+     */
+    void begin(int count, int dimension) throws IOException;
+
+    /**
+     * Receive one stored (normalized) vector
+     *
+     * @param id     Chunk id
+     * @param data   Backing array; only read {@code dimension} values from offset
+     * @param offset Start of the vector in {@code data}
+     */
+    void accept(long id, float[] data, int offset) throws IOException;
+}
@@ -0,0 +1,57 @@
+package com.example.demo.domain.rag.service;
+
+import com.example.demo.domain.rag.entity.DocChunk;
+import com.example.demo.domain.rag.repository.DocChunkRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import(DocChunkSequenceInitializer.class)
+// ALTER SEQUENCE commits implicitly, so run outside the test transaction
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DocChunkSequenceInitializerTest {
+
+	@Autowired
+	private DocChunkSequenceInitializer initializer;
+
+	@Autowired
+	private DocChunkRepository docChunkRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void sequenceIsMovedPastRowsWrittenWithIdentityIds() {
+		// Rows as an IDENTITY-era build left them, with the sequence still at its start
+		for (long id = 1; id <= 500; id++) {
+			jdbcTemplate.update("INSERT INTO doc_chunks (id, source_path, page_no, chunk_index, text, created_at) "
+					+ "VALUES (?, 'legacy.pdf', 1, ?, 'text', CURRENT_TIMESTAMP)", id, (int) id);
+		}
+
+		initializer.seed();
+		DocChunk chunk = new DocChunk();
+		chunk.setSourcePath("new.pdf");
+		chunk.setPageNo(1);
+		chunk.setChunkIndex(0);
+		chunk.setText("text");
+		DocChunk saved = docChunkRepository.saveAndFlush(chunk);
+
+		assertThat(saved.getId()).isGreaterThan(500L);
+
+		// A second start leaves a sequence that is already ahead alone
+		initializer.seed();
+		DocChunk next = new DocChunk();
+		next.setSourcePath("new.pdf");
+		next.setPageNo(1);
+		next.setChunkIndex(1);
+		next.setText("text");
+		assertThat(docChunkRepository.saveAndFlush(next).getId()).isGreaterThan(saved.getId());
+	}
+}
@@ -0,0 +1,52 @@
+package com.example.demo.global.config;
+
+import com.example.demo.infra.pdf.HeuristicTokenCounter;
+import com.example.demo.infra.pdf.TokenCounter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenizerConfigTest {
+
+	private final TokenizerConfig config = new TokenizerConfig();
+	private final DefaultResourceLoader loader = new DefaultResourceLoader();
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void unsetVocabularyUsesTheEstimate() {
+		assertThat(config.tokenCounter(loader, "", true, 10)).isInstanceOf(HeuristicTokenCounter.class);
+	}
+
+	@Test
+	void configuredVocabularyIsLoaded() throws IOException {
+		Path vocab = Files.writeString(dir.resolve("vocab.txt"), "the\ncrew\n");
+
+		TokenCounter counter = config.tokenCounter(loader, vocab.toUri().toString(), true, 10);
+
+		assertThat(counter.name()).isEqualTo("wordpiece2u");
+	}
+
+	@Test
+	void missingConfiguredVocabularyFailsInsteadOfFallingBack() {
+		assertThatThrownBy(() -> config.tokenCounter(loader, "classpath:tokenizer/missing-vocab.txt", true, 10))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("missing-vocab.txt");
+	}
+
+	@Test
+	void unreadableConfiguredVocabularyFails() throws IOException {
+		Path vocab = Files.writeString(dir.resolve("empty.txt"), "\n");
+
+		assertThatThrownBy(() -> config.tokenCounter(loader, vocab.toUri().toString(), true, 10))
+				.isInstanceOf(IllegalStateException.class);
+	}
+}
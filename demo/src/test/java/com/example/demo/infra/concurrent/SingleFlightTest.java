@@ -0,0 +1,118 @@
+package com.example.demo.infra.concurrent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+	@Test
+	void concurrentCallersShareOneLoaderCall() throws Exception {
+		SingleFlight<String, String> flights = new SingleFlight<>("test", 0, new SimpleMeterRegistry());
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				results.add(pool.submit(() -> flights.execute("key", () -> {
+					loads.incrementAndGet();
+					await(release);
+					return "value";
+				})));
+			}
+			// Let every caller reach the flight before the leader finishes
+			Thread.sleep(200);
+			release.countDown();
+
+			for (Future<String> result : results) {
+				assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+			}
+			assertThat(loads).hasValue(1);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	void failureReachesWaitersButIsNotKept() throws Exception {
+		SingleFlight<String, String> flights = new SingleFlight<>("test", 60_000, new SimpleMeterRegistry());
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		try {
+			Future<String> leader = pool.submit(() -> flights.execute("key", () -> {
+				await(release);
+				throw new IllegalStateException("boom");
+			}));
+			Thread.sleep(100);
+			Future<String> waiter = pool.submit(() -> flights.execute("key", () -> "unused"));
+			Thread.sleep(100);
+			release.countDown();
+
+			assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasRootCauseMessage("boom");
+			assertThatThrownBy(() -> waiter.get(5, TimeUnit.SECONDS)).hasRootCauseMessage("boom");
+			assertThat(flights.execute("key", () -> "fresh")).isEqualTo("fresh");
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	void successIsSharedWithinWindowOnly() {
+		SingleFlight<String, String> windowed = new SingleFlight<>("test", 60_000, new SimpleMeterRegistry());
+		assertThat(windowed.execute("key", () -> "first")).isEqualTo("first");
+		assertThat(windowed.execute("key", () -> "second")).isEqualTo("first");
+
+		SingleFlight<String, String> inFlightOnly = new SingleFlight<>("test", 0, new SimpleMeterRegistry());
+		assertThat(inFlightOnly.execute("key", () -> "first")).isEqualTo("first");
+		assertThat(inFlightOnly.execute("key", () -> "second")).isEqualTo("second");
+	}
+
+	@Test
+	void asyncCallersShareOneLoaderAndCancelIndependently() throws Exception {
+		SingleFlight<String, String> flights = new SingleFlight<>("test", 0, new SimpleMeterRegistry());
+		AtomicInteger loads = new AtomicInteger();
+		CompletableFuture<String> source = new CompletableFuture<>();
+
+		CompletableFuture<String> first = flights.executeAsync("key", () -> {
+			loads.incrementAndGet();
+			return source;
+		});
+		CompletableFuture<String> second = flights.executeAsync("key", () -> {
+			loads.incrementAndGet();
+			return CompletableFuture.completedFuture("unused");
+		});
+		first.cancel(true);
+		source.complete("value");
+
+		assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+		assertThat(loads).hasValue(1);
+	}
+
+	@Test
+	void textKeyNormalizesWhitespaceOnlyWhenAsked() {
+		assertThat(SingleFlight.textKey("m", " a \n b ", true)).isEqualTo(SingleFlight.textKey("m", "a b", true));
+		assertThat(SingleFlight.textKey("m", "a  b", false)).isNotEqualTo(SingleFlight.textKey("m", "a b", false));
+		assertThat(SingleFlight.textKey("m", "a b", true)).isNotEqualTo(SingleFlight.textKey("n", "a b", true));
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package com.example.demo.infra.pdf;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TextChunkerTest {
+
+	// One token per whitespace-separated word, so expected sizes are easy to read
+	private static final TokenCounter WORDS = new TokenCounter() {
+		@Override
+		public int count(CharSequence text, int start, int end) {
+			int words = 0;
+			boolean inWord = false;
+			for (int i = start; i < end; i++) {
+				boolean space = Character.isWhitespace(text.charAt(i));
+				if (!space && !inWord) {
+					words++;
+				}
+				inWord = !space;
+			}
+			return words;
+		}
+
+		@Override
+		public String name() {
+			return "words";
+		}
+	};
+
+	@Test
+	void noChunkExceedsTheChunkSize() {
+		for (TokenCounter counter : List.of(WORDS, new HeuristicTokenCounter())) {
+			TextChunker chunker = TextChunker.create(counter, 40, 10);
+			String text = randomText(new Random(13), 400);
+
+			List<TextChunker.TextChunk> chunks = chunker.chunkText(text, "doc.pdf", 1);
+
+			assertThat(chunks).hasSizeGreaterThan(5);
+			for (TextChunker.TextChunk chunk : chunks) {
+				assertThat(counter.count(text, chunk.getStart(), chunk.getEnd()))
+						.as("%s chunk %d", counter.name(), chunk.getChunkIndex())
+						.isLessThanOrEqualTo(40);
+			}
+		}
+	}
+
+	@Test
+	void sentencesLongerThanTheChunkSizeAreSplitAtWords() {
+		TextChunker chunker = TextChunker.create(WORDS, 10, 0);
+		String sentence = "word ".repeat(35).trim() + ".";
+
+		List<TextChunker.TextChunk> chunks = chunker.chunkText(sentence, "doc.pdf", 1);
+
+		assertThat(chunks).hasSize(4);
+		for (TextChunker.TextChunk chunk : chunks) {
+			assertThat(WORDS.count(sentence, chunk.getStart(), chunk.getEnd())).isLessThanOrEqualTo(10);
+		}
+		assertThat(chunks.get(3).getText()).isEqualTo("word word word word word.");
+	}
+
+	@Test
+	void nextChunkRepeatsTrailingSentencesWithinTheOverlap() {
+		TextChunker chunker = TextChunker.create(WORDS, 9, 3);
+		String text = "One two three. Four five six. Seven eight nine. Ten eleven twelve.";
+
+		List<TextChunker.TextChunk> chunks = chunker.chunkText(text, "doc.pdf", 1);
+
+		assertThat(chunks).extracting(TextChunker.TextChunk::getText).containsExactly(
+				"One two three. Four five six. Seven eight nine.",
+				"Seven eight nine. Ten eleven twelve.");
+	}
+
+	@Test
+	void overlapIsDroppedWhenItLeavesNoRoomForTheNextSentence() {
+		TextChunker chunker = TextChunker.create(WORDS, 6, 3);
+		String text = "One two three. Four five six seven eight nine.";
+
+		List<TextChunker.TextChunk> chunks = chunker.chunkText(text, "doc.pdf", 1);
+
+		assertThat(chunks).extracting(TextChunker.TextChunk::getText).containsExactly(
+				"One two three.",
+				"Four five six seven eight nine.");
+	}
+
+	@Test
+	void chunksAreSpansOfThePageText() {
+		TextChunker chunker = TextChunker.create(WORDS, 4, 0);
+		String text = "  First one here.\n\nSecond paragraph without stop\n\n  Third.  ";
+
+		List<TextChunker.TextChunk> chunks = chunker.chunkText(text, "doc.pdf", 7);
+
+		assertThat(chunks).extracting(TextChunker.TextChunk::getText).containsExactly(
+				"First one here.", "Second paragraph without stop", "Third.");
+		for (TextChunker.TextChunk chunk : chunks) {
+			assertThat(chunk.getPageNumber()).isEqualTo(7);
+			assertThat(chunk.asCharSequence().toString()).isEqualTo(text.substring(chunk.getStart(), chunk.getEnd()));
+		}
+		assertThat(chunker.chunkText("   ", "doc.pdf", 1)).isEmpty();
+	}
+
+	@Test
+	void overlapAtOrAboveTheChunkSizeIsClamped() {
+		TextChunker chunker = TextChunker.create(WORDS, 10, 10);
+
+		assertThat(chunker.settingsKey()).isEqualTo("span:words:10:5");
+	}
+
+	private static String randomText(Random random, int sentences) {
+		StringBuilder text = new StringBuilder();
+		for (int s = 0; s < sentences; s++) {
+			int words = 1 + random.nextInt(s % 17 == 0 ? 60 : 15);
+			for (int w = 0; w < words; w++) {
+				if (w > 0) {
+					text.append(' ');
+				}
+				text.append("abcdefghijkl", 0, 1 + random.nextInt(12));
+			}
+			text.append(s % 5 == 4 ? ".\n\n" : ". ");
+		}
+		return text.toString();
+	}
+}
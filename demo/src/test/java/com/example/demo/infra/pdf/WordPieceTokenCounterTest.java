@@ -0,0 +1,74 @@
+package com.example.demo.infra.pdf;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WordPieceTokenCounterTest {
+
+	private static final Set<String> VOCABULARY = Set.of("habitat", "module", "un", "##pack", "##ing", "the",
+			"crew", ",", ".");
+
+	private final WordPieceTokenCounter counter = new WordPieceTokenCounter(VOCABULARY, true, 100);
+
+	@Test
+	void wholeWordsAreOneTokenEach() {
+		assertThat(count("the crew module")).isEqualTo(3);
+	}
+
+	@Test
+	void wordsSplitIntoLongestContinuationPieces() {
+		// un + ##pack + ##ing
+		assertThat(count("unpacking")).isEqualTo(3);
+	}
+
+	@Test
+	void punctuationIsSplitOffAsSingleTokens() {
+		assertThat(count("habitat, module.")).isEqualTo(4);
+	}
+
+	@Test
+	void unknownWordsCountAsOneUnk() {
+		assertThat(count("zzz qqqq")).isEqualTo(2);
+		assertThat(count("x".repeat(150))).isEqualTo(1);
+	}
+
+	@Test
+	void lowercasingAndAccentStrippingApply() {
+		assertThat(count("The HABITAT Crew")).isEqualTo(3);
+		assertThat(count("habitát")).isEqualTo(1);
+
+		WordPieceTokenCounter cased = new WordPieceTokenCounter(VOCABULARY, false, 100);
+		assertThat(cased.count("HABITAT", 0, 7)).isEqualTo(1);
+		assertThat(cased.name()).endsWith("c");
+	}
+
+	@Test
+	void rangesAreCountedWithinTheText() {
+		String text = "the crew module";
+		assertThat(counter.count(text, 4, 8)).isEqualTo(1);
+	}
+
+	@Test
+	void loadReadsOneTokenPerLineAndRejectsEmptyFiles() throws IOException {
+		WordPieceTokenCounter loaded = WordPieceTokenCounter.load(stream("the\ncrew\n\nmodule\n"), true, 10);
+		assertThat(loaded.name()).isEqualTo("wordpiece3u");
+
+		assertThatThrownBy(() -> WordPieceTokenCounter.load(stream("\n\n"), true, 10))
+				.isInstanceOf(IOException.class);
+	}
+
+	private int count(String text) {
+		return counter.count(text, 0, text.length());
+	}
+
+	private static ByteArrayInputStream stream(String text) {
+		return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,147 @@
+package com.example.demo.infra.vector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HnswVectorIndexTest {
+
+	private static final int DIMENSION = 32;
+	private static final SimilarityKernel KERNEL = SimilarityKernels.select(false);
+
+	@Test
+	void recallAgainstExactSearchIsHigh() {
+		Random random = new Random(21);
+		HnswVectorIndex hnsw = new HnswVectorIndex(16, 200, 64, 0, KERNEL);
+		ExactVectorIndex exact = new ExactVectorIndex(KERNEL);
+		for (long id = 0; id < 3000; id++) {
+			float[] vector = randomVector(random);
+			hnsw.add(id, vector);
+			exact.add(id, vector);
+		}
+
+		int k = 10;
+		int queries = 100;
+		int hits = 0;
+		for (int i = 0; i < queries; i++) {
+			float[] query = randomVector(random);
+			Set<Long> expected = ids(exact.search(query, k));
+			for (Long id : ids(hnsw.search(query, k))) {
+				if (expected.contains(id)) {
+					hits++;
+				}
+			}
+		}
+
+		assertThat((double) hits / (queries * k)).isGreaterThanOrEqualTo(0.9);
+	}
+
+	@Test
+	void replacedVectorsAreCompactedAway() {
+		Random random = new Random(5);
+		HnswVectorIndex hnsw = new HnswVectorIndex(8, 64, 64, 0, 0.3, KERNEL);
+		List<Long> ids = new ArrayList<>();
+		List<float[]> vectors = new ArrayList<>();
+		for (long id = 0; id < 500; id++) {
+			ids.add(id);
+			vectors.add(randomVector(random));
+		}
+		hnsw.replace(List.of(), ids, vectors);
+
+		// Replace half of the vectors under new ids: 250 of 750 nodes (33%) become tombstones
+		List<Long> removed = ids.subList(0, 250);
+		List<Long> added = new ArrayList<>();
+		List<float[]> addedVectors = new ArrayList<>();
+		for (long id = 1000; id < 1250; id++) {
+			added.add(id);
+			addedVectors.add(randomVector(random));
+		}
+		hnsw.replace(removed, added, addedVectors);
+
+		awaitCompaction(hnsw, 0.3);
+		assertThat(hnsw.tombstones()).isZero();
+		assertThat(hnsw.size()).isEqualTo(500);
+		for (int i = 0; i < added.size(); i += 25) {
+			List<VectorHit> hits = hnsw.search(addedVectors.get(i), 5);
+			assertThat(hits.get(0).getId()).isEqualTo(added.get(i));
+			assertThat(ids(hits)).doesNotContainAnyElementsOf(removed);
+		}
+		hnsw.close();
+	}
+
+	@Test
+	void mutationsDuringCompactionAreKept() {
+		Random random = new Random(9);
+		HnswVectorIndex hnsw = new HnswVectorIndex(8, 64, 64, 0, 0.3, KERNEL);
+		for (long id = 0; id < 2000; id++) {
+			hnsw.add(id, randomVector(random));
+		}
+
+		// The first removals past the ratio start a rebuild; the rest race with it
+		List<float[]> addedVectors = new ArrayList<>();
+		for (long id = 0; id < 1000; id++) {
+			hnsw.remove(id);
+			float[] vector = randomVector(random);
+			addedVectors.add(vector);
+			hnsw.add(5000 + id, vector);
+		}
+
+		// Removals that raced with the rebuild may stay behind as tombstones below the ratio
+		awaitCompaction(hnsw, 0.3);
+		assertThat(hnsw.size()).isEqualTo(2000);
+		for (int i = 0; i < addedVectors.size(); i += 50) {
+			List<VectorHit> hits = hnsw.search(addedVectors.get(i), 5);
+			assertThat(hits.get(0).getId()).isEqualTo(5000L + i);
+			assertThat(hits).allSatisfy(hit -> assertThat(hit.getId()).isGreaterThanOrEqualTo(1000L));
+		}
+		hnsw.close();
+	}
+
+	@Test
+	void tombstonesBelowTheRatioAreKept() {
+		Random random = new Random(8);
+		HnswVectorIndex hnsw = new HnswVectorIndex(8, 64, 64, 0, 0.3, KERNEL);
+		for (long id = 0; id < 100; id++) {
+			hnsw.add(id, randomVector(random));
+		}
+		for (long id = 0; id < 10; id++) {
+			hnsw.remove(id);
+		}
+
+		assertThat(hnsw.tombstones()).isEqualTo(10);
+		assertThat(hnsw.size()).isEqualTo(90);
+		hnsw.close();
+	}
+
+	// Compaction runs on a background thread
+	private static void awaitCompaction(HnswVectorIndex hnsw, double ratio) {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (hnsw.tombstones() > ratio * (hnsw.size() + hnsw.tombstones()) && System.nanoTime() < deadline) {
+			Thread.onSpinWait();
+		}
+		assertThat((double) hnsw.tombstones()).isLessThanOrEqualTo(ratio * (hnsw.size() + hnsw.tombstones()));
+	}
+
+	private static Set<Long> ids(List<VectorHit> hits) {
+		Set<Long> ids = new HashSet<>();
+		for (VectorHit hit : hits) {
+			ids.add(hit.getId());
+		}
+		return ids;
+	}
+
+	private static float[] randomVector(Random random) {
+		float[] vector = new float[DIMENSION];
+		for (int i = 0; i < DIMENSION; i++) {
+			vector[i] = (float) random.nextGaussian();
+		}
+		return vector;
+	}
+}
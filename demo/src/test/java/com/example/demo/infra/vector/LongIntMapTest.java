@@ -0,0 +1,50 @@
+package com.example.demo.infra.vector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongIntMapTest {
+
+	@Test
+	void putGetAndRemove() {
+		LongIntMap map = new LongIntMap(0);
+
+		assertThat(map.put(42L, 1)).isEqualTo(-1);
+		assertThat(map.put(42L, 2)).isEqualTo(1);
+		assertThat(map.get(42L)).isEqualTo(2);
+		assertThat(map.get(7L)).isEqualTo(-1);
+		assertThat(map.remove(42L)).isEqualTo(2);
+		assertThat(map.remove(42L)).isEqualTo(-1);
+		assertThat(map.size()).isZero();
+	}
+
+	@Test
+	void matchesHashMapUnderRandomChurn() {
+		Random random = new Random(3);
+		LongIntMap map = new LongIntMap(4);
+		Map<Long, Integer> expected = new HashMap<>();
+
+		// A small key range keeps probe runs long, so removals shift entries back often
+		for (int i = 0; i < 200_000; i++) {
+			long key = random.nextInt(5_000) * 1024L;
+			if (random.nextInt(3) == 0) {
+				Integer previous = expected.remove(key);
+				assertThat(map.remove(key)).isEqualTo(previous != null ? previous : -1);
+			} else {
+				Integer previous = expected.put(key, i);
+				assertThat(map.put(key, i)).isEqualTo(previous != null ? previous : -1);
+			}
+		}
+
+		assertThat(map.size()).isEqualTo(expected.size());
+		for (long key = 0; key < 5_000 * 1024L; key += 1024) {
+			Integer value = expected.get(key);
+			assertThat(map.get(key)).isEqualTo(value != null ? value : -1);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package com.example.demo.infra.vector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QuantizedCodesTest {
+
+	private static final int DIMENSION = 96;
+
+	@Test
+	void int8CodesRankLikeTheFloatRows() {
+		assertRanksLikeFloat(new Int8QuantizedCodes(DIMENSION), 1.0);
+	}
+
+	@Test
+	void binaryCodesRankNearDuplicatesFirst() {
+		assertRanksLikeFloat(new BinaryQuantizedCodes(DIMENSION), 0.8);
+	}
+
+	@Test
+	void deletedRowsAreSkipped() {
+		QuantizedCodes codes = new Int8QuantizedCodes(DIMENSION);
+		float[][] rows = randomRows(10, new Random(3));
+		for (float[] row : rows) {
+			codes.append(row);
+		}
+		BitSet deleted = new BitSet();
+		deleted.set(4);
+
+		TopKHeap.Sorted top = codes.scan(rows[4], 10, deleted).drainDescending();
+
+		assertThat(top.size()).isEqualTo(9);
+		for (int i = 0; i < top.size(); i++) {
+			assertThat(top.row(i)).isNotEqualTo(4);
+		}
+	}
+
+	@Test
+	void codeSizesMatchTheEncoding() {
+		QuantizedCodes int8 = new Int8QuantizedCodes(DIMENSION);
+		QuantizedCodes binary = new BinaryQuantizedCodes(DIMENSION);
+		for (float[] row : randomRows(100, new Random(5))) {
+			int8.append(row);
+			binary.append(row);
+		}
+
+		// One byte per dimension plus a float scale; one bit per dimension rounded up to longs
+		assertThat(int8.bytes()).isEqualTo(100L * (DIMENSION + Float.BYTES));
+		assertThat(binary.bytes()).isEqualTo(100L * 2 * Long.BYTES);
+	}
+
+	@Test
+	void reportCountsFloatRowsAsResident() {
+		VectorMatrix matrix = new VectorMatrix(DIMENSION, SimilarityKernels.select(false));
+		float[][] rows = randomRows(200, new Random(9));
+		for (int i = 0; i < rows.length; i++) {
+			matrix.append(i, rows[i]);
+		}
+
+		QuantizationReport report = QuantizationEvaluator.evaluate(matrix, 5, 20, 4);
+
+		long floatBytes = 200L * DIMENSION * Float.BYTES;
+		assertThat(report.getFloatBytes()).isEqualTo(floatBytes);
+		for (QuantizationReport.Entry entry : report.getEntries()) {
+			assertThat(entry.getResidentBytes()).isEqualTo(floatBytes + entry.getCodeBytes());
+			assertThat(entry.getMemoryOverhead()).isPositive().isLessThan(0.5);
+			assertThat(entry.getRescoredRecallAtK()).isGreaterThanOrEqualTo(entry.getRecallAtK());
+		}
+	}
+
+	@Test
+	void unknownQuantizationIsRejected() {
+		assertThat(Quantization.from(" int8 ")).isEqualTo(Quantization.INT8);
+		assertThat(Quantization.from("")).isEqualTo(Quantization.NONE);
+		assertThatThrownBy(() -> Quantization.from("int4")).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	// Each query is a slightly perturbed stored row, which should come back first
+	private static void assertRanksLikeFloat(QuantizedCodes codes, double minHitRate) {
+		Random random = new Random(11);
+		float[][] rows = randomRows(300, random);
+		for (float[] row : rows) {
+			codes.append(row);
+		}
+
+		int hits = 0;
+		for (int target = 0; target < rows.length; target++) {
+			float[] query = rows[target].clone();
+			for (int i = 0; i < DIMENSION; i++) {
+				query[i] += (float) (random.nextGaussian() * 0.01);
+			}
+			TopKHeap.Sorted top = codes.scan(VectorMatrix.normalize(query), 1, new BitSet()).drainDescending();
+			if (top.row(0) == target) {
+				hits++;
+			}
+		}
+		assertThat((double) hits / rows.length).isGreaterThanOrEqualTo(minHitRate);
+	}
+
+	private static float[][] randomRows(int count, Random random) {
+		float[][] rows = new float[count][];
+		for (int r = 0; r < count; r++) {
+			float[] row = new float[DIMENSION];
+			for (int i = 0; i < DIMENSION; i++) {
+				row[i] = (float) random.nextGaussian();
+			}
+			rows[r] = VectorMatrix.normalize(row);
+		}
+		return rows;
+	}
+}
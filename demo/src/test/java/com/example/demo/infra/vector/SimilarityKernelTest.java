@@ -0,0 +1,75 @@
+package com.example.demo.infra.vector;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class SimilarityKernelTest {
+
+	private final SimilarityKernel scalar = new ScalarSimilarityKernel();
+	private final SimilarityKernel simd = SimilarityKernels.select(true);
+
+	@Test
+	void vectorApiKernelIsSelectedWhenTheModuleIsPresent() {
+		// The test task runs with --add-modules jdk.incubator.vector
+		assertThat(simd).isInstanceOf(VectorApiSimilarityKernel.class);
+	}
+
+	@Test
+	void bufferAndArrayPathsAgreeWithTheScalarLoop() {
+		Random random = new Random(12);
+		// Odd lengths exercise the tail loop, lengths above 1024 the scratch blocks
+		for (int dimension : new int[] { 1, 7, 16, 33, 768, 1500 }) {
+			float[] query = randomVector(random, dimension);
+			float[] rows = randomVector(random, 3 * dimension);
+			FloatBuffer mapped = ByteBuffer.allocateDirect(rows.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN)
+					.asFloatBuffer().put(rows).flip();
+
+			for (int row = 0; row < 3; row++) {
+				float expected = scalar.dot(query, 0, rows, row * dimension, dimension);
+				float tolerance = 1e-4f * dimension;
+				assertThat(simd.dot(query, 0, rows, row * dimension, dimension)).isCloseTo(expected, within(tolerance));
+				assertThat(simd.dot(query, 0, mapped, row * dimension, dimension)).isCloseTo(expected, within(tolerance));
+				assertThat(scalar.dot(query, 0, mapped, row * dimension, dimension)).isCloseTo(expected, within(tolerance));
+			}
+			assertThat(mapped.position()).isZero();
+		}
+	}
+
+	@Test
+	void mappedMatrixScansWithTheVectorApiKernel() {
+		Random random = new Random(5);
+		int dimension = 64;
+		long[] ids = new long[50];
+		float[] rows = new float[ids.length * dimension];
+		for (int row = 0; row < ids.length; row++) {
+			ids[row] = 100 + row;
+			System.arraycopy(VectorMatrix.normalize(randomVector(random, dimension)), 0, rows, row * dimension,
+					dimension);
+		}
+		FloatBuffer mapped = ByteBuffer.allocateDirect(rows.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN)
+				.asFloatBuffer().put(rows).flip();
+		VectorMatrix matrix = VectorMatrix.mapped(dimension, simd, LongBuffer.wrap(ids), mapped);
+
+		float[] query = matrix.row(17);
+		TopKHeap.Sorted top = matrix.scan(query, 1).drainDescending();
+
+		assertThat(matrix.id(top.row(0))).isEqualTo(117L);
+		assertThat(top.score(0)).isCloseTo(1.0f, within(1e-4f));
+	}
+
+	private static float[] randomVector(Random random, int length) {
+		float[] vector = new float[length];
+		for (int i = 0; i < length; i++) {
+			vector[i] = (float) random.nextGaussian();
+		}
+		return vector;
+	}
+}
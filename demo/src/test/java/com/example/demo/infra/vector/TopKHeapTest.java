@@ -0,0 +1,72 @@
+package com.example.demo.infra.vector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TopKHeapTest {
+
+	@Test
+	void keepsTheHighestScoresInDescendingOrder() {
+		Random random = new Random(7);
+		float[] scores = new float[1000];
+		TopKHeap heap = new TopKHeap(10);
+		for (int row = 0; row < scores.length; row++) {
+			scores[row] = random.nextFloat();
+			heap.offer(row, scores[row]);
+		}
+
+		float[] expected = scores.clone();
+		Arrays.sort(expected);
+		TopKHeap.Sorted sorted = heap.drainDescending();
+
+		assertThat(sorted.size()).isEqualTo(10);
+		for (int i = 0; i < sorted.size(); i++) {
+			assertThat(sorted.score(i)).isEqualTo(expected[expected.length - 1 - i]);
+			assertThat(scores[sorted.row(i)]).isEqualTo(sorted.score(i));
+		}
+		assertThat(heap.size()).isZero();
+	}
+
+	@Test
+	void thresholdIsOnlySetOnceFull() {
+		TopKHeap heap = new TopKHeap(2);
+		heap.offer(0, 0.5f);
+		assertThat(heap.threshold()).isEqualTo(Float.NEGATIVE_INFINITY);
+
+		heap.offer(1, 0.9f);
+		heap.offer(2, 0.1f);
+		assertThat(heap.isFull()).isTrue();
+		assertThat(heap.threshold()).isEqualTo(0.5f);
+	}
+
+	@Test
+	void mergeShiftsRowsAndKeepsTheOverallTopK() {
+		TopKHeap first = new TopKHeap(3);
+		first.offer(0, 0.2f);
+		first.offer(1, 0.8f);
+		TopKHeap second = new TopKHeap(3);
+		second.offer(0, 0.9f);
+		second.offer(1, 0.1f);
+
+		TopKHeap merged = new TopKHeap(3);
+		merged.merge(first);
+		merged.merge(second, 100);
+		TopKHeap.Sorted sorted = merged.drainDescending();
+
+		assertThat(sorted.size()).isEqualTo(3);
+		assertThat(new int[] { sorted.row(0), sorted.row(1), sorted.row(2) }).containsExactly(100, 1, 0);
+	}
+
+	@Test
+	void zeroCapacityRetainsNothing() {
+		TopKHeap heap = new TopKHeap(0);
+		heap.offer(0, 1.0f);
+
+		assertThat(heap.size()).isZero();
+		assertThat(heap.drainDescending().size()).isZero();
+	}
+}
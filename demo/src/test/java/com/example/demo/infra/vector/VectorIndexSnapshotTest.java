@@ -0,0 +1,148 @@
+package com.example.demo.infra.vector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class VectorIndexSnapshotTest {
+
+	private static final int DIMENSION = 16;
+	private static final SimilarityKernel KERNEL = SimilarityKernels.select(false);
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void roundTripServesTheSameRowsFromTheMapping() throws IOException {
+		Random random = new Random(4);
+		ExactVectorIndex original = new ExactVectorIndex(KERNEL);
+		for (long id = 1; id <= 200; id++) {
+			original.add(id, randomVector(random));
+		}
+		original.remove(7L);
+		Path path = dir.resolve("vectors.idx");
+
+		VectorIndexSnapshot.write(path, original, "nomic-embed-text", 200, 200);
+		VectorIndexSnapshot.Mapped snapshot = VectorIndexSnapshot.map(path);
+		snapshot.verify();
+
+		VectorIndexSnapshot.Header header = snapshot.getHeader();
+		assertThat(header.getCount()).isEqualTo(199);
+		assertThat(header.getDimension()).isEqualTo(DIMENSION);
+		assertThat(header.getModel()).isEqualTo("nomic-embed-text");
+		assertThat(header.getSourceMaxId()).isEqualTo(200);
+
+		ExactVectorIndex restored = new ExactVectorIndex(KERNEL);
+		for (VectorMatrix rows : snapshot.matrices(KERNEL)) {
+			restored.addRows(rows);
+		}
+		assertThat(restored.size()).isEqualTo(199);
+		for (int i = 0; i < 20; i++) {
+			float[] query = randomVector(random);
+			List<VectorHit> expected = original.search(query, 5);
+			List<VectorHit> actual = restored.search(query, 5);
+			assertThat(actual).extracting(VectorHit::getId)
+					.containsExactlyElementsOf(expected.stream().map(VectorHit::getId).toList());
+		}
+		original.close();
+		restored.close();
+	}
+
+	@Test
+	void restoredIndexAcceptsRemovalsAndReplacements() throws IOException {
+		Random random = new Random(6);
+		ExactVectorIndex original = new ExactVectorIndex(KERNEL);
+		for (long id = 1; id <= 50; id++) {
+			original.add(id, randomVector(random));
+		}
+		Path path = dir.resolve("vectors.idx");
+		VectorIndexSnapshot.write(path, original, "model", 50, 50);
+
+		ExactVectorIndex restored = new ExactVectorIndex(KERNEL);
+		for (VectorMatrix rows : VectorIndexSnapshot.map(path).matrices(KERNEL)) {
+			restored.addRows(rows);
+		}
+		float[] replacement = randomVector(random);
+		restored.replace(List.of(3L), List.of(3L), List.of(replacement));
+
+		assertThat(restored.remove(10L)).isTrue();
+		assertThat(restored.remove(10L)).isFalse();
+		assertThat(restored.remove(99L)).isFalse();
+		assertThat(restored.size()).isEqualTo(49);
+		List<VectorHit> hits = restored.search(replacement, 50);
+		assertThat(hits.get(0).getId()).isEqualTo(3L);
+		assertThat(hits).extracting(VectorHit::getId).doesNotHaveDuplicates().doesNotContain(10L);
+		original.close();
+		restored.close();
+	}
+
+	@Test
+	void mappedRowsAreReadOnly() throws IOException {
+		ExactVectorIndex index = new ExactVectorIndex(KERNEL);
+		index.add(1L, randomVector(new Random(1)));
+		Path path = dir.resolve("vectors.idx");
+		VectorIndexSnapshot.write(path, index, "model", 1, 1);
+
+		VectorMatrix rows = VectorIndexSnapshot.map(path).matrices(KERNEL).get(0);
+
+		assertThatThrownBy(() -> rows.append(2L, new float[DIMENSION])).isInstanceOf(IllegalStateException.class);
+		index.close();
+	}
+
+	@Test
+	void corruptedRowsFailVerification() throws IOException {
+		ExactVectorIndex index = new ExactVectorIndex(KERNEL);
+		Random random = new Random(2);
+		for (long id = 1; id <= 10; id++) {
+			index.add(id, randomVector(random));
+		}
+		Path path = dir.resolve("vectors.idx");
+		VectorIndexSnapshot.write(path, index, "model", 10, 10);
+
+		// Flip a byte inside the vector block, past the 256-byte header and the ids
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer one = ByteBuffer.allocate(1);
+			long offset = 256 + 10 * Long.BYTES + 5;
+			channel.read(one, offset);
+			one.put(0, (byte) (one.get(0) ^ 0x40));
+			one.rewind();
+			channel.write(one, offset);
+		}
+
+		VectorIndexSnapshot.Mapped snapshot = VectorIndexSnapshot.map(path);
+		assertThatThrownBy(snapshot::verify).isInstanceOf(IOException.class).hasMessageContaining("checksum");
+		index.close();
+	}
+
+	@Test
+	void truncatedFileIsRejectedOnMap() throws IOException {
+		ExactVectorIndex index = new ExactVectorIndex(KERNEL);
+		index.add(1L, randomVector(new Random(3)));
+		Path path = dir.resolve("vectors.idx");
+		VectorIndexSnapshot.write(path, index, "model", 1, 1);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - 4);
+		}
+
+		assertThatThrownBy(() -> VectorIndexSnapshot.map(path)).isInstanceOf(IOException.class);
+		index.close();
+	}
+
+	private static float[] randomVector(Random random) {
+		float[] vector = new float[DIMENSION];
+		for (int i = 0; i < DIMENSION; i++) {
+			vector[i] = (float) random.nextGaussian();
+		}
+		return vector;
+	}
+}